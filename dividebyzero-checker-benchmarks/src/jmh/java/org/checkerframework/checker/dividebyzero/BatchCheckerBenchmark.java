@@ -0,0 +1,61 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.dividebyzero.driver.BatchChecker;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link BatchChecker} on many tiny in-memory sources, like those of a code generator.
+ * The score is in sources per second, for several batch sizes; a batch size of 1 is the cost of a
+ * javac task per source, without the cost of a JVM launch.
+ */
+@State(Scope.Benchmark)
+public class BatchCheckerBenchmark {
+
+  /** The number of sources checked by each invocation. */
+  private static final int SOURCES = 1000;
+
+  @Param({"1", "50", "1000"})
+  public int batchSize;
+
+  private BatchChecker checker;
+
+  private List<JavaFileObject> sources;
+
+  @Setup
+  public void setUp() {
+    checker = new BatchChecker(System.getProperty("java.class.path"), List.of(), batchSize);
+    sources = new ArrayList<>();
+    for (int i = 0; i < SOURCES; i++) {
+      String name = "Generated" + i;
+      sources.add(
+          BatchChecker.source(
+              "gen/" + name + ".java",
+              "package gen;\n"
+                  + "class "
+                  + name
+                  + " {\n"
+                  + "  int scale(int x, int d) {\n"
+                  + "    return d != 0 ? x / d : x % "
+                  + (i % 7 + 1)
+                  + ";\n"
+                  + "  }\n"
+                  + "}\n"));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SOURCES)
+  public List<ReportedDiagnostic> checkSources() throws IOException {
+    return checker.check(sources);
+  }
+}
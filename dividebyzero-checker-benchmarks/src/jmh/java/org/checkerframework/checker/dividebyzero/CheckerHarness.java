@@ -0,0 +1,150 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.framework.flow.CFCFGBuilder;
+
+/**
+ * Runs javac with the Divide By Zero Checker over files from the benchmark corpus, and keeps the
+ * live checker, type factory, visitor and control flow graphs, so that benchmarks can replay one
+ * part of the check at a time.
+ *
+ * <p>The javac task is only analyzed, never closed, so its symbol table stays usable after the
+ * check has finished.
+ */
+final class CheckerHarness {
+
+  /** The checker, which has already checked every class in the corpus files. */
+  final HarnessChecker checker;
+
+  /** The control flow graph of every method in the corpus files. */
+  final List<MethodGraph> graphs = new ArrayList<>();
+
+  private CheckerHarness(HarnessChecker checker) {
+    this.checker = checker;
+  }
+
+  /**
+   * Check the given corpus files.
+   *
+   * @param corpusNames names of files in the {@code corpus} resource directory, without ".java"
+   * @return a harness holding the state of the finished check
+   */
+  static CheckerHarness check(String... corpusNames) throws IOException {
+    List<JavaFileObject> sources = new ArrayList<>();
+    for (String name : corpusNames) {
+      sources.add(new CorpusSource(name));
+    }
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager =
+        javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+    List<String> options =
+        List.of("-proc:only", "-classpath", System.getProperty("java.class.path"));
+    JavacTask task =
+        (JavacTask) javac.getTask(null, fileManager, diagnostic -> {}, options, null, sources);
+    HarnessChecker checker = new HarnessChecker();
+    task.setProcessors(List.of(checker));
+    task.analyze();
+
+    CheckerHarness harness = new CheckerHarness(checker);
+    harness.buildGraphs();
+    return harness;
+  }
+
+  /** Returns the checker's type factory. */
+  DivByZeroAnnotatedTypeFactory factory() {
+    return (DivByZeroAnnotatedTypeFactory) checker.getTypeFactory();
+  }
+
+  /** Make the given compilation unit the type factory's current one, if it is not already. */
+  void setRoot(CompilationUnitTree root) {
+    if (factory().getRoot() != root) {
+      factory().setRoot(root);
+    }
+  }
+
+  private void buildGraphs() {
+    for (TreePath path : checker.classes) {
+      CompilationUnitTree root = path.getCompilationUnit();
+      ClassTree classTree = (ClassTree) path.getLeaf();
+      setRoot(root);
+      for (Tree member : classTree.getMembers()) {
+        if (member instanceof MethodTree && ((MethodTree) member).getBody() != null) {
+          UnderlyingAST ast = new UnderlyingAST.CFGMethod((MethodTree) member, classTree);
+          ControlFlowGraph cfg =
+              CFCFGBuilder.build(
+                  root, ast, checker, factory(), checker.getProcessingEnvironment());
+          graphs.add(new MethodGraph(root, cfg));
+        }
+      }
+    }
+  }
+
+  /** A method's control flow graph, and the compilation unit it belongs to. */
+  static final class MethodGraph {
+    final CompilationUnitTree root;
+    final ControlFlowGraph cfg;
+
+    MethodGraph(CompilationUnitTree root, ControlFlowGraph cfg) {
+      this.root = root;
+      this.cfg = cfg;
+    }
+  }
+
+  /** A {@link DivByZeroChecker} that remembers its visitor and the classes it has checked. */
+  static final class HarnessChecker extends DivByZeroChecker {
+    final List<TreePath> classes = new ArrayList<>();
+    BaseTypeVisitor<?> visitor;
+
+    @Override
+    protected BaseTypeVisitor<?> createSourceVisitor() {
+      visitor = super.createSourceVisitor();
+      return visitor;
+    }
+
+    @Override
+    public void typeProcess(TypeElement element, TreePath tree) {
+      super.typeProcess(element, tree);
+      classes.add(tree);
+    }
+  }
+
+  /** A source file read from the {@code corpus} resource directory. */
+  private static final class CorpusSource extends SimpleJavaFileObject {
+    private final String name;
+
+    CorpusSource(String name) {
+      super(URI.create("string:///" + name + ".java"), Kind.SOURCE);
+      this.name = name;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+      try (InputStream in = CheckerHarness.class.getResourceAsStream("/corpus/" + name + ".java")) {
+        if (in == null) {
+          throw new IOException("no corpus file " + name);
+        }
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.IOException;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.checker.dividebyzero.qual.Top;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the lattice operations that the transfer functions use, as table lookups in {@link
+ * DivByZeroLattice}, against the {@link QualifierHierarchy} calls and mirror construction they
+ * replace.
+ */
+@State(Scope.Benchmark)
+public class LatticeBenchmark {
+
+  private CheckerHarness harness;
+
+  private DivByZeroLattice lattice;
+
+  private QualifierHierarchy hierarchy;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.check("Arithmetic");
+    lattice = harness.factory().getLattice();
+    hierarchy = harness.factory().getQualifierHierarchy();
+  }
+
+  @Benchmark
+  public void tableLubGlb(Blackhole bh) {
+    int n = lattice.size();
+    for (int x = 0; x < n; x++) {
+      for (int y = 0; y < n; y++) {
+        bh.consume(lattice.mirror(lattice.lub(x, y)));
+        bh.consume(lattice.mirror(lattice.glb(x, y)));
+      }
+    }
+  }
+
+  @Benchmark
+  public void hierarchyLubGlb(Blackhole bh) {
+    int n = lattice.size();
+    for (int x = 0; x < n; x++) {
+      for (int y = 0; y < n; y++) {
+        AnnotationMirror a = lattice.mirror(x);
+        AnnotationMirror b = lattice.mirror(y);
+        bh.consume(hierarchy.leastUpperBoundQualifiersOnly(a, b));
+        bh.consume(hierarchy.greatestLowerBoundQualifiersOnly(a, b));
+      }
+    }
+  }
+
+  @Benchmark
+  public AnnotationMirror internedMirror() {
+    return lattice.mirror(lattice.ordinal(Top.class));
+  }
+
+  @Benchmark
+  public AnnotationMirror builtMirror() {
+    return AnnotationBuilder.fromClass(harness.factory().getElementUtils(), Top.class);
+  }
+}
@@ -0,0 +1,41 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.IOException;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Runs {@link DivByZeroTransfer} to a fixpoint over every method of a corpus file, using a real
+ * {@link CFAnalysis}. The corpus files are chosen so that one exercises {@code implementOperator},
+ * one exercises {@code implementComparison}, and one makes the analysis iterate around loops.
+ */
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+  @Param({"Arithmetic", "ComparisonChains", "Loops"})
+  public String corpus;
+
+  private CheckerHarness harness;
+
+  private CFAnalysis analysis;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.check(corpus);
+    analysis = new CFAnalysis(harness.checker, harness.factory());
+  }
+
+  @Benchmark
+  public void analyzeMethods(Blackhole bh) {
+    for (CheckerHarness.MethodGraph method : harness.graphs) {
+      harness.setRoot(method.root);
+      analysis.performAnalysis(method.cfg);
+      bh.consume(analysis.getRegularExitStore());
+    }
+  }
+}
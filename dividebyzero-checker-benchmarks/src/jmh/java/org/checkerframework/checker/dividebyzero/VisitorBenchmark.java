@@ -0,0 +1,42 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.util.TreePath;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link DivByZeroVisitor} over compilation units that javac has already parsed and
+ * attributed, and, for comparison, a whole check of the same file in a fresh javac task.
+ */
+@State(Scope.Benchmark)
+public class VisitorBenchmark {
+
+  @Param({"Arithmetic", "ComparisonChains", "Loops"})
+  public String corpus;
+
+  private CheckerHarness harness;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.check(corpus);
+  }
+
+  /** Visit every class again. Dataflow results are already cached by the type factory. */
+  @Benchmark
+  public void visitCheckedClasses() {
+    for (TreePath path : harness.checker.classes) {
+      harness.setRoot(path.getCompilationUnit());
+      harness.checker.visitor.visit(path);
+    }
+  }
+
+  /** Parse, attribute, analyze and visit the corpus file from scratch. */
+  @Benchmark
+  public CheckerHarness checkFromScratch() throws IOException {
+    return CheckerHarness.check(corpus);
+  }
+}
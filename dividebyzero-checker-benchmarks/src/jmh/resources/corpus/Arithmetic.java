@@ -0,0 +1,31 @@
+// Straight-line integer arithmetic, to exercise implementOperator.
+class Arithmetic {
+  static final int SECONDS_PER_DAY = 60 * 60 * 24;
+
+  int scale(int x, int y) {
+    int a = x + 1;
+    int b = a * 2 - y;
+    int c = (a + b) * (a - b);
+    int d = c / 7 + x % 3;
+    int e = d * d + a * b - c;
+    return e / SECONDS_PER_DAY + (a + b + c + d) % 11;
+  }
+
+  long mix(long p, long q, int r) {
+    long s = p * 31 + q;
+    long t = s - (p << 3) + r;
+    long u = (s + t) * (s - t) + r * 17L;
+    long v = u / 1_000_000L + t % 97;
+    return (v + s) * 13 - (u + t) / 3;
+  }
+
+  int fold() {
+    int total = 0;
+    total += 1 * 2 * 3 * 4 * 5;
+    total -= 60 * 60 * 1000 / 1024;
+    total *= SECONDS_PER_DAY - 1;
+    total /= 7;
+    total %= 5;
+    return total + (3 - 2) * (5 + 8) - 1;
+  }
+}
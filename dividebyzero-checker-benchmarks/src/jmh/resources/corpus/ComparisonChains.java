@@ -0,0 +1,40 @@
+// Long if/else-if chains over integer codes, to exercise implementComparison.
+class ComparisonChains {
+  int decode(int code, int base) {
+    int scale;
+    if (code == 0) {
+      scale = 1;
+    } else if (code == 1) {
+      scale = 10;
+    } else if (code == 2) {
+      scale = 100;
+    } else if (code == 3) {
+      scale = 1000;
+    } else if (code < 0) {
+      scale = -1;
+    } else if (code > 100) {
+      scale = 7;
+    } else if (code != 42) {
+      scale = 3;
+    } else {
+      scale = 2;
+    }
+    if (base != 0) {
+      return code / base * scale;
+    }
+    return scale;
+  }
+
+  long bucket(long value, long size, int shards) {
+    if (size <= 0 || shards <= 0) {
+      return -1;
+    }
+    if (value < 0) {
+      value = -value;
+    }
+    if (value >= size) {
+      return value % size % shards;
+    }
+    return value / shards;
+  }
+}
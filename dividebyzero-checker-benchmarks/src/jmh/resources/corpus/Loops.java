@@ -0,0 +1,26 @@
+// Nested loops over int and long counters, which make the analysis iterate to a fixpoint.
+class Loops {
+  int sumOfQuotients(int n) {
+    int total = 0;
+    for (int i = 1; i < n; i++) {
+      for (int j = 1; j <= i; j++) {
+        total += i / j;
+      }
+    }
+    return total;
+  }
+
+  long countdown(long start, int step) {
+    long acc = 0;
+    long k = start;
+    while (k > 0) {
+      int inner = 3;
+      do {
+        acc += k % inner;
+        inner--;
+      } while (inner > 0);
+      k -= step;
+    }
+    return acc;
+  }
+}
@@ -0,0 +1,96 @@
+package org.checkerframework.checker.dividebyzero.scalability;
+
+import com.sun.source.util.JavacTask;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+
+/**
+ * Checks one generated corpus in this JVM and prints one line: the wall-clock time of the check in
+ * milliseconds, the peak heap use in bytes, and the number of checker errors. {@link
+ * ScalabilityBenchmark} runs it in a fresh JVM for every measurement, so that one measurement's
+ * warm JIT and heap do not flatter the next.
+ *
+ * <p>Peak heap use is sampled every millisecond during the check, so it includes garbage that has
+ * not been collected yet, as the heap limit a build needs would.
+ */
+public final class CheckOnce {
+
+  private CheckOnce() {
+    throw new AssertionError("do not instantiate");
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(Paths.get(args[0]))) {
+      files =
+          walk.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+    }
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager =
+        javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+    Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjectsFromPaths(files);
+    List<String> options =
+        List.of(
+            "-proc:only",
+            "-classpath",
+            System.getProperty("java.class.path"),
+            "-Xmaxerrs",
+            String.valueOf(Integer.MAX_VALUE));
+    AtomicLong errors = new AtomicLong();
+    JavacTask task =
+        (JavacTask)
+            javac.getTask(
+                null,
+                fileManager,
+                d -> {
+                  if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.incrementAndGet();
+                  }
+                },
+                options,
+                null,
+                sources);
+    task.setProcessors(List.of(new DivByZeroChecker()));
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    AtomicLong peak = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+    Thread sampler =
+        new Thread(
+            () -> {
+              while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                  Thread.sleep(1);
+                } catch (InterruptedException e) {
+                  return;
+                }
+              }
+            });
+    sampler.setDaemon(true);
+    sampler.start();
+
+    long start = System.nanoTime();
+    task.call();
+    long millis = (System.nanoTime() - start) / 1_000_000;
+
+    sampler.interrupt();
+    sampler.join();
+    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    System.out.println(millis + " " + peak.get() + " " + errors.get());
+  }
+}
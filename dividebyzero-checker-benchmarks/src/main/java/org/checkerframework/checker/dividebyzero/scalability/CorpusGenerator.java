@@ -0,0 +1,343 @@
+package org.checkerframework.checker.dividebyzero.scalability;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Java sources for measuring how the Divide By Zero Checker scales. The shape of the
+ * generated methods is controlled along the axes of {@link Axis}; every other choice, such as which
+ * locals a statement uses, is made by a seeded random number generator, so the same shape and seed
+ * always produce the same files.
+ *
+ * <p>Each method declares its locals, alternately {@code int} and {@code long}, and then repeats a
+ * segment until it has {@link Axis#METHOD_LENGTH} statements: {@link Axis#LOOP_DEPTH} nested
+ * {@code for} loops around {@link Axis#IF_DEPTH} nested {@code if} statements, each with a
+ * one-statement {@code else}, around up to eight assignments. An assignment divides or takes a
+ * remainder with probability {@link Axis#DIVISION_PERCENT}, and half of those are guarded by a
+ * comparison of the divisor with zero; the others add, subtract or multiply.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * ./gradlew :dividebyzero-checker-benchmarks:generateCorpus -PcorpusArgs="[--methodLength N] \
+ *     [--ifDepth N] [--loopDepth N] [--locals N] [--divisionPercent N] \
+ *     [--classes N] [--methods N] [--seed N] OUTPUT_DIR"
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+  /** A dimension along which the generated code can grow. */
+  public enum Axis {
+    /** The number of statements in a method, not counting those in {@code else} branches. */
+    METHOD_LENGTH("methodLength", 40),
+    /** How deeply {@code if} statements are nested. */
+    IF_DEPTH("ifDepth", 2),
+    /** How deeply {@code for} loops are nested. */
+    LOOP_DEPTH("loopDepth", 1),
+    /** The number of {@code int} and {@code long} locals of a method. */
+    LOCALS("locals", 8),
+    /** The percentage of assignments that use {@code /} or {@code %}. */
+    DIVISION_PERCENT("divisionPercent", 10);
+
+    /** The name of the axis, as an option and in reports. */
+    public final String option;
+
+    /** The value of the axis when it is not being varied. */
+    public final int defaultValue;
+
+    Axis(String option, int defaultValue) {
+      this.option = option;
+      this.defaultValue = defaultValue;
+    }
+
+    /** Returns the axis with the given option name. */
+    public static Axis forOption(String option) {
+      for (Axis axis : values()) {
+        if (axis.option.equals(option)) {
+          return axis;
+        }
+      }
+      throw new IllegalArgumentException("Unknown axis " + option);
+    }
+  }
+
+  /** A value for every axis. Immutable. */
+  public static final class Shape {
+
+    /** The value of each axis, indexed by ordinal. */
+    private final int[] values;
+
+    private Shape(int[] values) {
+      this.values = values;
+    }
+
+    /** Returns the shape with every axis at its default value. */
+    public static Shape defaults() {
+      int[] values = new int[Axis.values().length];
+      for (Axis axis : Axis.values()) {
+        values[axis.ordinal()] = axis.defaultValue;
+      }
+      return new Shape(values);
+    }
+
+    /** Returns the value of an axis. */
+    public int get(Axis axis) {
+      return values[axis.ordinal()];
+    }
+
+    /** Returns a copy of this shape with one axis changed. */
+    public Shape with(Axis axis, int value) {
+      if (value < 0
+          || (axis == Axis.LOCALS && value < 1)
+          || (axis == Axis.DIVISION_PERCENT && value > 100)) {
+        throw new IllegalArgumentException("Bad value for " + axis.option + ": " + value);
+      }
+      int[] copy = Arrays.copyOf(values, values.length);
+      copy[axis.ordinal()] = value;
+      return new Shape(copy);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (Axis axis : Axis.values()) {
+        result.append(result.length() == 0 ? "" : ",").append(axis.option).append('=');
+        result.append(get(axis));
+      }
+      return result.toString();
+    }
+  }
+
+  /** The most assignments in the innermost block of a segment. */
+  private static final int SEGMENT_LENGTH = 8;
+
+  /** The arithmetic operators that cannot divide by zero. */
+  private static final String[] ARITHMETIC = {"+", "-", "*"};
+
+  /** The comparisons of conditions, between a local and either a local or zero. */
+  private static final String[] COMPARISONS = {">", ">=", "<", "<=", "==", "!="};
+
+  /** The shape of the generated code. */
+  private final Shape shape;
+
+  /** Makes every choice that the shape leaves open. */
+  private final Random random;
+
+  /** The code of the file being generated. */
+  private final StringBuilder out = new StringBuilder();
+
+  /** The current indentation, in spaces. */
+  private int indent;
+
+  /** The number of loop counters declared so far in the current method. */
+  private int counters;
+
+  private CorpusGenerator(Shape shape, long seed) {
+    this.shape = shape;
+    this.random = new Random(seed);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Shape shape = Shape.defaults();
+    int classes = 10;
+    int methods = 10;
+    long seed = 0;
+    Path output = null;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--classes") && i + 1 < args.length) {
+        classes = Integer.parseInt(args[++i]);
+      } else if (arg.equals("--methods") && i + 1 < args.length) {
+        methods = Integer.parseInt(args[++i]);
+      } else if (arg.equals("--seed") && i + 1 < args.length) {
+        seed = Long.parseLong(args[++i]);
+      } else if (arg.startsWith("--") && i + 1 < args.length) {
+        shape = shape.with(Axis.forOption(arg.substring(2)), Integer.parseInt(args[++i]));
+      } else if (arg.startsWith("-")) {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      } else {
+        output = Paths.get(arg);
+      }
+    }
+    if (output == null) {
+      throw new IllegalArgumentException("Usage: CorpusGenerator [--<axis> N]... OUTPUT_DIR");
+    }
+    List<Path> files = generate(shape, classes, methods, seed, output);
+    System.err.printf("Wrote %d files (%s) to %s%n", files.size(), shape, output);
+  }
+
+  /**
+   * Generate a corpus. The files are written to the package {@code gen} under the output directory,
+   * which is not cleared first.
+   *
+   * @param shape the shape of the methods
+   * @param classes the number of classes, one per file
+   * @param methods the number of methods of each class
+   * @param seed the seed for every choice that the shape leaves open
+   * @param output the source root to write to
+   * @return the files written
+   * @throws IOException if a file cannot be written
+   */
+  public static List<Path> generate(Shape shape, int classes, int methods, long seed, Path output)
+      throws IOException {
+    Path dir = output.resolve("gen");
+    Files.createDirectories(dir);
+    List<Path> files = new ArrayList<>();
+    for (int c = 0; c < classes; c++) {
+      CorpusGenerator generator = new CorpusGenerator(shape, seed * 31 + c);
+      String name = "Gen" + c;
+      generator.generateClass(name, methods);
+      Path file = dir.resolve(name + ".java");
+      Files.write(file, generator.out.toString().getBytes(StandardCharsets.UTF_8));
+      files.add(file);
+    }
+    return files;
+  }
+
+  private void generateClass(String name, int methods) {
+    line("package gen;");
+    line("");
+    line("public class " + name + " {");
+    indent += 2;
+    for (int m = 0; m < methods; m++) {
+      if (m > 0) {
+        line("");
+      }
+      generateMethod("m" + m);
+    }
+    indent -= 2;
+    line("}");
+  }
+
+  private void generateMethod(String name) {
+    int locals = shape.get(Axis.LOCALS);
+    counters = 0;
+    line("static long " + name + "(int p0, long p1) {");
+    indent += 2;
+    for (int i = 0; i < locals; i++) {
+      String init;
+      switch (random.nextInt(3)) {
+        case 0:
+          init = Integer.toString(random.nextInt(7) - 2);
+          break;
+        case 1:
+          init = "p0";
+          break;
+        default:
+          init = isInt(i) ? "p0 - " + (1 + random.nextInt(3)) : "p1";
+          break;
+      }
+      line((isInt(i) ? "int " : "long ") + local(i) + " = " + init + ";");
+    }
+    int remaining = shape.get(Axis.METHOD_LENGTH);
+    while (remaining > 0) {
+      int length = Math.min(remaining, SEGMENT_LENGTH);
+      generateSegment(length);
+      remaining -= length;
+    }
+    StringBuilder sum = new StringBuilder("0L");
+    for (int i = 0; i < locals; i++) {
+      sum.append(" + ").append(local(i));
+    }
+    line("return " + sum + ";");
+    indent -= 2;
+    line("}");
+  }
+
+  /** Generate nested loops and ifs around some assignments. */
+  private void generateSegment(int length) {
+    int loops = shape.get(Axis.LOOP_DEPTH);
+    int ifs = shape.get(Axis.IF_DEPTH);
+    for (int i = 0; i < loops; i++) {
+      String counter = "k" + counters++;
+      String bound = intLocal();
+      line("for (int " + counter + " = 0; " + counter + " < " + bound + "; " + counter + "++) {");
+      indent += 2;
+    }
+    for (int i = 0; i < ifs; i++) {
+      line("if (" + condition() + ") {");
+      indent += 2;
+    }
+    for (int i = 0; i < length; i++) {
+      generateAssignment();
+    }
+    for (int i = 0; i < ifs; i++) {
+      indent -= 2;
+      line("} else {");
+      indent += 2;
+      generateAssignment();
+      indent -= 2;
+      line("}");
+    }
+    for (int i = 0; i < loops; i++) {
+      indent -= 2;
+      line("}");
+    }
+  }
+
+  private void generateAssignment() {
+    int target = random.nextInt(shape.get(Axis.LOCALS));
+    String left = operand(target);
+    String right = operand(target);
+    if (random.nextInt(100) < shape.get(Axis.DIVISION_PERCENT)) {
+      String operator = random.nextBoolean() ? "/" : "%";
+      if (random.nextBoolean()) {
+        line("if (" + right + " != 0) {");
+        indent += 2;
+        line(local(target) + " = " + left + " " + operator + " " + right + ";");
+        indent -= 2;
+        line("}");
+      } else {
+        line(local(target) + " = " + left + " " + operator + " " + right + ";");
+      }
+    } else if (random.nextInt(8) == 0) {
+      line(local(target) + " = " + (random.nextInt(7) - 2) + ";");
+    } else {
+      String operator = ARITHMETIC[random.nextInt(ARITHMETIC.length)];
+      line(local(target) + " = " + left + " " + operator + " " + right + ";");
+    }
+  }
+
+  /** A comparison of a local with another local or with zero. */
+  private String condition() {
+    String left = local(random.nextInt(shape.get(Axis.LOCALS)));
+    String right = random.nextBoolean() ? "0" : local(random.nextInt(shape.get(Axis.LOCALS)));
+    return left + " " + COMPARISONS[random.nextInt(COMPARISONS.length)] + " " + right;
+  }
+
+  /** A local that can be assigned to the given local: any local for a long, an int for an int. */
+  private String operand(int target) {
+    return isInt(target) ? intLocal() : local(random.nextInt(shape.get(Axis.LOCALS)));
+  }
+
+  /** A random int local. */
+  private String intLocal() {
+    int ints = (shape.get(Axis.LOCALS) + 1) / 2;
+    return local(2 * random.nextInt(ints));
+  }
+
+  /** Whether the local with the given index is an int; the others are longs. */
+  private static boolean isInt(int index) {
+    return index % 2 == 0;
+  }
+
+  private static String local(int index) {
+    return "v" + index;
+  }
+
+  private void line(String code) {
+    if (!code.isEmpty()) {
+      for (int i = 0; i < indent; i++) {
+        out.append(' ');
+      }
+    }
+    out.append(code).append('\n');
+  }
+}
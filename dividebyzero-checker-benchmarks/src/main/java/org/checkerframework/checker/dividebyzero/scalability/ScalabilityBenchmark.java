@@ -0,0 +1,255 @@
+package org.checkerframework.checker.dividebyzero.scalability;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.checker.dividebyzero.scalability.CorpusGenerator.Axis;
+import org.checkerframework.checker.dividebyzero.scalability.CorpusGenerator.Shape;
+
+/**
+ * Measures how the time and peak heap of a whole check grow along each axis of {@link
+ * CorpusGenerator}. For every value of every swept axis, with the other axes at their defaults, it
+ * generates a corpus and checks it several times, each time in a fresh JVM (see {@link CheckOnce}).
+ *
+ * <p>It writes {@code scalability.csv}, with one row per point, and for every axis an SVG chart of
+ * the median time and the largest peak heap against the axis. It also prints, for every axis, the
+ * slope of log time against log value over the sweep: about 1 means linear growth, and clearly more
+ * than 1 points at superlinear behavior worth a profile.
+ *
+ * <p>Run it with {@code ./gradlew :dividebyzero-checker-benchmarks:scalability}. Options, passed
+ * with {@code -PscalabilityArgs="..."}:
+ *
+ * <ul>
+ *   <li>{@code --out DIR}: where to write the corpora and results
+ *   <li>{@code --reps N}: how many times to check each corpus (default 3)
+ *   <li>{@code --classes N}, {@code --methods N}: the size of each corpus (default 10 classes of 10
+ *       methods)
+ *   <li>{@code --sweep AXIS=V1,V2,...}: the values of an axis to measure; may be repeated. Without
+ *       it, every axis is swept over its default values.
+ *   <li>{@code -J<option>}: pass an option to every checking JVM, such as {@code -J-Xmx2g}
+ * </ul>
+ */
+public final class ScalabilityBenchmark {
+
+  /** The values of each axis when no {@code --sweep} is given. */
+  private static final Map<Axis, int[]> DEFAULT_SWEEPS = new EnumMap<>(Axis.class);
+
+  static {
+    DEFAULT_SWEEPS.put(Axis.METHOD_LENGTH, new int[] {10, 20, 40, 80, 160, 320});
+    DEFAULT_SWEEPS.put(Axis.IF_DEPTH, new int[] {0, 1, 2, 4, 6, 8});
+    DEFAULT_SWEEPS.put(Axis.LOOP_DEPTH, new int[] {0, 1, 2, 3, 4});
+    DEFAULT_SWEEPS.put(Axis.LOCALS, new int[] {2, 4, 8, 16, 32, 64});
+    DEFAULT_SWEEPS.put(Axis.DIVISION_PERCENT, new int[] {0, 5, 10, 25, 50});
+  }
+
+  private Path out = Paths.get("build", "results", "scalability");
+  private int reps = 3;
+  private int classes = 10;
+  private int methods = 10;
+  private final Map<Axis, int[]> sweeps = new EnumMap<>(Axis.class);
+  private final List<String> jvmOptions = new ArrayList<>();
+
+  private ScalabilityBenchmark() {}
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    ScalabilityBenchmark benchmark = new ScalabilityBenchmark();
+    benchmark.parseArguments(args);
+    benchmark.run();
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--out")) {
+        out = Paths.get(value(args, ++i, arg));
+      } else if (arg.equals("--reps")) {
+        reps = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("--classes")) {
+        classes = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("--methods")) {
+        methods = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("--sweep")) {
+        String[] sweep = value(args, ++i, arg).split("=", 2);
+        if (sweep.length != 2) {
+          throw new IllegalArgumentException("--sweep needs AXIS=V1,V2,...");
+        }
+        sweeps.put(
+            Axis.forOption(sweep[0]),
+            Arrays.stream(sweep[1].split(",")).mapToInt(Integer::parseInt).toArray());
+      } else if (arg.startsWith("-J")) {
+        jvmOptions.add(arg.substring(2));
+      } else {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      }
+    }
+    if (sweeps.isEmpty()) {
+      sweeps.putAll(DEFAULT_SWEEPS);
+    }
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(option + " requires an argument");
+    }
+    return args[i];
+  }
+
+  private void run() throws IOException, InterruptedException {
+    Files.createDirectories(out);
+    Path csv = out.resolve("scalability.csv");
+    try (PrintWriter report =
+        new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+      report.println("axis,value,shape,reps,median_ms,min_ms,peak_heap_mb,errors");
+      for (Map.Entry<Axis, int[]> sweep : sweeps.entrySet()) {
+        Axis axis = sweep.getKey();
+        int[] values = sweep.getValue();
+        double[] x = new double[values.length];
+        double[] time = new double[values.length];
+        double[] heap = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+          Shape shape = Shape.defaults().with(axis, values[i]);
+          Path corpus = out.resolve("corpus").resolve(axis.option + "-" + values[i]);
+          deleteRecursively(corpus);
+          CorpusGenerator.generate(shape, classes, methods, 0, corpus);
+          Point point = measure(corpus);
+          x[i] = values[i];
+          time[i] = point.medianMillis;
+          heap[i] = point.peakHeapBytes / (1024.0 * 1024.0);
+          report.printf(
+              Locale.ROOT,
+              "%s,%d,\"%s\",%d,%d,%d,%.1f,%d%n",
+              axis.option,
+              values[i],
+              shape,
+              reps,
+              point.medianMillis,
+              point.minMillis,
+              heap[i],
+              point.errors);
+          report.flush();
+          System.err.printf(
+              Locale.ROOT,
+              "%s=%d: %d ms, %.1f MB, %d errors%n",
+              axis.option,
+              values[i],
+              point.medianMillis,
+              heap[i],
+              point.errors);
+        }
+        String svg =
+            SvgChart.render(
+                List.of(
+                    new SvgChart.Series("Check time", axis.option, "median time (ms)", x, time),
+                    new SvgChart.Series("Peak heap", axis.option, "peak heap (MB)", x, heap)));
+        Files.write(out.resolve(axis.option + ".svg"), svg.getBytes(StandardCharsets.UTF_8));
+        double slope = slope(x, time);
+        if (Double.isNaN(slope)) {
+          System.out.printf("%s: too few nonzero values to estimate growth%n", axis.option);
+        } else {
+          System.out.printf(
+              Locale.ROOT, "%s: time grows as %s^%.2f%n", axis.option, axis.option, slope);
+        }
+      }
+    }
+    System.out.println("Wrote " + csv + " and one SVG chart per axis to " + out);
+  }
+
+  /** The results of checking one corpus several times. */
+  private static final class Point {
+    long medianMillis;
+    long minMillis;
+    long peakHeapBytes;
+    long errors;
+  }
+
+  /** Check a corpus {@link #reps} times, each in a fresh JVM. */
+  private Point measure(Path corpus) throws IOException, InterruptedException {
+    long[] millis = new long[reps];
+    Point point = new Point();
+    for (int r = 0; r < reps; r++) {
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      // The checking JVM needs the same access to javac's internals as this one.
+      for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+        if (option.startsWith("--add-exports") || option.startsWith("--add-opens")) {
+          command.add(option);
+        }
+      }
+      command.addAll(jvmOptions);
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(CheckOnce.class.getName());
+      command.add(corpus.toString());
+      Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      if (process.waitFor() != 0) {
+        throw new IOException("Checking " + corpus + " failed:\n" + output);
+      }
+      String[] lines = output.trim().split("\n");
+      String[] fields = lines[lines.length - 1].trim().split(" ");
+      millis[r] = Long.parseLong(fields[0]);
+      point.peakHeapBytes = Math.max(point.peakHeapBytes, Long.parseLong(fields[1]));
+      point.errors = Long.parseLong(fields[2]);
+    }
+    Arrays.sort(millis);
+    point.medianMillis = millis[reps / 2];
+    point.minMillis = millis[0];
+    return point;
+  }
+
+  /**
+   * The least-squares slope of log y against log x, over the points where both are positive, or NaN
+   * if there are fewer than two.
+   */
+  static double slope(double[] x, double[] y) {
+    List<double[]> points = new ArrayList<>();
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] > 0 && y[i] > 0) {
+        points.add(new double[] {Math.log(x[i]), Math.log(y[i])});
+      }
+    }
+    if (points.size() < 2) {
+      return Double.NaN;
+    }
+    double meanX = 0;
+    double meanY = 0;
+    for (double[] p : points) {
+      meanX += p[0] / points.size();
+      meanY += p[1] / points.size();
+    }
+    double covariance = 0;
+    double variance = 0;
+    for (double[] p : points) {
+      covariance += (p[0] - meanX) * (p[1] - meanY);
+      variance += (p[0] - meanX) * (p[0] - meanX);
+    }
+    return variance == 0 ? Double.NaN : covariance / variance;
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(dir)) {
+      // Children sort after their parents, so delete in reverse order.
+      paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package org.checkerframework.checker.dividebyzero.scalability;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A minimal line chart in SVG, so that the benchmark needs no plotting library. Each chart has one
+ * series, drawn on linear axes that start at zero.
+ */
+final class SvgChart {
+
+  /** The size of one chart, in pixels. */
+  private static final int WIDTH = 420;
+
+  private static final int HEIGHT = 300;
+
+  /** The space around the plot area, for labels. */
+  private static final int MARGIN_LEFT = 70;
+
+  private static final int MARGIN_RIGHT = 20;
+
+  private static final int MARGIN_TOP = 30;
+
+  private static final int MARGIN_BOTTOM = 45;
+
+  /** The number of intervals on the y axis. */
+  private static final int Y_TICKS = 5;
+
+  private SvgChart() {
+    throw new AssertionError("do not instantiate");
+  }
+
+  /** One chart: a title, axis labels and the points of a series. */
+  static final class Series {
+    final String title;
+    final String xLabel;
+    final String yLabel;
+    final double[] x;
+    final double[] y;
+
+    Series(String title, String xLabel, String yLabel, double[] x, double[] y) {
+      this.title = title;
+      this.xLabel = xLabel;
+      this.yLabel = yLabel;
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  /**
+   * Render charts side by side in one SVG document.
+   *
+   * @param charts the charts, left to right
+   * @return the SVG document
+   */
+  static String render(List<Series> charts) {
+    StringBuilder svg = new StringBuilder();
+    svg.append(
+        format(
+            "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\""
+                + " font-family=\"sans-serif\" font-size=\"11\">%n",
+            WIDTH * charts.size(),
+            HEIGHT));
+    svg.append(format("<rect width=\"100%%\" height=\"100%%\" fill=\"white\"/>%n"));
+    for (int i = 0; i < charts.size(); i++) {
+      svg.append(format("<g transform=\"translate(%d,0)\">%n", i * WIDTH));
+      renderChart(charts.get(i), svg);
+      svg.append("</g>\n");
+    }
+    return svg.append("</svg>\n").toString();
+  }
+
+  private static void renderChart(Series series, StringBuilder svg) {
+    int left = MARGIN_LEFT;
+    int right = WIDTH - MARGIN_RIGHT;
+    int top = MARGIN_TOP;
+    int bottom = HEIGHT - MARGIN_BOTTOM;
+    double xMin = min(series.x);
+    double xMax = Math.max(max(series.x), xMin + 1);
+    double yMax = niceCeiling(max(series.y));
+
+    svg.append(
+        format(
+            "<text x=\"%d\" y=\"18\" text-anchor=\"middle\" font-size=\"13\">%s</text>%n",
+            (left + right) / 2, escape(series.title)));
+    svg.append(
+        format(
+            "<path d=\"M%d %d V%d H%d\" fill=\"none\" stroke=\"black\"/>%n",
+            left, top, bottom, right));
+
+    for (int i = 0; i <= Y_TICKS; i++) {
+      double value = yMax * i / Y_TICKS;
+      double y = bottom - (bottom - top) * (value / yMax);
+      svg.append(
+          format(
+              "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"#ddd\"/>%n",
+              left, y, right, y));
+      svg.append(
+          format(
+              "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>%n",
+              left - 5, y + 4, label(value)));
+    }
+    for (double value : series.x) {
+      double x = left + (right - left) * (value - xMin) / (xMax - xMin);
+      svg.append(
+          format(
+              "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%s</text>%n",
+              x, bottom + 15, label(value)));
+    }
+    svg.append(
+        format(
+            "<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">%s</text>%n",
+            (left + right) / 2, HEIGHT - 8, escape(series.xLabel)));
+    svg.append(
+        format(
+            "<text transform=\"translate(14,%d) rotate(-90)\" text-anchor=\"middle\">%s</text>%n",
+            (top + bottom) / 2, escape(series.yLabel)));
+
+    StringBuilder points = new StringBuilder();
+    for (int i = 0; i < series.x.length; i++) {
+      double x = left + (right - left) * (series.x[i] - xMin) / (xMax - xMin);
+      double y = bottom - (bottom - top) * (series.y[i] / yMax);
+      points.append(format("%.1f,%.1f ", x, y));
+      svg.append(format("<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"#1f77b4\"/>%n", x, y));
+    }
+    svg.append(
+        format(
+            "<polyline points=\"%s\" fill=\"none\" stroke=\"#1f77b4\" stroke-width=\"2\"/>%n",
+            points.toString().trim()));
+  }
+
+  /** The smallest of 1, 2 or 5 times a power of ten that is at least the given value. */
+  private static double niceCeiling(double value) {
+    if (value <= 0) {
+      return 1;
+    }
+    double power = Math.pow(10, Math.floor(Math.log10(value)));
+    for (double step : new double[] {1, 2, 5, 10}) {
+      if (step * power >= value) {
+        return step * power;
+      }
+    }
+    return 10 * power;
+  }
+
+  private static String label(double value) {
+    return value == Math.rint(value) ? format("%d", (long) value) : format("%.1f", value);
+  }
+
+  private static double min(double[] values) {
+    double result = Double.POSITIVE_INFINITY;
+    for (double v : values) {
+      result = Math.min(result, v);
+    }
+    return values.length == 0 ? 0 : result;
+  }
+
+  private static double max(double[] values) {
+    double result = Double.NEGATIVE_INFINITY;
+    for (double v : values) {
+      result = Math.max(result, v);
+    }
+    return values.length == 0 ? 0 : result;
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+
+  private static String format(String format, Object... args) {
+    return String.format(Locale.ROOT, format, args);
+  }
+}
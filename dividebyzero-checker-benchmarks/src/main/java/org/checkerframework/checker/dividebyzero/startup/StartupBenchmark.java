@@ -0,0 +1,182 @@
+package org.checkerframework.checker.dividebyzero.startup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures the cold-start time of the checker with and without the class-data-sharing archive of
+ * the startup-optimized bundle ({@code ./gradlew cdsArchive}). It checks a few small files many
+ * times with the bundle's launcher, each time in a fresh JVM, alternating between runs that use the
+ * archive and runs that ignore it ({@code DBZ_CDS=false}), so that both see the same machine load
+ * and file system cache. It prints the median and minimum wall-clock time of each, and how much
+ * faster the runs with the archive were.
+ *
+ * <p>Run it with {@code ./gradlew :dividebyzero-checker-benchmarks:startup}. Options, passed with
+ * {@code -PstartupArgs="..."}:
+ *
+ * <ul>
+ *   <li>{@code --bundle DIR}: the staged bundle (default {@code ../build/dbz-bundle})
+ *   <li>{@code --reps N}: how many times to check the files each way (default 10)
+ *   <li>{@code FILE_OR_DIRECTORY...}: the Java files to check (default: the JMH corpus)
+ * </ul>
+ *
+ * <p>The files are checked with {@code -proc:only}, so the time is that of starting the JVM,
+ * javac and the checker, and of checking, but not of writing class files. Before measuring, it
+ * makes sure that the JVM can map the archive at all, since a JVM other than the one that created
+ * it would ignore it silently.
+ */
+public final class StartupBenchmark {
+
+  private Path bundle = Paths.get("..", "build", "dbz-bundle");
+  private int reps = 10;
+  private final List<Path> inputs = new ArrayList<>();
+
+  private StartupBenchmark() {}
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    StartupBenchmark benchmark = new StartupBenchmark();
+    benchmark.parseArguments(args);
+    benchmark.run();
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--bundle")) {
+        bundle = Paths.get(value(args, ++i, arg));
+      } else if (arg.equals("--reps")) {
+        reps = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.startsWith("-")) {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      } else {
+        inputs.add(Paths.get(arg));
+      }
+    }
+    if (inputs.isEmpty()) {
+      inputs.add(Paths.get("src", "jmh", "resources", "corpus"));
+    }
+    if (reps < 1) {
+      throw new IllegalArgumentException("--reps must be positive");
+    }
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(option + " requires an argument");
+    }
+    return args[i];
+  }
+
+  private void run() throws IOException, InterruptedException {
+    Path launcher = bundle.resolve("bin").resolve("dbz-javac");
+    if (!Files.isRegularFile(bundle.resolve("lib").resolve("dbz.jsa"))) {
+      throw new IOException("No archive in " + bundle + "; run ./gradlew cdsArchive first");
+    }
+    Result probe = launch(launcher, List.of("-version"), "-Xshare:on", null);
+    if (probe.exitStatus != 0) {
+      throw new IOException(
+          "This JVM cannot map the archive; recreate it with the JDK that runs the checker:\n"
+              + probe.output);
+    }
+
+    List<String> arguments = new ArrayList<>();
+    arguments.add("-proc:only");
+    arguments.addAll(javaFiles());
+    // Warm the file system cache, so that the first measured run is not the only cold one.
+    launch(launcher, arguments, null, "false");
+    launch(launcher, arguments, null, null);
+
+    long[] without = new long[reps];
+    long[] with = new long[reps];
+    for (int r = 0; r < reps; r++) {
+      without[r] = launch(launcher, arguments, null, "false").millis;
+      with[r] = launch(launcher, arguments, null, null).millis;
+      System.err.printf(
+          "run %d: %d ms without the archive, %d ms with it%n", r + 1, without[r], with[r]);
+    }
+    Arrays.sort(without);
+    Arrays.sort(with);
+    long medianWithout = without[reps / 2];
+    long medianWith = with[reps / 2];
+    System.out.printf(
+        Locale.ROOT, "without archive: median %d ms, min %d ms%n", medianWithout, without[0]);
+    System.out.printf(
+        Locale.ROOT, "with archive:    median %d ms, min %d ms%n", medianWith, with[0]);
+    System.out.printf(
+        Locale.ROOT,
+        "the archive saves %d ms (%.0f%%) of the median run%n",
+        medianWithout - medianWith,
+        100.0 * (medianWithout - medianWith) / medianWithout);
+  }
+
+  /** The Java files under the inputs, in order. */
+  private List<String> javaFiles() throws IOException {
+    List<String> files = new ArrayList<>();
+    for (Path input : inputs) {
+      try (Stream<Path> walk = Files.walk(input)) {
+        files.addAll(
+            walk.filter(p -> p.toString().endsWith(".java"))
+                .map(Path::toString)
+                .sorted()
+                .collect(Collectors.toList()));
+      }
+    }
+    if (files.isEmpty()) {
+      throw new IOException("No Java files in " + inputs);
+    }
+    return files;
+  }
+
+  /** The outcome of one run of the launcher. */
+  private static final class Result {
+    long millis;
+    int exitStatus;
+    String output;
+  }
+
+  /**
+   * Run the launcher once and time it.
+   *
+   * @param launcher the bundle's launcher
+   * @param arguments the arguments to javac
+   * @param javaOptions the value of {@code DBZ_JAVA_OPTS}, or null
+   * @param cds the value of {@code DBZ_CDS}, or null to use the archive
+   * @return the wall-clock time, exit status and output of the run; the exit status of a check is
+   *     1 if it reported errors
+   */
+  private static Result launch(
+      Path launcher, List<String> arguments, String javaOptions, String cds)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(launcher.toString());
+    command.addAll(arguments);
+    ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+    builder.environment().remove("DBZ_JAVA_OPTS");
+    builder.environment().remove("DBZ_CDS");
+    if (javaOptions != null) {
+      builder.environment().put("DBZ_JAVA_OPTS", javaOptions);
+    }
+    if (cds != null) {
+      builder.environment().put("DBZ_CDS", cds);
+    }
+    Result result = new Result();
+    long start = System.nanoTime();
+    Process process = builder.start();
+    result.output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    result.exitStatus = process.waitFor();
+    result.millis = (System.nanoTime() - start) / 1_000_000;
+    if (result.exitStatus > 1) {
+      throw new IOException("Checking failed:\n" + result.output);
+    }
+    return result;
+  }
+}
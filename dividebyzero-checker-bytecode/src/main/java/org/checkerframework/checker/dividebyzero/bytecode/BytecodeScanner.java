@@ -0,0 +1,319 @@
+package org.checkerframework.checker.dividebyzero.bytecode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+/**
+ * Reports the int and long divisions and remainders in class files whose divisor may be zero, for
+ * dependencies whose sources cannot be checked with the Divide By Zero Checker. The analysis of
+ * each method is described in {@link MethodScanner}; it uses the checker's lattice and refines
+ * comparisons as the checker does, but it knows nothing about the fields and methods the code uses,
+ * so it reports more than the checker would for the same source.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * java -cp &lt;scanner classpath&gt; \
+ *     org.checkerframework.checker.dividebyzero.bytecode.BytecodeScanner \
+ *     [-j N] [-o REPORT] [--nomsgtext] JAR_OR_CLASS_DIRECTORY...
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code -j N}: how many classes to analyze at once (default: the number of processors)
+ *   <li>{@code -o REPORT}: write the report to a file instead of standard output
+ *   <li>{@code --nomsgtext}: print only the message key, as the checker does with {@code
+ *       -Anomsgtext}
+ * </ul>
+ *
+ * <p>The report has the format of {@link ReportedDiagnostic}, so it can be merged with the reports
+ * of source checks. A division is reported at the line of the class file's line number table, in
+ * the source file it names, within the jar or directory, such as {@code
+ * lib/foo.jar!/com/example/Foo.java:12:0}. Classes in {@code META-INF/versions} are skipped, as
+ * are classes that ASM cannot read.
+ *
+ * <p>One thread reads classes, from jars with {@link ZipFile} and from directories with a {@link
+ * FileChannel}, and the other threads parse and analyze them. At most a few classes per thread are
+ * read but not yet analyzed, and only the diagnostics of a class are kept after its analysis, so
+ * memory does not grow with the number of jars. The exit status is 0 if no division was reported,
+ * 1 if some were, and 2 if an input could not be read.
+ */
+public final class BytecodeScanner {
+
+  /** How many classes per thread may be read but not yet analyzed. */
+  private static final int CLASSES_IN_FLIGHT_PER_THREAD = 4;
+
+  /** The checker's messages, which are in the checker's jar. */
+  private static final String MESSAGES =
+      "org/checkerframework/checker/dividebyzero/messages.properties";
+
+  /** The key of the diagnostic. */
+  private static final String MESSAGE_KEY = "divide.by.zero";
+
+  /** The text of the diagnostic, as the checker reports it; a format of the divisor's type. */
+  private static final String MESSAGE_FORMAT = messageFormat();
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private Path reportFile;
+  private boolean noMessageText;
+  private final List<Path> inputs = new ArrayList<>();
+
+  /** The diagnostics found so far. */
+  private final ConcurrentLinkedQueue<ReportedDiagnostic> diagnostics =
+      new ConcurrentLinkedQueue<>();
+
+  /** The number of classes analyzed. */
+  private final AtomicLong classCount = new AtomicLong();
+
+  /** The number of classes or methods that could not be analyzed. */
+  private final AtomicLong failureCount = new AtomicLong();
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    BytecodeScanner scanner = new BytecodeScanner();
+    try {
+      scanner.parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    }
+    System.exit(scanner.run());
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-j")) {
+        parallelism = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("-o")) {
+        reportFile = Paths.get(value(args, ++i, arg));
+      } else if (arg.equals("--nomsgtext")) {
+        noMessageText = true;
+      } else if (arg.startsWith("-")) {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      } else {
+        inputs.add(Paths.get(arg));
+      }
+    }
+    if (inputs.isEmpty() || parallelism < 1) {
+      throw new IllegalArgumentException(
+          "Usage: BytecodeScanner [-j N] [-o REPORT] [--nomsgtext] JAR_OR_CLASS_DIRECTORY...");
+    }
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(option + " requires an argument");
+    }
+    return args[i];
+  }
+
+  /**
+   * Scan every input and print the report.
+   *
+   * @return the exit status
+   */
+  private int run() throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    Semaphore inFlight = new Semaphore(parallelism * CLASSES_IN_FLIGHT_PER_THREAD);
+    boolean unreadable = false;
+    try {
+      for (Path input : inputs) {
+        try {
+          if (Files.isDirectory(input)) {
+            scanDirectory(input, pool, inFlight);
+          } else {
+            scanJar(input, pool, inFlight);
+          }
+        } catch (IOException e) {
+          System.err.println("Cannot read " + input + ": " + e.getMessage());
+          unreadable = true;
+        }
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    SortedSet<ReportedDiagnostic> sorted = new TreeSet<>(diagnostics);
+    System.err.printf(
+        "%d inputs, %d classes, %d diagnostics, %d not analyzed, %.1f s%n",
+        inputs.size(),
+        classCount.get(),
+        sorted.size(),
+        failureCount.get(),
+        (System.nanoTime() - start) / 1e9);
+    try (PrintStream out =
+        reportFile == null
+            ? new PrintStream(System.out, false, StandardCharsets.UTF_8)
+            : new PrintStream(Files.newOutputStream(reportFile), false, StandardCharsets.UTF_8)) {
+      for (ReportedDiagnostic d : sorted) {
+        out.println(d);
+      }
+    }
+    if (unreadable) {
+      return 2;
+    }
+    return sorted.isEmpty() ? 0 : 1;
+  }
+
+  /** Submit the classes of a jar. */
+  private void scanJar(Path jar, ExecutorService pool, Semaphore inFlight)
+      throws IOException, InterruptedException {
+    try (ZipFile zip = new ZipFile(jar.toFile())) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!isScanned(entry.getName()) || entry.isDirectory()) {
+          continue;
+        }
+        byte[] bytes;
+        try (InputStream in = zip.getInputStream(entry)) {
+          bytes = in.readAllBytes();
+        }
+        submit(jar + "!/", bytes, pool, inFlight);
+      }
+    }
+  }
+
+  /** Submit the classes under a directory. */
+  private void scanDirectory(Path root, ExecutorService pool, Semaphore inFlight)
+      throws IOException, InterruptedException {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(root)) {
+      files =
+          walk.filter(p -> isScanned(root.relativize(p).toString().replace('\\', '/')))
+              .sorted()
+              .collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      byte[] bytes;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+        bytes = buffer.array();
+      }
+      submit(root + "/", bytes, pool, inFlight);
+    }
+  }
+
+  /** Whether a jar entry or a file under a directory is a class to scan. */
+  private static boolean isScanned(String name) {
+    return name.endsWith(".class")
+        && !name.startsWith("META-INF/")
+        && !name.endsWith("module-info.class")
+        && !name.endsWith("package-info.class");
+  }
+
+  /** Analyze a class on the pool, once fewer classes than the limit are waiting. */
+  private void submit(String prefix, byte[] bytes, ExecutorService pool, Semaphore inFlight)
+      throws InterruptedException {
+    inFlight.acquire();
+    pool.execute(
+        () -> {
+          try {
+            scanClass(prefix, bytes);
+          } finally {
+            inFlight.release();
+          }
+        });
+  }
+
+  /**
+   * Analyze a class and record its diagnostics.
+   *
+   * @param prefix the jar or directory of the class, to be followed by the path of its source
+   * @param bytes the class file
+   */
+  private void scanClass(String prefix, byte[] bytes) {
+    ClassNode node = new ClassNode();
+    try {
+      new ClassReader(bytes).accept(node, ClassReader.SKIP_FRAMES);
+    } catch (RuntimeException e) {
+      // A class file version newer than ASM's, or a corrupt file.
+      failureCount.incrementAndGet();
+      return;
+    }
+    classCount.incrementAndGet();
+    String file = prefix + sourcePath(node);
+    for (MethodNode method : node.methods) {
+      List<MethodScanner.Division> divisions;
+      try {
+        divisions = MethodScanner.scan(node.name, method);
+      } catch (AnalyzerException | RuntimeException e) {
+        System.err.println(
+            "Cannot analyze " + node.name + "." + method.name + method.desc + ": " + e);
+        failureCount.incrementAndGet();
+        continue;
+      }
+      for (MethodScanner.Division division : divisions) {
+        String message = message(node, method, division);
+        diagnostics.add(new ReportedDiagnostic(file, division.line, 0, "error", message));
+      }
+    }
+  }
+
+  /** The path of the source file of a class, or of the class file if it names none. */
+  private static String sourcePath(ClassNode node) {
+    if (node.sourceFile == null) {
+      return node.name + ".class";
+    }
+    int slash = node.name.lastIndexOf('/');
+    return node.name.substring(0, slash + 1) + node.sourceFile;
+  }
+
+  /** The message of a diagnostic, which names the method and instruction, as lines may repeat. */
+  private String message(ClassNode node, MethodNode method, MethodScanner.Division division) {
+    String where =
+        " [in " + node.name.replace('/', '.') + "." + method.name + method.desc
+            + " at instruction " + division.index + "]";
+    if (noMessageText) {
+      return "(" + MESSAGE_KEY + ")" + where;
+    }
+    return "[" + MESSAGE_KEY + "] " + String.format(MESSAGE_FORMAT, division.divisorType()) + where;
+  }
+
+  /** Read the text of the diagnostic from the checker's messages. */
+  private static String messageFormat() {
+    Properties messages = new Properties();
+    try (InputStream in =
+        ReportedDiagnostic.class.getClassLoader().getResourceAsStream(MESSAGES)) {
+      if (in == null) {
+        throw new IllegalStateException("No " + MESSAGES + " on the classpath");
+      }
+      messages.load(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return messages.getProperty(MESSAGE_KEY);
+  }
+}
@@ -0,0 +1,507 @@
+package org.checkerframework.checker.dividebyzero.bytecode;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.SignDomain;
+import org.checkerframework.checker.dividebyzero.qual.Bottom;
+import org.checkerframework.checker.dividebyzero.qual.Negative;
+import org.checkerframework.checker.dividebyzero.qual.NonNegative;
+import org.checkerframework.checker.dividebyzero.qual.NonPositive;
+import org.checkerframework.checker.dividebyzero.qual.NonZero;
+import org.checkerframework.checker.dividebyzero.qual.Positive;
+import org.checkerframework.checker.dividebyzero.qual.Top;
+import org.checkerframework.checker.dividebyzero.qual.Zero;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypeReference;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeAnnotationNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+/**
+ * The bytecode analysis of one method. It is a forward dataflow analysis over the method's
+ * instructions, with a {@link Frame} of {@link SignValue}s before each instruction, computed by a
+ * worklist. It differs from ASM's {@code Analyzer} in one way that matters here: a conditional jump
+ * refines its operands differently on its two edges, as {@code DivByZeroTransfer} refines the
+ * operands of a comparison in its then and else stores, with the same {@link SignDomain} functions.
+ * An operand that was loaded from a local variable refines the variable, and an edge on which an
+ * operand has no possible sign is not taken.
+ *
+ * <p>Parameters have the signs of their qualifiers, if the class was compiled from annotated
+ * source, and unknown signs otherwise, as unannotated parameters are {@code @Top} in source. All
+ * other values that do not come from constants or arithmetic, such as fields and method results,
+ * have unknown signs.
+ *
+ * <p>Methods that use the subroutine instructions {@code JSR} and {@code RET}, which javac has not
+ * emitted since Java 6, are not analyzed.
+ */
+final class MethodScanner {
+
+  /** The qualifier for each set of signs, indexed by its bit mask, as in {@code SignQualifiers}. */
+  private static final List<Class<? extends Annotation>> QUALIFIERS =
+      List.of(
+          /* {}      */ Bottom.class,
+          /* {-}     */ Negative.class,
+          /* {0}     */ Zero.class,
+          /* {-,0}   */ NonPositive.class,
+          /* {+}     */ Positive.class,
+          /* {-,+}   */ NonZero.class,
+          /* {0,+}   */ NonNegative.class,
+          /* {-,0,+} */ Top.class);
+
+  /** A comparison of two values, as tested by a conditional jump. */
+  private enum Comparison {
+    EQ,
+    NE,
+    LT,
+    GE,
+    GT,
+    LE;
+
+    /** The comparison with its operands swapped. */
+    Comparison flip() {
+      switch (this) {
+        case LT:
+          return GT;
+        case GE:
+          return LE;
+        case GT:
+          return LT;
+        case LE:
+          return GE;
+        default:
+          return this;
+      }
+    }
+
+    /** The comparison that holds when this one does not. */
+    Comparison negate() {
+      return values()[ordinal() ^ 1];
+    }
+
+    /** The signs of the left operand, given that this comparison holds. */
+    int refineLeft(int left, int right) {
+      switch (this) {
+        case EQ:
+          return SignDomain.refineEqual(left, right);
+        case NE:
+          return SignDomain.refineNotEqual(left, right);
+        case LT:
+          return SignDomain.refineLessThan(left, right);
+        case GE:
+          return SignDomain.refineGreaterThanOrEqual(left, right);
+        case GT:
+          return SignDomain.refineGreaterThan(left, right);
+        case LE:
+          return SignDomain.refineLessThanOrEqual(left, right);
+        default:
+          throw new AssertionError(this);
+      }
+    }
+
+    /** The comparison tested by a conditional jump when it jumps, or null for other opcodes. */
+    static Comparison ofJump(int opcode) {
+      switch (opcode) {
+        case Opcodes.IFEQ:
+        case Opcodes.IF_ICMPEQ:
+          return EQ;
+        case Opcodes.IFNE:
+        case Opcodes.IF_ICMPNE:
+          return NE;
+        case Opcodes.IFLT:
+        case Opcodes.IF_ICMPLT:
+          return LT;
+        case Opcodes.IFGE:
+        case Opcodes.IF_ICMPGE:
+          return GE;
+        case Opcodes.IFGT:
+        case Opcodes.IF_ICMPGT:
+          return GT;
+        case Opcodes.IFLE:
+        case Opcodes.IF_ICMPLE:
+          return LE;
+        default:
+          return null;
+      }
+    }
+  }
+
+  /** A division or remainder whose divisor may be zero. */
+  static final class Division {
+
+    /** The line of the division, or 0 if the class has no line numbers. */
+    final int line;
+
+    /** The signs of the divisor. */
+    final int divisorSigns;
+
+    /** Whether the divisor is a long. */
+    final boolean isLong;
+
+    /** The offset of the instruction in the method's instruction list. */
+    final int index;
+
+    Division(int line, int divisorSigns, boolean isLong, int index) {
+      this.line = line;
+      this.divisorSigns = divisorSigns;
+      this.isLong = isLong;
+      this.index = index;
+    }
+
+    /** The type of the divisor as the checker prints it, such as {@code @NonNegative int}. */
+    String divisorType() {
+      return "@" + QUALIFIERS.get(divisorSigns).getSimpleName() + (isLong ? " long" : " int");
+    }
+  }
+
+  /** The transfer functions, which are stateless. */
+  private static final SignInterpreter INTERPRETER = new SignInterpreter();
+
+  /** The internal name of the method's class. */
+  private final String owner;
+
+  /** The method. */
+  private final MethodNode method;
+
+  /** The method's instructions. */
+  private final InsnList insns;
+
+  /** The frame before each instruction, or null while the instruction is not known reachable. */
+  private final Frame<BasicValue>[] frames;
+
+  /** The exception handlers that cover each instruction, or null if none do. */
+  private final List<TryCatchBlockNode>[] handlers;
+
+  /** The instructions whose frames have changed since they were last visited. */
+  private final Deque<Integer> worklist = new ArrayDeque<>();
+
+  /** Whether each instruction is on the worklist. */
+  private final boolean[] queued;
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  private MethodScanner(String owner, MethodNode method) {
+    this.owner = owner;
+    this.method = method;
+    this.insns = method.instructions;
+    this.frames = (Frame<BasicValue>[]) new Frame[insns.size()];
+    this.handlers = (List<TryCatchBlockNode>[]) new List[insns.size()];
+    this.queued = new boolean[insns.size()];
+  }
+
+  /**
+   * Analyze a method and return its divisions whose divisor may be zero.
+   *
+   * @param owner the internal name of the method's class
+   * @param method the method, read with its code and line numbers
+   * @return the divisions in instruction order, or the empty list if the method has no code or
+   *     uses subroutines
+   * @throws AnalyzerException if the method's code is invalid
+   */
+  static List<Division> scan(String owner, MethodNode method) throws AnalyzerException {
+    if (method.instructions.size() == 0 || !hasDivision(method.instructions)) {
+      return List.of();
+    }
+    for (AbstractInsnNode insn : method.instructions) {
+      if (insn.getOpcode() == Opcodes.JSR || insn.getOpcode() == Opcodes.RET) {
+        return List.of();
+      }
+    }
+    MethodScanner scanner = new MethodScanner(owner, method);
+    scanner.analyze();
+    return scanner.divisions();
+  }
+
+  /** Whether a method has a division to check at all, so most methods are never analyzed. */
+  private static boolean hasDivision(InsnList insns) {
+    for (AbstractInsnNode insn : insns) {
+      if (SignInterpreter.isDivision(insn.getOpcode())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Compute the frames of all reachable instructions. */
+  private void analyze() throws AnalyzerException {
+    for (TryCatchBlockNode block : method.tryCatchBlocks) {
+      int end = insns.indexOf(block.end);
+      for (int i = insns.indexOf(block.start); i < end; i++) {
+        if (handlers[i] == null) {
+          handlers[i] = new ArrayList<>();
+        }
+        handlers[i].add(block);
+      }
+    }
+    merge(0, entryFrame());
+    while (!worklist.isEmpty()) {
+      int index = worklist.remove();
+      queued[index] = false;
+      visit(index, frames[index]);
+    }
+  }
+
+  /** The frame on entry to the method. */
+  private Frame<BasicValue> entryFrame() {
+    Frame<BasicValue> frame = new Frame<>(method.maxLocals, method.maxStack);
+    Type methodType = Type.getMethodType(method.desc);
+    frame.setReturn(INTERPRETER.newReturnTypeValue(methodType.getReturnType()));
+    int local = 0;
+    if ((method.access & Opcodes.ACC_STATIC) == 0) {
+      frame.setLocal(local++, INTERPRETER.newValue(Type.getObjectType(owner)));
+    }
+    Type[] parameters = methodType.getArgumentTypes();
+    for (int i = 0; i < parameters.length; i++) {
+      BasicValue value = INTERPRETER.newValue(parameters[i]);
+      if (value instanceof SignValue) {
+        value = ((SignValue) value).withSigns(parameterSigns(i));
+      }
+      frame.setLocal(local++, value);
+      if (parameters[i].getSize() == 2) {
+        frame.setLocal(local++, BasicValue.UNINITIALIZED_VALUE);
+      }
+    }
+    while (local < method.maxLocals) {
+      frame.setLocal(local++, BasicValue.UNINITIALIZED_VALUE);
+    }
+    return frame;
+  }
+
+  /** The signs of a parameter, from the qualifier on its type if it has one. */
+  private int parameterSigns(int parameter) {
+    int signs = SignDomain.ANY;
+    for (List<TypeAnnotationNode> annotations :
+        List.of(
+            nonNull(method.invisibleTypeAnnotations), nonNull(method.visibleTypeAnnotations))) {
+      for (TypeAnnotationNode annotation : annotations) {
+        TypeReference reference = new TypeReference(annotation.typeRef);
+        if (reference.getSort() != TypeReference.METHOD_FORMAL_PARAMETER
+            || reference.getFormalParameterIndex() != parameter
+            || annotation.typePath != null) {
+          continue;
+        }
+        for (int s = SignDomain.NONE; s <= SignDomain.ANY; s++) {
+          if (annotation.desc.equals(Type.getDescriptor(QUALIFIERS.get(s)))) {
+            signs &= s;
+          }
+        }
+      }
+    }
+    return signs;
+  }
+
+  private static <T> List<T> nonNull(List<T> list) {
+    return list == null ? List.of() : list;
+  }
+
+  /** Propagate the frame before an instruction to the instruction's successors. */
+  private void visit(int index, Frame<BasicValue> before) throws AnalyzerException {
+    AbstractInsnNode insn = insns.get(index);
+    int type = insn.getType();
+    if (type == AbstractInsnNode.LABEL
+        || type == AbstractInsnNode.LINE
+        || type == AbstractInsnNode.FRAME) {
+      merge(index + 1, before);
+      return;
+    }
+    Frame<BasicValue> after = new Frame<>(before);
+    after.execute(insn, INTERPRETER);
+    if (insn instanceof VarInsnNode || insn instanceof IincInsnNode) {
+      int var = insn instanceof VarInsnNode ? ((VarInsnNode) insn).var : ((IincInsnNode) insn).var;
+      if (insn.getOpcode() >= Opcodes.ISTORE || insn instanceof IincInsnNode) {
+        forget(after, var);
+      }
+    }
+    if (handlers[index] != null) {
+      for (TryCatchBlockNode block : handlers[index]) {
+        String caughtType = block.type == null ? "java/lang/Throwable" : block.type;
+        Type exception = Type.getObjectType(caughtType);
+        int handler = insns.indexOf(block.handler);
+        for (Frame<BasicValue> frame : List.of(before, after)) {
+          Frame<BasicValue> caught = new Frame<>(frame);
+          caught.clearStack();
+          caught.push(INTERPRETER.newValue(exception));
+          merge(handler, caught);
+        }
+      }
+    }
+
+    int opcode = insn.getOpcode();
+    if (insn instanceof JumpInsnNode) {
+      int target = insns.indexOf(((JumpInsnNode) insn).label);
+      Comparison comparison = Comparison.ofJump(opcode);
+      if (comparison == null) {
+        // GOTO, or a comparison of references.
+        merge(target, after);
+        if (opcode != Opcodes.GOTO) {
+          merge(index + 1, after);
+        }
+      } else {
+        mergeIfFeasible(target, refine(before, after, opcode, comparison));
+        mergeIfFeasible(index + 1, refine(before, after, opcode, comparison.negate()));
+      }
+    } else if (insn instanceof TableSwitchInsnNode) {
+      TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+      merge(insns.indexOf(tableSwitch.dflt), after);
+      for (LabelNode label : tableSwitch.labels) {
+        merge(insns.indexOf(label), after);
+      }
+    } else if (insn instanceof LookupSwitchInsnNode) {
+      LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+      merge(insns.indexOf(lookupSwitch.dflt), after);
+      for (LabelNode label : lookupSwitch.labels) {
+        merge(insns.indexOf(label), after);
+      }
+    } else if (!(opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+        && opcode != Opcodes.ATHROW) {
+      merge(index + 1, after);
+    }
+  }
+
+  /**
+   * After a store to a local variable, the values on the stack that were loaded from it no longer
+   * equal it.
+   */
+  private static void forget(Frame<BasicValue> frame, int var) {
+    for (int i = 0; i < frame.getStackSize(); i++) {
+      BasicValue value = frame.getStack(i);
+      if (!(value instanceof SignValue)) {
+        continue;
+      }
+      SignValue signValue = (SignValue) value;
+      if (signValue.local == var) {
+        frame.setStack(i, signValue.withLocal(-1));
+      } else if (signValue.compareLeft != null
+          && (signValue.compareLeft.local == var || signValue.compareRight.local == var)) {
+        frame.setStack(i, signValue.withSigns(signValue.signs));
+      }
+    }
+  }
+
+  /**
+   * The frame after a conditional jump on one of its edges, given the comparison that holds on
+   * that edge.
+   *
+   * @param before the frame before the jump, with its operands on the stack
+   * @param after the frame after the jump, without them
+   * @param opcode the jump
+   * @param comparison the comparison that holds on the edge
+   * @return the refined frame, or null if the edge cannot be taken
+   */
+  private static Frame<BasicValue> refine(
+      Frame<BasicValue> before, Frame<BasicValue> after, int opcode, Comparison comparison) {
+    int top = before.getStackSize() - 1;
+    BasicValue left;
+    BasicValue right;
+    if (opcode >= Opcodes.IF_ICMPEQ) {
+      left = before.getStack(top - 1);
+      right = before.getStack(top);
+    } else {
+      left = before.getStack(top);
+      right = new SignValue(Type.INT_TYPE, SignDomain.ZERO);
+      if (left instanceof SignValue && ((SignValue) left).compareLeft != null) {
+        // LCMP followed by IFxx compares the operands of LCMP.
+        right = ((SignValue) left).compareRight;
+        left = ((SignValue) left).compareLeft;
+      }
+    }
+    if (!(left instanceof SignValue) || !(right instanceof SignValue)) {
+      return after;
+    }
+    SignValue l = (SignValue) left;
+    SignValue r = (SignValue) right;
+    int leftSigns = comparison.refineLeft(l.signs, r.signs);
+    int rightSigns = comparison.flip().refineLeft(r.signs, l.signs);
+    if (leftSigns == SignDomain.NONE || rightSigns == SignDomain.NONE) {
+      return null;
+    }
+    if (leftSigns == l.signs && rightSigns == r.signs) {
+      return after;
+    }
+    Frame<BasicValue> refined = new Frame<>(after);
+    refineLocal(refined, l.local, leftSigns);
+    refineLocal(refined, r.local, rightSigns);
+    return refined;
+  }
+
+  /** Refine a local variable, and the values on the stack that were loaded from it. */
+  private static void refineLocal(Frame<BasicValue> frame, int var, int signs) {
+    if (var < 0) {
+      return;
+    }
+    BasicValue value = frame.getLocal(var);
+    if (value instanceof SignValue) {
+      SignValue signValue = (SignValue) value;
+      frame.setLocal(var, signValue.withSigns(signValue.signs & signs));
+    }
+    for (int i = 0; i < frame.getStackSize(); i++) {
+      BasicValue onStack = frame.getStack(i);
+      if (onStack instanceof SignValue && ((SignValue) onStack).local == var) {
+        SignValue signValue = (SignValue) onStack;
+        frame.setStack(i, signValue.withSigns(signValue.signs & signs));
+      }
+    }
+  }
+
+  private void mergeIfFeasible(int index, Frame<BasicValue> frame) throws AnalyzerException {
+    if (frame != null) {
+      merge(index, frame);
+    }
+  }
+
+  /** Merge a frame into the frame before an instruction, and queue the instruction if it grew. */
+  private void merge(int index, Frame<BasicValue> frame) throws AnalyzerException {
+    if (index >= frames.length) {
+      throw new AnalyzerException(null, "Execution can fall off the end of the code");
+    }
+    boolean changed;
+    if (frames[index] == null) {
+      frames[index] = new Frame<>(frame);
+      changed = true;
+    } else {
+      changed = frames[index].merge(frame, INTERPRETER);
+    }
+    if (changed && !queued[index]) {
+      queued[index] = true;
+      worklist.add(index);
+    }
+  }
+
+  /** The reachable divisions whose divisor may be zero. */
+  private List<Division> divisions() {
+    List<Division> result = new ArrayList<>();
+    int line = 0;
+    for (int i = 0; i < frames.length; i++) {
+      AbstractInsnNode insn = insns.get(i);
+      if (insn instanceof LineNumberNode) {
+        line = ((LineNumberNode) insn).line;
+      }
+      if (frames[i] == null || !SignInterpreter.isDivision(insn.getOpcode())) {
+        continue;
+      }
+      Frame<BasicValue> frame = frames[i];
+      BasicValue divisor = frame.getStack(frame.getStackSize() - 1);
+      int signs = divisor instanceof SignValue ? ((SignValue) divisor).signs : SignDomain.ANY;
+      if (SignDomain.mayBeZero(signs)) {
+        int opcode = insn.getOpcode();
+        result.add(
+            new Division(line, signs, opcode == Opcodes.LDIV || opcode == Opcodes.LREM, i));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,192 @@
+package org.checkerframework.checker.dividebyzero.bytecode;
+
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.SignDomain;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+
+/**
+ * The transfer functions of the bytecode analysis. Every int and long value is a {@link SignValue};
+ * the arithmetic instructions that {@code DivByZeroTransfer} handles for source, which are
+ * addition, subtraction, multiplication, division and remainder, compute the signs of their result
+ * with {@link SignDomain}, as it does. Comparisons are handled by {@link MethodScanner}, which
+ * refines the operands on each edge of a conditional jump.
+ */
+final class SignInterpreter extends BasicInterpreter {
+
+  SignInterpreter() {
+    super(ASM9);
+  }
+
+  @Override
+  public BasicValue newValue(Type type) {
+    if (SignValue.isTracked(type)) {
+      return new SignValue(stackType(type), SignDomain.ANY);
+    }
+    return super.newValue(type);
+  }
+
+  @Override
+  public BasicValue newOperation(AbstractInsnNode insn) throws AnalyzerException {
+    int opcode = insn.getOpcode();
+    switch (opcode) {
+      case ICONST_M1:
+      case ICONST_0:
+      case ICONST_1:
+      case ICONST_2:
+      case ICONST_3:
+      case ICONST_4:
+      case ICONST_5:
+        return new SignValue(Type.INT_TYPE, SignDomain.ofValue(opcode - ICONST_0));
+      case LCONST_0:
+      case LCONST_1:
+        return new SignValue(Type.LONG_TYPE, SignDomain.ofValue(opcode - LCONST_0));
+      case BIPUSH:
+      case SIPUSH:
+        return new SignValue(Type.INT_TYPE, SignDomain.ofValue(((IntInsnNode) insn).operand));
+      case LDC:
+        Object constant = ((LdcInsnNode) insn).cst;
+        if (constant instanceof Integer) {
+          return new SignValue(Type.INT_TYPE, SignDomain.ofValue((Integer) constant));
+        } else if (constant instanceof Long) {
+          return new SignValue(Type.LONG_TYPE, SignDomain.ofValue((Long) constant));
+        }
+        return super.newOperation(insn);
+      default:
+        return unknown(super.newOperation(insn));
+    }
+  }
+
+  @Override
+  public BasicValue copyOperation(AbstractInsnNode insn, BasicValue value)
+      throws AnalyzerException {
+    if (!(value instanceof SignValue)) {
+      return super.copyOperation(insn, value);
+    }
+    switch (insn.getOpcode()) {
+      case ILOAD:
+      case LLOAD:
+        return ((SignValue) value).withLocal(((VarInsnNode) insn).var);
+      case ISTORE:
+      case LSTORE:
+        return ((SignValue) value).withLocal(-1);
+      default:
+        // DUP and friends: the copy still equals the same local variable.
+        return value;
+    }
+  }
+
+  @Override
+  public BasicValue unaryOperation(AbstractInsnNode insn, BasicValue value)
+      throws AnalyzerException {
+    int signs = value instanceof SignValue ? ((SignValue) value).signs : SignDomain.ANY;
+    switch (insn.getOpcode()) {
+      case INEG:
+        return new SignValue(Type.INT_TYPE, SignDomain.negate(signs));
+      case LNEG:
+        return new SignValue(Type.LONG_TYPE, SignDomain.negate(signs));
+      case IINC:
+        int increment = SignDomain.ofValue(((IincInsnNode) insn).incr);
+        return new SignValue(Type.INT_TYPE, SignDomain.plus(signs, increment));
+      case I2L:
+        return new SignValue(Type.LONG_TYPE, signs);
+      case L2I:
+      case I2B:
+      case I2S:
+        // Narrowing keeps zero, but may turn any other value into any sign, or into zero.
+        return new SignValue(Type.INT_TYPE, signs == SignDomain.ZERO ? signs : SignDomain.ANY);
+      case I2C:
+        return new SignValue(
+            Type.INT_TYPE,
+            signs == SignDomain.ZERO ? signs : SignDomain.ZERO | SignDomain.POSITIVE);
+      case ARRAYLENGTH:
+      case INSTANCEOF:
+        return new SignValue(Type.INT_TYPE, SignDomain.ZERO | SignDomain.POSITIVE);
+      default:
+        return unknown(super.unaryOperation(insn, value));
+    }
+  }
+
+  @Override
+  public BasicValue binaryOperation(AbstractInsnNode insn, BasicValue value1, BasicValue value2)
+      throws AnalyzerException {
+    if (!(value1 instanceof SignValue) || !(value2 instanceof SignValue)) {
+      return unknown(super.binaryOperation(insn, value1, value2));
+    }
+    SignValue left = (SignValue) value1;
+    SignValue right = (SignValue) value2;
+    switch (insn.getOpcode()) {
+      case IADD:
+      case LADD:
+        return new SignValue(left.getType(), SignDomain.plus(left.signs, right.signs));
+      case ISUB:
+      case LSUB:
+        return new SignValue(left.getType(), SignDomain.minus(left.signs, right.signs));
+      case IMUL:
+      case LMUL:
+        return new SignValue(left.getType(), SignDomain.times(left.signs, right.signs));
+      case IDIV:
+      case LDIV:
+        return new SignValue(left.getType(), SignDomain.divide(left.signs, right.signs));
+      case IREM:
+      case LREM:
+        return new SignValue(left.getType(), SignDomain.remainder(left.signs, right.signs));
+      case LCMP:
+        return SignValue.compare(left, right);
+      default:
+        return unknown(super.binaryOperation(insn, value1, value2));
+    }
+  }
+
+  @Override
+  public BasicValue naryOperation(AbstractInsnNode insn, List<? extends BasicValue> values)
+      throws AnalyzerException {
+    return unknown(super.naryOperation(insn, values));
+  }
+
+  @Override
+  public BasicValue merge(BasicValue value1, BasicValue value2) {
+    if (value1 instanceof SignValue
+        && value2 instanceof SignValue
+        && value1.getType().equals(value2.getType())) {
+      return ((SignValue) value1).join((SignValue) value2);
+    }
+    if (value1 instanceof SignValue || value2 instanceof SignValue) {
+      // An int or long merged with a value of another type: the slot is unusable.
+      return BasicValue.UNINITIALIZED_VALUE;
+    }
+    return super.merge(value1, value2);
+  }
+
+  /** The type that values of a tracked type have on the operand stack and in locals. */
+  private static Type stackType(Type type) {
+    return type.getSort() == Type.LONG ? Type.LONG_TYPE : Type.INT_TYPE;
+  }
+
+  /**
+   * Returns a value computed by {@link BasicInterpreter}, as a {@link SignValue} with unknown signs
+   * if it is an int or long.
+   */
+  private static BasicValue unknown(BasicValue value) {
+    if (value != null && !(value instanceof SignValue) && SignValue.isTracked(value.getType())) {
+      return new SignValue(stackType(value.getType()), SignDomain.ANY);
+    }
+    return value;
+  }
+
+  /** Whether an instruction is an integer division or remainder, whose divisor is checked. */
+  static boolean isDivision(int opcode) {
+    return opcode == Opcodes.IDIV
+        || opcode == Opcodes.LDIV
+        || opcode == Opcodes.IREM
+        || opcode == Opcodes.LREM;
+  }
+}
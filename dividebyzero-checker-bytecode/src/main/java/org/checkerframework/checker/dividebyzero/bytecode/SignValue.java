@@ -0,0 +1,118 @@
+package org.checkerframework.checker.dividebyzero.bytecode;
+
+import java.util.Objects;
+import org.checkerframework.checker.dividebyzero.SignDomain;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.analysis.BasicValue;
+
+/**
+ * An int or long value in a frame of the bytecode analysis: its type, the set of signs it may
+ * have, as in {@link SignDomain}, and, for a value on the operand stack, the local variable it was
+ * loaded from, so that a comparison of the value can refine the variable. Values of other types are
+ * plain {@link BasicValue}s. Immutable.
+ */
+final class SignValue extends BasicValue {
+
+  /** The set of signs. */
+  final int signs;
+
+  /** The local variable the value was loaded from and still equals, or -1. */
+  final int local;
+
+  /** For the result of {@code LCMP}, its first operand, or null. */
+  final SignValue compareLeft;
+
+  /** For the result of {@code LCMP}, its second operand, or null. */
+  final SignValue compareRight;
+
+  SignValue(Type type, int signs) {
+    this(type, signs, -1, null, null);
+  }
+
+  private SignValue(
+      Type type, int signs, int local, SignValue compareLeft, SignValue compareRight) {
+    super(type);
+    this.signs = signs;
+    this.local = local;
+    this.compareLeft = compareLeft;
+    this.compareRight = compareRight;
+  }
+
+  /** Whether values of a type are tracked: ints, the types stored as ints, and longs. */
+  static boolean isTracked(Type type) {
+    if (type == null) {
+      return false;
+    }
+    switch (type.getSort()) {
+      case Type.BOOLEAN:
+      case Type.CHAR:
+      case Type.BYTE:
+      case Type.SHORT:
+      case Type.INT:
+      case Type.LONG:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Returns the result of {@code LCMP} on the given operands. */
+  static SignValue compare(SignValue left, SignValue right) {
+    return new SignValue(Type.INT_TYPE, SignDomain.ANY, -1, left, right);
+  }
+
+  /** Returns this value with a different set of signs, and no comparison operands. */
+  SignValue withSigns(int signs) {
+    return signs == this.signs && compareLeft == null
+        ? this
+        : new SignValue(getType(), signs, local, null, null);
+  }
+
+  /** Returns this value, loaded from the given local variable, or from none if -1. */
+  SignValue withLocal(int local) {
+    return local == this.local ? this : new SignValue(getType(), signs, local, null, null);
+  }
+
+  /** Returns the join of this value and another value of the same type. */
+  SignValue join(SignValue other) {
+    int joinedSigns = signs | other.signs;
+    int joinedLocal = local == other.local ? local : -1;
+    boolean sameComparison =
+        compareLeft == other.compareLeft && compareRight == other.compareRight;
+    if (joinedSigns == signs && joinedLocal == local && (sameComparison || compareLeft == null)) {
+      return this;
+    }
+    return new SignValue(
+        getType(),
+        joinedSigns,
+        joinedLocal,
+        sameComparison ? compareLeft : null,
+        sameComparison ? compareRight : null);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof SignValue)) {
+      return false;
+    }
+    SignValue other = (SignValue) o;
+    return getType().equals(other.getType())
+        && signs == other.signs
+        && local == other.local
+        && compareLeft == other.compareLeft
+        && compareRight == other.compareRight;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getType(), signs, local);
+  }
+
+  @Override
+  public String toString() {
+    return getType().getDescriptor() + "{" + signs + (local < 0 ? "" : "@" + local) + "}";
+  }
+}
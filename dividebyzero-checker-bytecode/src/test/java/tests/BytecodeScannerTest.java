@@ -0,0 +1,104 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dividebyzero.bytecode.BytecodeScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles the fixtures in {@code tests/bytecode}, scans the class files with {@link
+ * BytecodeScanner}, and checks that it reports exactly the lines that follow a {@code // ::}
+ * comment.
+ */
+public class BytecodeScannerTest {
+
+  /** A line of the report, with {@code --nomsgtext}. */
+  private static final Pattern REPORTED =
+      Pattern.compile("^(.+):(\\d+):0: error: \\(divide\\.by\\.zero\\) \\[in .+\\]$");
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reportsTheMarkedDivisions() throws IOException, InterruptedException {
+    List<Path> fixtures;
+    try (Stream<Path> files = Files.list(Paths.get("tests", "bytecode"))) {
+      fixtures =
+          files.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+    }
+    Path classes = temp.newFolder("classes").toPath();
+    compile(fixtures, classes);
+
+    Path report = temp.getRoot().toPath().resolve("report.txt");
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(BytecodeScanner.class.getName());
+    command.add("--nomsgtext");
+    command.add("-o");
+    command.add(report.toString());
+    command.add(classes.toString());
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertEquals(output, 1, process.waitFor());
+    assertTrue(output, output.contains(" 0 not analyzed"));
+
+    List<String> reported = new ArrayList<>();
+    for (String line : Files.readAllLines(report, StandardCharsets.UTF_8)) {
+      Matcher m = REPORTED.matcher(line);
+      assertTrue(line, m.matches());
+      reported.add(classes.relativize(Paths.get(m.group(1))) + ":" + m.group(2));
+    }
+    Collections.sort(reported);
+    assertEquals(expected(fixtures), reported);
+  }
+
+  /** Compile the fixtures, with line numbers and with the checker's qualifiers on the classpath. */
+  private static void compile(List<Path> fixtures, Path classes) {
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    List<String> arguments = new ArrayList<>();
+    arguments.add("-g");
+    arguments.add("-nowarn");
+    arguments.add("-proc:none");
+    arguments.add("-classpath");
+    arguments.add(System.getProperty("java.class.path"));
+    arguments.add("-d");
+    arguments.add(classes.toString());
+    for (Path fixture : fixtures) {
+      arguments.add(fixture.toString());
+    }
+    assertEquals("javac failed", 0, javac.run(null, null, null, arguments.toArray(new String[0])));
+  }
+
+  /** The lines marked in the fixtures, as {@code File.java:line}, sorted. */
+  private static List<String> expected(List<Path> fixtures) throws IOException {
+    List<String> result = new ArrayList<>();
+    for (Path fixture : fixtures) {
+      List<String> lines = Files.readAllLines(fixture, StandardCharsets.UTF_8);
+      for (int i = 0; i < lines.size(); i++) {
+        if (lines.get(i).trim().equals("// :: error: divide.by.zero")) {
+          result.add(fixture.getFileName() + ":" + (i + 2));
+        }
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+}
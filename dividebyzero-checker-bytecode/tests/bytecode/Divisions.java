@@ -0,0 +1,93 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Compiled and scanned by BytecodeScannerTest. Each "// ::" comment marks the next line as one
+// that the scanner must report; no other line may be reported.
+
+class Divisions {
+
+  int idivUnguarded(int x, int y) {
+    // :: error: divide.by.zero
+    return x / y;
+  }
+
+  int iremUnguarded(int x, int y) {
+    // :: error: divide.by.zero
+    return x % y;
+  }
+
+  long ldivUnguarded(long x, long y) {
+    // :: error: divide.by.zero
+    return x / y;
+  }
+
+  long lremUnguarded(long x, long y) {
+    // :: error: divide.by.zero
+    return x % y;
+  }
+
+  int intGuarded(int x, int y) {
+    if (y != 0) {
+      return x / y + x % y;
+    }
+    if (y < 0) {
+      return x / y;
+    }
+    return 0;
+  }
+
+  long longGuarded(long x, long y) {
+    if (y > 0) {
+      return x / y + x % y;
+    }
+    if (y == 0) {
+      return 0;
+    }
+    return x / y;
+  }
+
+  int guardThenDecremented(int x, int y) {
+    if (y != 0) {
+      y = y - 1;
+      // :: error: divide.by.zero
+      return x / y;
+    }
+    return 0;
+  }
+
+  long annotated(long x, @Positive long y, @NonZero int z) {
+    return x / y + x % z;
+  }
+
+  int intConstants(int x) {
+    return x / 7 + x % -3;
+  }
+
+  long longConstants(long x) {
+    return x / 1000000007L + x % 60L;
+  }
+
+  int idivByZero(int x) {
+    // :: error: divide.by.zero
+    return x / 0;
+  }
+
+  long lremByZero(long x) {
+    // :: error: divide.by.zero
+    return x % 0L;
+  }
+
+  // A long that is not zero may be truncated to an int that is.
+  int truncated(int x, @Positive long big) {
+    // :: error: divide.by.zero
+    return x / (int) big;
+  }
+
+  int truncatedConstant(int x) {
+    // :: error: divide.by.zero
+    return x % (int) 4294967296L;
+  }
+
+  int truncatedNonZeroConstant(int x) {
+    return x / (int) 4294967297L;
+  }
+}
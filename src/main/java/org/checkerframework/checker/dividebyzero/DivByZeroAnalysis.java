@@ -0,0 +1,164 @@
+package org.checkerframework.checker.dividebyzero;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.analysis.TransferInput;
+import org.checkerframework.dataflow.analysis.TransferResult;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFValue;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * The flow analysis of the Divide By Zero Checker. It is a {@link CFAnalysis} that can decline to
+ * run to a fixpoint over a control flow graph, when the type factory says the result is not needed.
+ * A declined graph has empty results, so every expression in it keeps its unrefined type.
+ *
+ * <p>At a loop head that has been visited {@link #MAX_COUNT_BEFORE_WIDENING} times, the analysis
+ * widens instead of joining; see {@link DivByZeroQualifierHierarchy}. There is no narrowing pass:
+ * widening in the sign domain loses nothing, so one would never improve a result.
+ *
+ * <p>The analysis of one graph may call the transfer function at most {@code -AdbzMaxSteps} times
+ * (default {@value #DEFAULT_MAX_STEPS}) and, if {@code -AdbzMaxMillis} is given, run for at most
+ * that many milliseconds. A graph that exceeds its budget is abandoned: its results are discarded,
+ * as for a graph that is not analyzed, so every expression in it keeps its unrefined type, which is
+ * {@code @Top} unless declared otherwise. The visitor then warns about the method with the {@code
+ * analysis.budget.exceeded} key and checks it with those types.
+ *
+ * <p>When statistics are enabled, the analysis reports each graph, transfer function call and store
+ * copy to {@link DivByZeroStats}.
+ */
+public class DivByZeroAnalysis extends CFAnalysis {
+
+  /** How many times a block is visited before its incoming values are widened, not joined. */
+  static final int MAX_COUNT_BEFORE_WIDENING = 3;
+
+  /** The default of {@code -AdbzMaxSteps}, far above what any hand-written method needs. */
+  static final long DEFAULT_MAX_STEPS = 1_000_000;
+
+  /** How many transfer function calls pass between two looks at the clock. */
+  private static final int STEPS_PER_CLOCK_CHECK = 256;
+
+  /** The type factory that decides which graphs to analyze. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  /** The most transfer function calls for one graph. */
+  private final long maxSteps;
+
+  /** The most milliseconds for one graph, or 0 for no limit. */
+  private final long maxMillis;
+
+  /** The transfer function calls so far for the graph being analyzed. */
+  private long steps;
+
+  /** When the analysis of the current graph must stop, from {@link System#nanoTime()}. */
+  private long deadline;
+
+  public DivByZeroAnalysis(BaseTypeChecker checker, DivByZeroAnnotatedTypeFactory factory) {
+    super(checker, factory, MAX_COUNT_BEFORE_WIDENING);
+    this.factory = factory;
+    long steps = longOption(checker, DivByZeroChecker.MAX_STEPS_OPTION);
+    this.maxSteps = steps == 0 ? DEFAULT_MAX_STEPS : steps;
+    this.maxMillis = longOption(checker, DivByZeroChecker.MAX_MILLIS_OPTION);
+  }
+
+  /** The value of a numeric option, or 0 if it was not given. */
+  private static long longOption(BaseTypeChecker checker, String option) {
+    String value = checker.getOption(option);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      long result = Long.parseLong(value);
+      if (result > 0) {
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new UserError("-A%s must be a positive number, not %s", option, value);
+  }
+
+  @Override
+  public void performAnalysis(ControlFlowGraph cfg) {
+    if (!factory.shouldAnalyze(cfg.getUnderlyingAST())) {
+      // Reset the analysis to the graph, without iterating, so its results describe this graph.
+      init(cfg);
+      return;
+    }
+    DivByZeroStats stats = stats();
+    if (stats == null) {
+      performAnalysisWithinBudget(cfg);
+      return;
+    }
+    stats.beginAnalysis(cfg.getUnderlyingAST());
+    try {
+      performAnalysisWithinBudget(cfg);
+    } finally {
+      stats.endAnalysis();
+    }
+  }
+
+  /** Analyze a graph, or abandon it and discard its results if it exceeds the budget. */
+  private void performAnalysisWithinBudget(ControlFlowGraph cfg) {
+    long outerSteps = steps;
+    long outerDeadline = deadline;
+    steps = 0;
+    deadline = maxMillis == 0 ? 0 : System.nanoTime() + maxMillis * 1_000_000;
+    try {
+      super.performAnalysis(cfg);
+    } catch (BudgetExceeded e) {
+      init(cfg);
+      factory.analysisOverBudget(cfg.getUnderlyingAST(), e.limit);
+    } finally {
+      steps = outerSteps;
+      deadline = outerDeadline;
+    }
+  }
+
+  @Override
+  protected TransferResult<CFValue, CFStore> callTransferFunction(
+      Node node, TransferInput<CFValue, CFStore> transferInput) {
+    DivByZeroStats stats = stats();
+    if (stats != null) {
+      stats.transfer(node);
+    }
+    if (++steps > maxSteps) {
+      throw new BudgetExceeded(maxSteps + " transfer steps");
+    }
+    if (deadline != 0
+        && steps % STEPS_PER_CLOCK_CHECK == 0
+        && System.nanoTime() - deadline > 0) {
+      throw new BudgetExceeded(maxMillis + " ms");
+    }
+    return super.callTransferFunction(node, transferInput);
+  }
+
+  @Override
+  public CFStore createCopiedStore(CFStore store) {
+    DivByZeroStats stats = stats();
+    if (stats != null) {
+      stats.storeCopied();
+    }
+    return super.createCopiedStore(store);
+  }
+
+  /** Returns the checker's statistics, or null if they are disabled. */
+  private DivByZeroStats stats() {
+    return ((DivByZeroChecker) factory.getChecker()).getStats();
+  }
+
+  /** Unwinds the analysis of a graph that has exceeded its budget. */
+  @SuppressWarnings("serial")
+  private static final class BudgetExceeded extends RuntimeException {
+
+    /** The limit that was exceeded, such as {@code "1000000 transfer steps"}. */
+    final String limit;
+
+    BudgetExceeded(String limit) {
+      super(limit, null, false, false);
+      this.limit = limit;
+    }
+  }
+}
@@ -1,20 +1,50 @@
 package org.checkerframework.checker.dividebyzero;
 
 import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParenthesizedTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
 import com.sun.source.tree.UnaryTree;
+import com.sun.source.util.TreePath;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 import org.checkerframework.checker.dividebyzero.qual.*;
 import org.checkerframework.common.basetype.BaseAnnotatedTypeFactory;
 import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.framework.flow.CFAbstractAnalysis;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFTransfer;
+import org.checkerframework.framework.flow.CFValue;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.treeannotator.ListTreeAnnotator;
 import org.checkerframework.framework.type.treeannotator.TreeAnnotator;
-import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.UserError;
 
 public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
@@ -28,22 +58,407 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
     switch (literal.getKind()) {
       case INT_LITERAL:
         int intValue = (Integer) literal.getValue();
-        // TODO
-        break;
+        return defaultAnnotation(intValue);
       case LONG_LITERAL:
         long longValue = (Long) literal.getValue();
-        // TODO
-        break;
+        return defaultAnnotation(longValue);
     }
     return Top.class;
   }
 
+  /**
+   * Compute the default annotation for the value of an int or long constant expression, such as a
+   * literal or {@code 60 * 60 * 1000}.
+   *
+   * @param value the value of the constant expression
+   * @return the most specific possible point in the lattice for the given value
+   */
+  private Class<? extends Annotation> defaultAnnotation(long value) {
+    if (value > 0) {
+      return Positive.class;
+    } else if (value < 0) {
+      return Negative.class;
+    } else {
+      return Zero.class;
+    }
+  }
+
   // ========================================================================
   // Checker Framework plumbing
 
+  // The state below that depends on the qualifier hierarchy or reads options or files is built at
+  // its first use rather than in the constructor, so that javac runs that check little, such as
+  // those of small modules or of a method shard, do not pay for it at startup.
+
+  /** The interned qualifiers and precomputed lattice operations; see {@link #getLattice}. */
+  private DivByZeroLattice lattice;
+
+  /**
+   * The value of each int or long constant expression folded so far in the current compilation
+   * unit, or {@link #NOT_CONSTANT}. Keyed by identity, so that a tree is folded at most once.
+   */
+  private final Map<Tree, Object> foldedConstants = new IdentityHashMap<>();
+
+  /** Marks a tree in {@link #foldedConstants} that is not an int or long constant. */
+  private static final Object NOT_CONSTANT = new Object();
+
+  /** Decides which code the flow analysis can skip; see {@link #prescan}. */
+  private DivByZeroPrescan prescan;
+
+  /** The inferred summaries of methods and final fields; see {@link #getSummaries}. */
+  private DivByZeroSummaries summaries;
+
+  /**
+   * The points in the lattice of constant fields, by class, for the whole compilation; see {@link
+   * #constantFields}.
+   */
+  private DivByZeroConstantFields constantFields;
+
+  /**
+   * The qualifiers of declarations on the classpath, from {@code -AdbzStubIndex}; see {@link
+   * #stubIndex}.
+   */
+  private DivByZeroStubIndex stubIndex;
+
+  /**
+   * The outermost methods that contain code whose flow analysis exceeded its budget, and the limit
+   * that was exceeded, until the visitor reports them.
+   */
+  private final Map<MethodTree, String> overBudget = new IdentityHashMap<>();
+
+  /** Recognizes guarded divisors for {@code -AdbzMode=fast}, or null for the full check. */
+  private final DivByZeroGuards guards;
+
+  /** The methods this run checks, for {@code -AdbzMethodShard}, or null to check all methods. */
+  private final DivByZeroMethodShards methodShards;
+
+  /**
+   * The lines to check, for {@code -AdbzChangedLines}, or null to check every line; see {@link
+   * #changedLines}.
+   */
+  private DivByZeroChangedLines changedLines;
+
+  /** Whether {@link #changedLines} has been read. */
+  private boolean changedLinesRead;
+
+  /**
+   * The caches made by {@link #createCache}, in the order they were made. Not final and not
+   * initialized here, since the framework's constructor fills it before this class's fields are
+   * initialized.
+   */
+  private List<DivByZeroTypeCache<?, ?>> typeCaches;
+
+  /** Whether {@link #nameTypeCaches} has run. */
+  private boolean typeCachesNamed;
+
   public DivByZeroAnnotatedTypeFactory(BaseTypeChecker c) {
-    super(c);
+    super(c, !((DivByZeroChecker) c).isFastMode());
     postInit();
+    guards = ((DivByZeroChecker) c).isFastMode() ? new DivByZeroGuards(this) : null;
+    methodShards = DivByZeroMethodShards.fromOption(c);
+  }
+
+  /** Returns the interned qualifiers and precomputed lattice operations. */
+  DivByZeroLattice getLattice() {
+    if (lattice == null) {
+      lattice = new DivByZeroLattice(this);
+    }
+    return lattice;
+  }
+
+  /** Returns the decider of which code the flow analysis can skip. */
+  private DivByZeroPrescan prescan() {
+    if (prescan == null) {
+      prescan = new DivByZeroPrescan(this, getLattice().mirror(getLattice().top()));
+    }
+    return prescan;
+  }
+
+  /** Returns the points in the lattice of constant fields. */
+  private DivByZeroConstantFields constantFields() {
+    if (constantFields == null) {
+      constantFields = new DivByZeroConstantFields(getLattice());
+    }
+    return constantFields;
+  }
+
+  /** Returns the inferred summaries of methods and final fields. */
+  DivByZeroSummaries getSummaries() {
+    if (summaries == null) {
+      String summaryOut = checker.getOption(DivByZeroChecker.SUMMARY_OUT_OPTION);
+      summaries =
+          new DivByZeroSummaries(
+              this,
+              summaryOut == null ? null : Paths.get(summaryOut),
+              checker.getOption(DivByZeroChecker.SUMMARY_PATH_OPTION));
+    }
+    return summaries;
+  }
+
+  /** Returns the qualifiers of declarations on the classpath, from {@code -AdbzStubIndex}. */
+  private DivByZeroStubIndex stubIndex() {
+    if (stubIndex == null) {
+      stubIndex =
+          new DivByZeroStubIndex(this, checker.getOption(DivByZeroChecker.STUB_INDEX_OPTION));
+    }
+    return stubIndex;
+  }
+
+  /**
+   * Returns the lines to check, for {@code -AdbzChangedLines}, or null to check every line. The
+   * file is read at the first call, which is at the first compilation unit.
+   */
+  private DivByZeroChangedLines changedLines() {
+    if (!changedLinesRead) {
+      changedLinesRead = true;
+      changedLines = DivByZeroChangedLines.fromOption(checker);
+    }
+    return changedLines;
+  }
+
+  /**
+   * Returns the type caches of this factory, for the report of {@code -AdbzStats}.
+   *
+   * @return the caches, in the order they were made
+   */
+  List<DivByZeroTypeCache<?, ?>> getTypeCaches() {
+    if (!typeCachesNamed) {
+      typeCachesNamed = true;
+      nameTypeCaches();
+    }
+    return typeCaches == null ? Collections.emptyList() : typeCaches;
+  }
+
+  /**
+   * Makes the framework's caches, such as those of the types of trees and elements, instances of
+   * {@link DivByZeroTypeCache}, which also bound the bytes they retain and count their hits.
+   */
+  @Override
+  protected <K, V> Map<K, V> createCache(int cacheSize) {
+    String megabytes = checker.getOption(DivByZeroChecker.TYPE_CACHE_MEGABYTES_OPTION);
+    long maxBytes = Long.MAX_VALUE;
+    if (megabytes != null) {
+      try {
+        maxBytes = Long.parseLong(megabytes) << 20;
+      } catch (NumberFormatException e) {
+        throw new UserError(
+            "-A%s must be a number, not %s",
+            DivByZeroChecker.TYPE_CACHE_MEGABYTES_OPTION,
+            megabytes);
+      }
+    }
+    if (typeCaches == null) {
+      typeCaches = new ArrayList<>();
+    }
+    DivByZeroTypeCache<K, V> cache =
+        new DivByZeroTypeCache<>("cache" + typeCaches.size(), cacheSize, maxBytes);
+    typeCaches.add(cache);
+    return cache;
+  }
+
+  /**
+   * Name each type cache after the field of the framework that holds it, such as {@code
+   * fromExpressionTreeCache}, for the report. The fields are private to the framework and differ
+   * between its versions, so they are found reflectively; a cache whose field is not found keeps
+   * its default name. This is done only when the report asks for the caches, so that a check
+   * without {@code -AdbzStats} does not pay for the reflection at startup.
+   */
+  private void nameTypeCaches() {
+    if (typeCaches == null) {
+      return;
+    }
+    for (Class<?> c = getClass(); c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())
+            || !Map.class.isAssignableFrom(field.getType())) {
+          continue;
+        }
+        try {
+          field.setAccessible(true);
+          Object value = field.get(this);
+          if (value instanceof DivByZeroTypeCache) {
+            ((DivByZeroTypeCache<?, ?>) value).setName(field.getName());
+          }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          // Keep the default name.
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the recognizer of guarded divisors, or null for the full check, whose flow analysis
+   * refines the types of guarded divisors instead.
+   */
+  DivByZeroGuards getGuards() {
+    return guards;
+  }
+
+  /**
+   * Returns the value of an int or long constant expression.
+   *
+   * @param tree an expression
+   * @return the value as an {@link Integer} or {@link Long}, or null if it is not a constant
+   */
+  Number constantValue(ExpressionTree tree) {
+    return fold(tree);
+  }
+
+  @Override
+  public void addComputedTypeAnnotations(Element elt, AnnotatedTypeMirror type) {
+    super.addComputedTypeAnnotations(elt, type);
+    stubIndex().apply(elt, type);
+  }
+
+  @Override
+  protected QualifierHierarchy createQualifierHierarchy() {
+    return new DivByZeroQualifierHierarchy(getSupportedTypeQualifiers(), elements, this);
+  }
+
+  @Override
+  protected CFAnalysis createFlowAnalysis() {
+    return new DivByZeroAnalysis(checker, this);
+  }
+
+  @Override
+  public CFTransfer createFlowTransferFunction(
+      CFAbstractAnalysis<CFValue, CFStore, CFTransfer> analysis) {
+    return new DivByZeroTransfer((CFAnalysis) analysis);
+  }
+
+  /**
+   * Returns false if the flow analysis of the given code can be skipped, because its results will
+   * never be used: the code is in a method that is not to be checked, the results are cached,
+   * or the code has no division and no qualified declaration that a refined value could flow into;
+   * see {@link DivByZeroPrescan}.
+   *
+   * @param ast a method, lambda, or other code that is about to be analyzed
+   * @return true if the code should be analyzed
+   */
+  boolean shouldAnalyze(UnderlyingAST ast) {
+    DivByZeroResultCache cache = ((DivByZeroChecker) checker).getResultCache();
+    if (cache != null || methodShards != null || changedLines() != null) {
+      MethodTree method = outermostMethod(ast);
+      if (method != null && !isChecked(method)) {
+        // The visitor skips the method.
+        return false;
+      }
+      if (method != null && cache != null && cache.contains(method, this)) {
+        // The visitor replays the diagnostics of a cached method instead of visiting it.
+        return false;
+      }
+    }
+    switch (ast.getKind()) {
+      case METHOD:
+        return prescan().needsFlow(((UnderlyingAST.CFGMethod) ast).getMethod());
+      case ARBITRARY_CODE:
+        return prescan().needsFlow(((UnderlyingAST.CFGStatement) ast).getCode());
+      default:
+        // The types a lambda's values flow into are those of its functional interface.
+        return true;
+    }
+  }
+
+  /**
+   * Returns true if this run checks the given class member: unless {@code -AdbzMethodShard} assigns
+   * a method to another run, or {@code -AdbzChangedLines} did not change any of its lines.
+   *
+   * @param member an outermost method, one that is not inside another method, or another member of
+   *     a class, such as a field
+   * @return true if the member is to be analyzed and visited
+   */
+  boolean isChecked(Tree member) {
+    if (methodShards != null
+        && member instanceof MethodTree
+        && !methodShards.isInShard((MethodTree) member)) {
+      return false;
+    }
+    return changedLines() == null || changedLines().isChanged(member);
+  }
+
+  /**
+   * Record that the flow analysis of some code was abandoned. The warning is reported when the
+   * visitor reaches the outermost enclosing method, so that it is part of the method's diagnostics
+   * in the result cache; code outside any method is reported at once.
+   *
+   * @param ast the code whose analysis was abandoned
+   * @param limit the limit that was exceeded, such as {@code "1000000 transfer steps"}
+   */
+  void analysisOverBudget(UnderlyingAST ast, String limit) {
+    MethodTree method = outermostMethod(ast);
+    if (method != null) {
+      overBudget.putIfAbsent(method, limit);
+      return;
+    }
+    Tree code =
+        ast.getKind() == UnderlyingAST.Kind.LAMBDA
+            ? ((UnderlyingAST.CFGLambda) ast).getLambdaTree()
+            : ((UnderlyingAST.CFGStatement) ast).getCode();
+    checker.reportWarning(code, "analysis.budget.exceeded", "this initializer", limit);
+  }
+
+  /**
+   * Returns the limit that the flow analysis of the given method, or of code inside it, exceeded,
+   * and forgets it.
+   *
+   * @param method a method that the visitor is about to check
+   * @return the limit that was exceeded, or null if the analysis was within budget
+   */
+  String takeOverBudget(MethodTree method) {
+    return overBudget.remove(method);
+  }
+
+  /**
+   * Returns the outermost method that contains the given code: the method itself, or the method
+   * that encloses a lambda or a local or anonymous class.
+   *
+   * @param ast a method, lambda, or other code
+   * @return the outermost enclosing method, or null if the code is not in a method
+   */
+  private MethodTree outermostMethod(UnderlyingAST ast) {
+    MethodTree method;
+    switch (ast.getKind()) {
+      case METHOD:
+        method = ((UnderlyingAST.CFGMethod) ast).getMethod();
+        break;
+      case LAMBDA:
+        method = ((UnderlyingAST.CFGLambda) ast).getEnclosingMethod();
+        break;
+      default:
+        return null;
+    }
+    if (method == null) {
+      return null;
+    }
+    // Finding the path to a tree walks the compilation unit, so only do it for the rare method of a
+    // local or anonymous class.
+    for (Element e = TreeUtils.elementFromDeclaration(method).getEnclosingElement();
+        e instanceof TypeElement;
+        e = e.getEnclosingElement()) {
+      NestingKind nesting = ((TypeElement) e).getNestingKind();
+      if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+        for (TreePath path = getPath(method); path != null; path = path.getParentPath()) {
+          if (path.getLeaf() instanceof MethodTree) {
+            method = (MethodTree) path.getLeaf();
+          }
+        }
+        break;
+      }
+    }
+    return method;
+  }
+
+  @Override
+  public void setRoot(CompilationUnitTree root) {
+    super.setRoot(root);
+    foldedConstants.clear();
+    overBudget.clear();
+    if (methodShards != null) {
+      methodShards.assign(root);
+    }
+    if (changedLines() != null) {
+      changedLines().setRoot(root);
+    }
   }
 
   @Override
@@ -51,6 +466,221 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
     return new ListTreeAnnotator(new DivByZeroTreeAnnotator(this), super.createTreeAnnotator());
   }
 
+  /**
+   * Fold an int or long constant expression. Every subexpression's result is memoized, so folding
+   * the whole of {@code 60 * 60 * 1000} visits each tree once, no matter how many times the tree
+   * annotator asks about its subexpressions.
+   *
+   * @param tree an expression
+   * @return the value of the expression as an {@link Integer} or {@link Long}, or null if it is not
+   *     an int or long constant
+   */
+  private Number fold(ExpressionTree tree) {
+    Object result = foldedConstants.get(tree);
+    if (result == null) {
+      result = computeFold(tree);
+      foldedConstants.put(tree, result == null ? NOT_CONSTANT : result);
+    }
+    return result == NOT_CONSTANT ? null : (Number) result;
+  }
+
+  /** Fold a tree that has not been folded before; see {@link #fold}. */
+  private Number computeFold(ExpressionTree tree) {
+    switch (tree.getKind()) {
+      case INT_LITERAL:
+      case LONG_LITERAL:
+        return (Number) ((LiteralTree) tree).getValue();
+      case CHAR_LITERAL:
+        return (int) (Character) ((LiteralTree) tree).getValue();
+      case PARENTHESIZED:
+        return fold(((ParenthesizedTree) tree).getExpression());
+      case IDENTIFIER:
+      case MEMBER_SELECT:
+        return constantValue(TreeUtils.elementFromTree(tree));
+      case TYPE_CAST:
+        return foldCast((TypeCastTree) tree);
+      case UNARY_PLUS:
+      case UNARY_MINUS:
+      case BITWISE_COMPLEMENT:
+        return foldUnary((UnaryTree) tree);
+      default:
+        if (tree instanceof BinaryTree) {
+          return foldBinary((BinaryTree) tree);
+        }
+        return null;
+    }
+  }
+
+  /** The value of a constant variable, such as a {@code static final} field. */
+  private static Number constantValue(Element element) {
+    if (!(element instanceof VariableElement)) {
+      return null;
+    }
+    Object value = ((VariableElement) element).getConstantValue();
+    if (value instanceof Integer || value instanceof Long) {
+      return (Number) value;
+    }
+    if (value instanceof Short || value instanceof Byte) {
+      return ((Number) value).intValue();
+    }
+    if (value instanceof Character) {
+      return (int) (Character) value;
+    }
+    return null;
+  }
+
+  private Number foldCast(TypeCastTree tree) {
+    Number value = fold(tree.getExpression());
+    if (value == null) {
+      return null;
+    }
+    switch (TreeUtils.typeOf(tree).getKind()) {
+      case LONG:
+        return value.longValue();
+      case INT:
+        return value.intValue();
+      case SHORT:
+        return (int) value.shortValue();
+      case BYTE:
+        return (int) value.byteValue();
+      case CHAR:
+        return (int) (char) value.intValue();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Whether a cast may change the value of its operand, so that a nonzero value may become zero, as
+   * {@code (int) 4294967296L} and {@code (char) 65536} do.
+   */
+  private static boolean narrows(TypeCastTree tree) {
+    TypeKind from = TreeUtils.typeOf(tree.getExpression()).getKind();
+    TypeKind to = TreeUtils.typeOf(tree).getKind();
+    if (!from.isPrimitive() || from == to) {
+      return false;
+    }
+    switch (to) {
+      case BYTE:
+      case SHORT:
+      case CHAR:
+        return true;
+      case INT:
+        return from == TypeKind.LONG || from == TypeKind.FLOAT || from == TypeKind.DOUBLE;
+      case LONG:
+        return from == TypeKind.FLOAT || from == TypeKind.DOUBLE;
+      default:
+        return false;
+    }
+  }
+
+  private Number foldUnary(UnaryTree tree) {
+    Number value = fold(tree.getExpression());
+    if (value == null) {
+      return null;
+    }
+    switch (tree.getKind()) {
+      case UNARY_PLUS:
+        return value;
+      case UNARY_MINUS:
+        if (value instanceof Long) {
+          return -value.longValue();
+        }
+        return -value.intValue();
+      case BITWISE_COMPLEMENT:
+        if (value instanceof Long) {
+          return ~value.longValue();
+        }
+        return ~value.intValue();
+      default:
+        return null;
+    }
+  }
+
+  private Number foldBinary(BinaryTree tree) {
+    Number left = fold(tree.getLeftOperand());
+    if (left == null) {
+      return null;
+    }
+    Number right = fold(tree.getRightOperand());
+    if (right == null) {
+      return null;
+    }
+    switch (tree.getKind()) {
+      case LEFT_SHIFT:
+      case RIGHT_SHIFT:
+      case UNSIGNED_RIGHT_SHIFT:
+        // The type of a shift is the promoted type of its left operand alone.
+        if (left instanceof Long) {
+          return foldLong(tree.getKind(), left.longValue(), right.longValue());
+        }
+        return foldInt(tree.getKind(), left.intValue(), right.intValue());
+      default:
+        if (left instanceof Long || right instanceof Long) {
+          return foldLong(tree.getKind(), left.longValue(), right.longValue());
+        }
+        return foldInt(tree.getKind(), left.intValue(), right.intValue());
+    }
+  }
+
+  private static Integer foldInt(Tree.Kind kind, int x, int y) {
+    switch (kind) {
+      case PLUS:
+        return x + y;
+      case MINUS:
+        return x - y;
+      case MULTIPLY:
+        return x * y;
+      case DIVIDE:
+        return y == 0 ? null : x / y;
+      case REMAINDER:
+        return y == 0 ? null : x % y;
+      case LEFT_SHIFT:
+        return x << y;
+      case RIGHT_SHIFT:
+        return x >> y;
+      case UNSIGNED_RIGHT_SHIFT:
+        return x >>> y;
+      case AND:
+        return x & y;
+      case OR:
+        return x | y;
+      case XOR:
+        return x ^ y;
+      default:
+        return null;
+    }
+  }
+
+  private static Long foldLong(Tree.Kind kind, long x, long y) {
+    switch (kind) {
+      case PLUS:
+        return x + y;
+      case MINUS:
+        return x - y;
+      case MULTIPLY:
+        return x * y;
+      case DIVIDE:
+        return y == 0 ? null : x / y;
+      case REMAINDER:
+        return y == 0 ? null : x % y;
+      case LEFT_SHIFT:
+        return x << y;
+      case RIGHT_SHIFT:
+        return x >> y;
+      case UNSIGNED_RIGHT_SHIFT:
+        return x >>> y;
+      case AND:
+        return x & y;
+      case OR:
+        return x | y;
+      case XOR:
+        return x ^ y;
+      default:
+        return null;
+    }
+  }
+
   private class DivByZeroTreeAnnotator extends TreeAnnotator {
 
     public DivByZeroTreeAnnotator(AnnotatedTypeFactory atypeFactory) {
@@ -63,22 +693,35 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         return super.visitLiteral(tree, type);
       }
       Class<? extends Annotation> c = defaultAnnotation(tree);
-      AnnotationMirror m = AnnotationBuilder.fromClass(getProcessingEnv().getElementUtils(), c);
-      type.replaceAnnotation(m);
+      DivByZeroLattice lattice = getLattice();
+      type.replaceAnnotation(lattice.mirror(lattice.ordinal(c)));
       return null;
     }
 
     // The AnnotatedTypeFactory only applies types computed by dataflow if they are a subtype of the
     // type it computed.  So, to get the transfer rules to work properly, we must override the
-    // "output-is-lub-of-operands" behavior.  By default, everything should be Top.
+    // "output-is-lub-of-operands" behavior.  By default, everything should be Top.  Constant
+    // expressions are the exception: their value is known, so they get the same point in the
+    // lattice as a literal with that value, without waiting for dataflow.
 
     private AnnotationMirror top() {
-      return getQualifierHierarchy().getTopAnnotations().iterator().next();
+      DivByZeroLattice lattice = getLattice();
+      return lattice.mirror(lattice.top());
+    }
+
+    /** The most specific point in the lattice for the given expression, before dataflow. */
+    private AnnotationMirror constantOrTop(ExpressionTree tree) {
+      Number value = fold(tree);
+      if (value == null) {
+        return top();
+      }
+      DivByZeroLattice lattice = getLattice();
+      return lattice.mirror(lattice.ordinal(defaultAnnotation(value.longValue())));
     }
 
     @Override
     public Void visitBinary(BinaryTree node, AnnotatedTypeMirror type) {
-      type.replaceAnnotation(top());
+      type.replaceAnnotation(constantOrTop(node));
       return null;
     }
 
@@ -90,8 +733,66 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
     @Override
     public Void visitUnary(UnaryTree node, AnnotatedTypeMirror type) {
-      type.replaceAnnotation(top());
+      type.replaceAnnotation(constantOrTop(node));
       return null;
     }
+
+    // A cast that narrows its operand keeps no qualifier unless it is constant; any other cast
+    // keeps the qualifier of its operand.
+
+    @Override
+    public Void visitTypeCast(TypeCastTree node, AnnotatedTypeMirror type) {
+      if (fold(node) != null || narrows(node)) {
+        type.replaceAnnotation(constantOrTop(node));
+      }
+      return null;
+    }
+
+    // A use of a constant field has the point of its value.  A call to a method, or a use of
+    // another final field, has at most the values of its summary.
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree node, AnnotatedTypeMirror type) {
+      refineBySummary(TreeUtils.elementFromUse(node), type);
+      return null;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree node, AnnotatedTypeMirror type) {
+      refineByConstantOrSummary(TreeUtils.elementFromUse(node), type);
+      return null;
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree node, AnnotatedTypeMirror type) {
+      refineByConstantOrSummary(TreeUtils.elementFromUse(node), type);
+      return null;
+    }
+
+    private void refineByConstantOrSummary(Element element, AnnotatedTypeMirror type) {
+      Integer point = constantFields().pointOf(element);
+      if (point != null) {
+        refine(point, type);
+      } else {
+        refineBySummary(element, type);
+      }
+    }
+
+    private void refineBySummary(Element element, AnnotatedTypeMirror type) {
+      Integer summary = getSummaries().summaryOf(element);
+      if (summary != null) {
+        refine(getLattice().ordinal(SignQualifiers.forSigns(summary)), type);
+      }
+    }
+
+    /** Replace the type's qualifier with its greatest lower bound with the inferred point. */
+    private void refine(int inferred, AnnotatedTypeMirror type) {
+      AnnotationMirror current = type.getPrimaryAnnotationInHierarchy(top());
+      if (current == null) {
+        return;
+      }
+      DivByZeroLattice lattice = getLattice();
+      type.replaceAnnotation(lattice.mirror(lattice.glb(lattice.ordinal(current), inferred)));
+    }
   }
 }
@@ -0,0 +1,203 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * The changed lines of the files being compiled, for {@code -AdbzChangedLines=<file>}, so that a
+ * pull request build checks only the code it changes. Only the methods and other class members
+ * that contain a changed line are analyzed and checked; see {@link
+ * DivByZeroAnnotatedTypeFactory#isChecked}. A file with no changed lines is parsed and attributed,
+ * as javac must, but nothing in it is checked.
+ *
+ * <p>A checked method still sees the qualifiers of the declarations it uses, changed or not: the
+ * declared qualifiers of their signatures, and the summaries of {@link DivByZeroSummaries}, which
+ * are computed from their source on demand rather than by their flow analysis.
+ *
+ * <p>The file is either a unified diff, such as the output of {@code git diff -U0}, whose added
+ * lines are the changed lines and whose removed lines mark the lines around them as changed, or a
+ * list of ranges, one per line, of the form {@code path:first-last} or {@code path:line}. A path
+ * names a file being compiled if it is a suffix of the file's path made of whole path components,
+ * so paths relative to the root of the repository work from any directory.
+ */
+final class DivByZeroChangedLines {
+
+  /** A file header of a unified diff: the path of the new version of a file. */
+  private static final Pattern DIFF_FILE = Pattern.compile("^\\+\\+\\+ (?:b/)?([^\\t]+)");
+
+  /** A hunk header of a unified diff: the first line and line counts of the old and new text. */
+  private static final Pattern DIFF_HUNK =
+      Pattern.compile("^@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+  /** A line of a list of ranges. */
+  private static final Pattern RANGE = Pattern.compile("^(.+):(\\d+)(?:-(\\d+))?$");
+
+  /** The changed lines of each file, by its path as given, with {@code /} as the separator. */
+  private final Map<String, BitSet> changed = new HashMap<>();
+
+  /** The source positions of trees. */
+  private final SourcePositions positions;
+
+  /** The changed lines of the current compilation unit, empty if it has none. */
+  private BitSet current = new BitSet();
+
+  /** The line map of the current compilation unit. */
+  private LineMap lineMap;
+
+  /** The current compilation unit. */
+  private CompilationUnitTree root;
+
+  /**
+   * Read the file named by the option.
+   *
+   * @param checker the checker, whose option to read
+   * @return the changed lines, or null if the option was not given
+   * @throws UserError if the file cannot be read or has a malformed line
+   */
+  static DivByZeroChangedLines fromOption(BaseTypeChecker checker) {
+    String file = checker.getOption(DivByZeroChecker.CHANGED_LINES_OPTION);
+    if (file == null) {
+      return null;
+    }
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UserError(
+          "Cannot read -A%s file %s: %s",
+          DivByZeroChecker.CHANGED_LINES_OPTION,
+          file,
+          e.getMessage());
+    }
+    DivByZeroChangedLines result = new DivByZeroChangedLines(checker);
+    if (lines.stream().anyMatch(line -> line.startsWith("@@ "))) {
+      result.readDiff(lines);
+    } else {
+      result.readRanges(lines, file);
+    }
+    return result;
+  }
+
+  private DivByZeroChangedLines(BaseTypeChecker checker) {
+    this.positions = Trees.instance(checker.getProcessingEnvironment()).getSourcePositions();
+  }
+
+  /** Read the added and removed lines of a unified diff. */
+  private void readDiff(List<String> lines) {
+    BitSet file = null;
+    int line = 0;
+    // The lines of the old and the new text that the current hunk has left.
+    int oldLeft = 0;
+    int newLeft = 0;
+    for (String text : lines) {
+      Matcher m;
+      if (oldLeft > 0 || newLeft > 0) {
+        if (text.startsWith("+")) {
+          file.set(line++);
+          newLeft--;
+        } else if (text.startsWith("-")) {
+          // Mark the lines on both sides of the removal.
+          file.set(Math.max(1, line - 1));
+          file.set(line);
+          oldLeft--;
+        } else if (!text.startsWith("\\")) {
+          // Context; "\ No newline at end of file" is neither.
+          line++;
+          oldLeft--;
+          newLeft--;
+        }
+      } else if ((m = DIFF_FILE.matcher(text)).find()) {
+        String path = m.group(1).trim();
+        file = path.equals("/dev/null") ? null : linesOf(path);
+      } else if (file != null && (m = DIFF_HUNK.matcher(text)).find()) {
+        oldLeft = m.group(1) == null ? 1 : Integer.parseInt(m.group(1));
+        line = Integer.parseInt(m.group(2));
+        newLeft = m.group(3) == null ? 1 : Integer.parseInt(m.group(3));
+        if (newLeft == 0) {
+          // Only removals: the number is that of the line before them.
+          line++;
+        }
+      }
+    }
+  }
+
+  /** Read a list of ranges. */
+  private void readRanges(List<String> lines, String source) {
+    for (String text : lines) {
+      text = text.trim();
+      if (text.isEmpty() || text.startsWith("#")) {
+        continue;
+      }
+      Matcher m = RANGE.matcher(text);
+      if (!m.matches()) {
+        throw new UserError(
+            "-A%s file %s: expected path:first-last, not %s",
+            DivByZeroChecker.CHANGED_LINES_OPTION,
+            source,
+            text);
+      }
+      int first = Integer.parseInt(m.group(2));
+      int last = m.group(3) == null ? first : Integer.parseInt(m.group(3));
+      linesOf(m.group(1)).set(first, last + 1);
+    }
+  }
+
+  /** The changed lines of a file, which are added to. */
+  private BitSet linesOf(String path) {
+    return changed.computeIfAbsent(path.replace('\\', '/'), p -> new BitSet());
+  }
+
+  /** Find the changed lines of a compilation unit, before it is checked. */
+  void setRoot(CompilationUnitTree root) {
+    this.root = root;
+    this.lineMap = root.getLineMap();
+    this.current = new BitSet();
+    String path = root.getSourceFile().toUri().getPath();
+    if (path == null) {
+      path = root.getSourceFile().getName().replace('\\', '/');
+    }
+    for (Map.Entry<String, BitSet> e : changed.entrySet()) {
+      String suffix = e.getKey().startsWith("/") ? e.getKey() : "/" + e.getKey();
+      if (path.endsWith(suffix) || path.equals(e.getKey())) {
+        current.or(e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns true if a tree of the current compilation unit contains a changed line.
+   *
+   * @param tree a method or other class member
+   * @return true if one of the lines the tree spans was changed
+   */
+  boolean isChanged(Tree tree) {
+    if (current.isEmpty()) {
+      return false;
+    }
+    long start = positions.getStartPosition(root, tree);
+    long end = positions.getEndPosition(root, tree);
+    if (start < 0 || end < start) {
+      // A tree that javac generated, such as a default constructor.
+      return false;
+    }
+    int first = (int) lineMap.getLineNumber(start);
+    int last = (int) lineMap.getLineNumber(end);
+    int next = current.nextSetBit(first);
+    return next >= 0 && next <= last;
+  }
+}
@@ -1,8 +1,259 @@
 package org.checkerframework.checker.dividebyzero;
 
+import com.sun.source.tree.Tree;
+import com.sun.source.util.Trees;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import javax.annotation.processing.SupportedOptions;
+import javax.tools.Diagnostic;
+import jdk.jfr.FlightRecorder;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.RelevantJavaTypes;
+import org.checkerframework.framework.source.DiagMessage;
+import org.checkerframework.javacutil.UserError;
 
-/** This is the entry point for pluggable type-checking. */
+/**
+ * This is the entry point for pluggable type-checking.
+ *
+ * <p>Options:
+ *
+ * <ul>
+ *   <li>{@code -AdbzCache=<dir>}: keep a per-method result cache in the given directory, and skip
+ *       the analysis of methods whose results are cached; see {@link DivByZeroResultCache}
+ *   <li>{@code -AdbzStats[=<file>]}: count and time the work done for each method, and write a
+ *       JSON report to the given file, by default {@code dbz-stats.json}; see {@link
+ *       DivByZeroStats}. The same measurements are always available as JFR events.
+ *   <li>{@code -AdbzSummaryOut=<file>}: write the inferred summaries of the methods and final
+ *       fields being compiled to the given file; see {@link DivByZeroSummaries}
+ *   <li>{@code -AdbzSummaryPath=<files>}: use the summaries in the given files, separated by the
+ *       path separator, for methods and fields on the classpath
+ *   <li>{@code -AdbzStubIndex=<files>}: use the qualifiers in the given index files, separated by
+ *       the path separator, for methods and fields on the classpath; see {@link StubIndexCompiler}
+ *   <li>{@code -AdbzSarif=<file>}: also write the {@code divide.by.zero} diagnostics to the given
+ *       SARIF file, as they are reported; see {@link DivByZeroSarif}
+ *   <li>{@code -AdbzMaxSteps=<n>} and {@code -AdbzMaxMillis=<n>}: the budget of the flow analysis
+ *       of one method, in transfer function calls and milliseconds; a method over budget is
+ *       checked without refined types, with a warning. See {@link DivByZeroAnalysis}.
+ *   <li>{@code -AdbzTypeCacheMegabytes=<n>}: bound each of the type factory's caches by the
+ *       estimated bytes it retains, as well as by its number of entries, {@code -AatfCacheSize};
+ *       see {@link DivByZeroTypeCache}
+ *   <li>{@code -AdbzMode=fast}: check without the flow analysis, for quick feedback before a
+ *       commit; see {@link #isFastMode()}. The default is {@code -AdbzMode=full}.
+ *   <li>{@code -AdbzMethodShard=<i>/<n>}: analyze and check only the {@code i}th of {@code n}
+ *       shares of the methods of each file, so that several javac runs can split a large class;
+ *       see {@link DivByZeroMethodShards}
+ *   <li>{@code -AdbzChangedLines=<file>}: analyze and check only the methods and other class
+ *       members that contain a line changed by the unified diff or list of line ranges in the given
+ *       file; see {@link DivByZeroChangedLines}
+ * </ul>
+ */
 @RelevantJavaTypes({Integer.class, Long.class})
-public class DivByZeroChecker extends BaseTypeChecker {}
+@SupportedOptions({
+  DivByZeroChecker.CACHE_OPTION,
+  DivByZeroChecker.STATS_OPTION,
+  DivByZeroChecker.SUMMARY_OUT_OPTION,
+  DivByZeroChecker.SUMMARY_PATH_OPTION,
+  DivByZeroChecker.STUB_INDEX_OPTION,
+  DivByZeroChecker.SARIF_OPTION,
+  DivByZeroChecker.MODE_OPTION,
+  DivByZeroChecker.MAX_STEPS_OPTION,
+  DivByZeroChecker.MAX_MILLIS_OPTION,
+  DivByZeroChecker.TYPE_CACHE_MEGABYTES_OPTION,
+  DivByZeroChecker.METHOD_SHARD_OPTION,
+  DivByZeroChecker.CHANGED_LINES_OPTION
+})
+public class DivByZeroChecker extends BaseTypeChecker {
+
+  /** The option that enables the per-method result cache. */
+  static final String CACHE_OPTION = "dbzCache";
+
+  /** The option that enables statistics. */
+  static final String STATS_OPTION = "dbzStats";
+
+  /** The option that names the file to write summaries to. */
+  static final String SUMMARY_OUT_OPTION = "dbzSummaryOut";
+
+  /** The option that lists the summary files of dependencies. */
+  static final String SUMMARY_PATH_OPTION = "dbzSummaryPath";
+
+  /** The option that lists the compiled stub index files. */
+  static final String STUB_INDEX_OPTION = "dbzStubIndex";
+
+  /** The option that names the SARIF file to write. */
+  static final String SARIF_OPTION = "dbzSarif";
+
+  /** The option that limits the transfer function calls of one method's flow analysis. */
+  static final String MAX_STEPS_OPTION = "dbzMaxSteps";
+
+  /** The option that limits the time of one method's flow analysis. */
+  static final String MAX_MILLIS_OPTION = "dbzMaxMillis";
+
+  /** The option that bounds the estimated bytes retained by each type cache. */
+  static final String TYPE_CACHE_MEGABYTES_OPTION = "dbzTypeCacheMegabytes";
+
+  /** The option that selects the methods that this run checks. */
+  static final String METHOD_SHARD_OPTION = "dbzMethodShard";
+
+  /** The option that names the file of changed lines to check. */
+  static final String CHANGED_LINES_OPTION = "dbzChangedLines";
+
+  /** The option that selects the full or the fast check. */
+  static final String MODE_OPTION = "dbzMode";
+
+  /**
+   * Returns true if {@code -AdbzMode=fast} was given. The fast check builds no control flow graph
+   * and runs no flow analysis. The type of an expression is its declared type, the qualifier of a
+   * literal or constant expression, or the summary of a method or final field; a divisor that is a
+   * local variable is also accepted when a comparison with a constant has shown it to be non-zero
+   * on every path to the division, as in {@code if (d != 0) { ... x / d ... }}; see {@link
+   * DivByZeroGuards}.
+   *
+   * <p>The fast check errs toward reporting. It accepts a division only when one of these facts
+   * proves the divisor non-zero, and the full check proves everything they prove, so the fast check
+   * may report a division that the full check accepts, but not the other way around. Other checks,
+   * such as passing a local variable to a {@code @NonZero} parameter inside a guard, see only the
+   * declared type of the variable and are reported too.
+   *
+   * @return true for the fast check, false for the full check
+   * @throws UserError if the option has a value other than {@code fast} or {@code full}
+   */
+  boolean isFastMode() {
+    String mode = getOption(MODE_OPTION);
+    if (mode == null || mode.equals("full")) {
+      return false;
+    }
+    if (mode.equals("fast")) {
+      return true;
+    }
+    throw new UserError("-A%s must be fast or full, not %s", MODE_OPTION, mode);
+  }
+
+  /** The result cache, or null if it is disabled or has not been used yet. */
+  private DivByZeroResultCache resultCache;
+
+  /** Returns the per-method result cache, or null if {@code -AdbzCache} was not given. */
+  DivByZeroResultCache getResultCache() {
+    if (resultCache == null && hasOption(CACHE_OPTION)) {
+      resultCache = new DivByZeroResultCache(Paths.get(getOption(CACHE_OPTION)), this);
+    }
+    return resultCache;
+  }
+
+  /** The statistics, or null if they are disabled; see {@link #getStats()}. */
+  private DivByZeroStats stats;
+
+  /** Whether {@link #stats} has been initialized. */
+  private boolean statsInitialized;
+
+  /**
+   * Returns the statistics, or null if {@code -AdbzStats} was not given and the JVM was not started
+   * with a flight recording.
+   */
+  DivByZeroStats getStats() {
+    if (!statsInitialized) {
+      statsInitialized = true;
+      if (hasOption(STATS_OPTION)) {
+        String file = getOption(STATS_OPTION);
+        stats = new DivByZeroStats(Paths.get(file == null ? "dbz-stats.json" : file));
+      } else if (FlightRecorder.isInitialized()) {
+        stats = new DivByZeroStats(null);
+      }
+    }
+    return stats;
+  }
+
+  /** The SARIF writer, or null if it is disabled or failed; see {@link #getSarif()}. */
+  private DivByZeroSarif sarif;
+
+  /** Whether {@link #sarif} has been initialized. */
+  private boolean sarifInitialized;
+
+  /** Returns the SARIF writer, or null if {@code -AdbzSarif} was not given or the file failed. */
+  private DivByZeroSarif getSarif() {
+    if (!sarifInitialized) {
+      sarifInitialized = true;
+      String file = getOption(SARIF_OPTION);
+      if (file != null) {
+        try {
+          sarif =
+              new DivByZeroSarif(
+                  Paths.get(file), Trees.instance(processingEnv).getSourcePositions());
+        } catch (IOException e) {
+          message(Diagnostic.Kind.WARNING, "Cannot write %s: %s", SARIF_OPTION, e.getMessage());
+        }
+      }
+    }
+    return sarif;
+  }
+
+  @Override
+  public void report(Object source, DiagMessage d) {
+    // Suppressed diagnostics are recorded too: a suppression outside the method is not part of
+    // its key, and replayed diagnostics come through here, and so through suppression, again.
+    if (resultCache != null) {
+      resultCache.record(source, d);
+    }
+    // Cached diagnostics are replayed through here too, so they reach the SARIF file as well.
+    if (d.getMessageKey().equals(DivByZeroSarif.RULE_ID)
+        && source instanceof Tree
+        && !shouldSuppressWarnings(source, d.getMessageKey())) {
+      writeSarif((Tree) source, d);
+    }
+    super.report(source, d);
+  }
+
+  /** Write a {@code divide.by.zero} diagnostic to the SARIF file, as javac will report it. */
+  private void writeSarif(Tree division, DiagMessage d) {
+    DivByZeroSarif writer = getSarif();
+    if (writer == null) {
+      return;
+    }
+    Object[] args = d.getArgs();
+    String divisor = args.length > 0 ? String.valueOf(args[0]) : "";
+    Diagnostic.Kind kind = d.getKind();
+    if (kind == Diagnostic.Kind.ERROR && hasOption("warns")) {
+      kind = Diagnostic.Kind.MANDATORY_WARNING;
+    }
+    String format = getMessagesProperties().getProperty(d.getMessageKey(), d.getMessageKey());
+    try {
+      writer.divisionByZero(
+          getTypeFactory().getRoot(), division, kind, String.format(format, args), divisor);
+    } catch (IOException e) {
+      message(Diagnostic.Kind.WARNING, "Cannot write %s: %s", SARIF_OPTION, e.getMessage());
+      sarif = null;
+    }
+  }
+
+  @Override
+  public void typeProcessingOver() {
+    if (resultCache != null) {
+      resultCache.flush();
+    }
+    DivByZeroAnnotatedTypeFactory factory = (DivByZeroAnnotatedTypeFactory) getTypeFactory();
+    if (factory != null) {
+      try {
+        factory.getSummaries().write();
+      } catch (IOException e) {
+        message(
+            Diagnostic.Kind.WARNING, "Cannot write %s: %s", SUMMARY_OUT_OPTION, e.getMessage());
+      }
+    }
+    if (getSarif() != null) {
+      try {
+        sarif.close();
+      } catch (IOException e) {
+        message(Diagnostic.Kind.WARNING, "Cannot write %s: %s", SARIF_OPTION, e.getMessage());
+      }
+      sarif = null;
+    }
+    if (stats != null) {
+      try {
+        stats.write(factory == null ? List.of() : factory.getTypeCaches());
+      } catch (IOException e) {
+        message(Diagnostic.Kind.WARNING, "Cannot write %s: %s", STATS_OPTION, e.getMessage());
+      }
+    }
+    super.typeProcessingOver();
+  }
+}
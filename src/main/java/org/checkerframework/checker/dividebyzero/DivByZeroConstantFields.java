@@ -0,0 +1,84 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+
+/**
+ * The points in the lattice of the {@code static final} int and long fields whose initializers are
+ * compile-time constants, so that {@code x / BUCKET_COUNT} is checked with the constant's value
+ * rather than with the field's unannotated declaration.
+ *
+ * <p>The table of a class is built the first time one of its fields is used, from the constant
+ * values that javac records for all of its fields, and is kept for the rest of the compilation.
+ * Later uses of any field of the class are a lookup. This works as well for classes on the
+ * classpath, whose class files record the constant values, as for classes being compiled, and it
+ * needs neither source nor {@code -AdbzSummaryPath}.
+ */
+final class DivByZeroConstantFields {
+
+  /** The lattice, for the point of each value. */
+  private final DivByZeroLattice lattice;
+
+  /** The table of each class looked up so far: the point of each of its constant fields. */
+  private final Map<TypeElement, Map<VariableElement, Integer>> tables = new IdentityHashMap<>();
+
+  DivByZeroConstantFields(DivByZeroLattice lattice) {
+    this.lattice = lattice;
+  }
+
+  /**
+   * Returns the point in the lattice of a constant field.
+   *
+   * @param element the element of a use of a variable or a call
+   * @return the ordinal of the point of the field's value, or null if the element is not a {@code
+   *     static final} int or long field with a constant initializer
+   */
+  Integer pointOf(Element element) {
+    if (element == null || element.getKind() != ElementKind.FIELD) {
+      return null;
+    }
+    Element owner = element.getEnclosingElement();
+    if (!(owner instanceof TypeElement)) {
+      return null;
+    }
+    Map<VariableElement, Integer> table = tables.get(owner);
+    if (table == null) {
+      table = tabulate((TypeElement) owner);
+      tables.put((TypeElement) owner, table);
+    }
+    return table.get(element);
+  }
+
+  /** Build the table of a class. */
+  private Map<VariableElement, Integer> tabulate(TypeElement type) {
+    Map<VariableElement, Integer> table = null;
+    for (Element member : type.getEnclosedElements()) {
+      if (member.getKind() != ElementKind.FIELD
+          || !member.getModifiers().contains(Modifier.STATIC)
+          || !member.getModifiers().contains(Modifier.FINAL)) {
+        continue;
+      }
+      TypeKind kind = member.asType().getKind();
+      if (kind != TypeKind.INT && kind != TypeKind.LONG) {
+        continue;
+      }
+      Object value = ((VariableElement) member).getConstantValue();
+      if (!(value instanceof Number)) {
+        continue;
+      }
+      if (table == null) {
+        table = new IdentityHashMap<>();
+      }
+      int signs = SignDomain.ofValue(((Number) value).longValue());
+      table.put((VariableElement) member, lattice.ordinal(SignQualifiers.forSigns(signs)));
+    }
+    return table == null ? Collections.emptyMap() : table;
+  }
+}
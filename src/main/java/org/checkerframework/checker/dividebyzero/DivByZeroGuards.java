@@ -0,0 +1,360 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.ConditionalExpressionTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.IfTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import java.util.List;
+import javax.lang.model.element.Element;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * Recognizes divisors that a comparison with a constant has shown to be non-zero, without the flow
+ * analysis. This is what {@code -AdbzMode=fast} uses instead of refined types. A divisor is guarded
+ * if it is a local variable or parameter and it is
+ *
+ * <ul>
+ *   <li>in the branch of an {@code if} statement or a conditional expression, or in the body of a
+ *       {@code while} or {@code for} loop, whose condition shows it is non-zero on that branch, as
+ *       in {@code if (d != 0) { ... x / d ... }};
+ *   <li>in the right operand of {@code &&} or {@code ||}, whose left operand shows it is non-zero
+ *       when the right operand is evaluated, as in {@code d > 0 && x / d > 1}; or
+ *   <li>in a statement after {@code if (d == 0) return;} or any other {@code if} statement without
+ *       an {@code else} whose branch cannot complete normally, in the same block.
+ * </ul>
+ *
+ * <p>A condition shows a variable is non-zero if it compares the variable with a constant, or is a
+ * negation, conjunction or disjunction of such comparisons. The variable must not be assigned
+ * anywhere between the guard and the division, including in the division's own statement and in
+ * the rest of the guarded branch; this is checked syntactically, so a guard is sometimes rejected
+ * although the assignment cannot happen before the division. Fields are never guarded, because a
+ * call between the guard and the division may change them.
+ */
+final class DivByZeroGuards {
+
+  /** The type factory, for the values of constant expressions. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  DivByZeroGuards(DivByZeroAnnotatedTypeFactory factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Returns true if a guard shows that a divisor is not zero.
+   *
+   * @param divisor the path to the divisor of a division or remainder
+   * @return true if the divisor is a local variable that a guard shows is non-zero
+   */
+  boolean isGuarded(TreePath divisor) {
+    Element variable = localVariable(divisor.getLeaf());
+    if (variable == null) {
+      return false;
+    }
+    Tree child = divisor.getLeaf();
+    for (TreePath path = divisor.getParentPath(); path != null; path = path.getParentPath()) {
+      Tree parent = path.getLeaf();
+      switch (parent.getKind()) {
+        case IF:
+          IfTree ifTree = (IfTree) parent;
+          if (child == ifTree.getThenStatement()
+              && nonZeroWhen(ifTree.getCondition(), true, variable)) {
+            return notAssigned(variable, ifTree.getCondition(), child);
+          }
+          if (child == ifTree.getElseStatement()
+              && nonZeroWhen(ifTree.getCondition(), false, variable)) {
+            return notAssigned(variable, ifTree.getCondition(), child);
+          }
+          break;
+        case CONDITIONAL_EXPRESSION:
+          ConditionalExpressionTree conditional = (ConditionalExpressionTree) parent;
+          if (child == conditional.getTrueExpression()
+              && nonZeroWhen(conditional.getCondition(), true, variable)) {
+            return notAssigned(variable, conditional.getCondition(), child);
+          }
+          if (child == conditional.getFalseExpression()
+              && nonZeroWhen(conditional.getCondition(), false, variable)) {
+            return notAssigned(variable, conditional.getCondition(), child);
+          }
+          break;
+        case CONDITIONAL_AND:
+        case CONDITIONAL_OR:
+          BinaryTree logical = (BinaryTree) parent;
+          boolean whenRightIsEvaluated = parent.getKind() == Tree.Kind.CONDITIONAL_AND;
+          if (child == logical.getRightOperand()
+              && nonZeroWhen(logical.getLeftOperand(), whenRightIsEvaluated, variable)) {
+            return notAssigned(variable, logical.getLeftOperand(), child);
+          }
+          break;
+        case WHILE_LOOP:
+          WhileLoopTree whileLoop = (WhileLoopTree) parent;
+          if (child == whileLoop.getStatement()
+              && nonZeroWhen(whileLoop.getCondition(), true, variable)) {
+            return notAssigned(variable, whileLoop.getCondition(), child);
+          }
+          break;
+        case FOR_LOOP:
+          ForLoopTree forLoop = (ForLoopTree) parent;
+          if (child == forLoop.getStatement()
+              && forLoop.getCondition() != null
+              && nonZeroWhen(forLoop.getCondition(), true, variable)) {
+            return notAssigned(variable, forLoop.getCondition(), child);
+          }
+          break;
+        case BLOCK:
+          if (guardedByEarlyExit((BlockTree) parent, child, variable)) {
+            return true;
+          }
+          break;
+        case METHOD:
+        case CLASS:
+        case ENUM:
+        case INTERFACE:
+        case RECORD:
+          // A guard outside a method does not hold when the method runs.
+          return false;
+        default:
+          break;
+      }
+      child = parent;
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if a statement before the given one in a block exits when the variable is zero,
+   * and the variable is not assigned from there to the given statement.
+   */
+  private boolean guardedByEarlyExit(BlockTree block, Tree statement, Element variable) {
+    List<? extends StatementTree> statements = block.getStatements();
+    int end = statements.indexOf(statement);
+    for (int i = end - 1; i >= 0; i--) {
+      StatementTree previous = statements.get(i);
+      if (previous.getKind() == Tree.Kind.IF) {
+        IfTree ifTree = (IfTree) previous;
+        if (ifTree.getElseStatement() == null
+            && !completesNormally(ifTree.getThenStatement())
+            && nonZeroWhen(ifTree.getCondition(), false, variable)) {
+          return notAssigned(variable, statements.subList(i, end + 1).toArray(new Tree[0]));
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns false if a statement certainly cannot complete normally: it is a {@code return}, {@code
+   * throw}, {@code break} or {@code continue}, or a block that ends with one.
+   */
+  private static boolean completesNormally(StatementTree statement) {
+    switch (statement.getKind()) {
+      case RETURN:
+      case THROW:
+      case BREAK:
+      case CONTINUE:
+        return false;
+      case BLOCK:
+        List<? extends StatementTree> statements = ((BlockTree) statement).getStatements();
+        return statements.isEmpty() || completesNormally(statements.get(statements.size() - 1));
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns true if the given condition shows that the variable is not zero when the condition has
+   * the given value.
+   */
+  private boolean nonZeroWhen(ExpressionTree condition, boolean value, Element variable) {
+    switch (condition.getKind()) {
+      case PARENTHESIZED:
+        return nonZeroWhen(((ParenthesizedTree) condition).getExpression(), value, variable);
+      case LOGICAL_COMPLEMENT:
+        return nonZeroWhen(((UnaryTree) condition).getExpression(), !value, variable);
+      case CONDITIONAL_AND:
+      case CONDITIONAL_OR:
+        // a && b is true only if both are, and a || b is false only if both are.
+        if (value != (condition.getKind() == Tree.Kind.CONDITIONAL_AND)) {
+          return false;
+        }
+        BinaryTree logical = (BinaryTree) condition;
+        return nonZeroWhen(logical.getLeftOperand(), value, variable)
+            || nonZeroWhen(logical.getRightOperand(), value, variable);
+      case EQUAL_TO:
+      case NOT_EQUAL_TO:
+      case LESS_THAN:
+      case LESS_THAN_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_EQUAL:
+        return comparisonShowsNonZero((BinaryTree) condition, value, variable);
+      default:
+        return false;
+    }
+  }
+
+  /** Returns true if a comparison of the variable with a constant shows it is not zero. */
+  private boolean comparisonShowsNonZero(BinaryTree comparison, boolean value, Element variable) {
+    Tree.Kind kind = value ? comparison.getKind() : negate(comparison.getKind());
+    Number constant;
+    if (variable.equals(localVariable(comparison.getLeftOperand()))) {
+      constant = factory.constantValue(comparison.getRightOperand());
+    } else if (variable.equals(localVariable(comparison.getRightOperand()))) {
+      constant = factory.constantValue(comparison.getLeftOperand());
+      kind = swap(kind);
+    } else {
+      return false;
+    }
+    if (constant == null) {
+      return false;
+    }
+    int bound = SignDomain.ofValue(constant.longValue());
+    int signs;
+    switch (kind) {
+      case EQUAL_TO:
+        signs = SignDomain.refineEqual(SignDomain.ANY, bound);
+        break;
+      case NOT_EQUAL_TO:
+        signs = SignDomain.refineNotEqual(SignDomain.ANY, bound);
+        break;
+      case LESS_THAN:
+        signs = SignDomain.refineLessThan(SignDomain.ANY, bound);
+        break;
+      case LESS_THAN_EQUAL:
+        signs = SignDomain.refineLessThanOrEqual(SignDomain.ANY, bound);
+        break;
+      case GREATER_THAN:
+        signs = SignDomain.refineGreaterThan(SignDomain.ANY, bound);
+        break;
+      case GREATER_THAN_EQUAL:
+        signs = SignDomain.refineGreaterThanOrEqual(SignDomain.ANY, bound);
+        break;
+      default:
+        return false;
+    }
+    return !SignDomain.mayBeZero(signs);
+  }
+
+  /** The comparison that is true exactly when the given one is false. */
+  private static Tree.Kind negate(Tree.Kind kind) {
+    switch (kind) {
+      case EQUAL_TO:
+        return Tree.Kind.NOT_EQUAL_TO;
+      case NOT_EQUAL_TO:
+        return Tree.Kind.EQUAL_TO;
+      case LESS_THAN:
+        return Tree.Kind.GREATER_THAN_EQUAL;
+      case LESS_THAN_EQUAL:
+        return Tree.Kind.GREATER_THAN;
+      case GREATER_THAN:
+        return Tree.Kind.LESS_THAN_EQUAL;
+      case GREATER_THAN_EQUAL:
+        return Tree.Kind.LESS_THAN;
+      default:
+        throw new IllegalArgumentException(kind.toString());
+    }
+  }
+
+  /** The comparison with its operands swapped: {@code x < y} is {@code y > x}. */
+  private static Tree.Kind swap(Tree.Kind kind) {
+    switch (kind) {
+      case LESS_THAN:
+        return Tree.Kind.GREATER_THAN;
+      case LESS_THAN_EQUAL:
+        return Tree.Kind.GREATER_THAN_EQUAL;
+      case GREATER_THAN:
+        return Tree.Kind.LESS_THAN;
+      case GREATER_THAN_EQUAL:
+        return Tree.Kind.LESS_THAN_EQUAL;
+      default:
+        return kind;
+    }
+  }
+
+  /** The local variable or parameter that an expression names, or null. */
+  private static Element localVariable(Tree tree) {
+    while (tree.getKind() == Tree.Kind.PARENTHESIZED) {
+      tree = ((ParenthesizedTree) tree).getExpression();
+    }
+    if (tree.getKind() != Tree.Kind.IDENTIFIER) {
+      return null;
+    }
+    Element element = TreeUtils.elementFromUse((IdentifierTree) tree);
+    if (element == null) {
+      return null;
+    }
+    switch (element.getKind()) {
+      case LOCAL_VARIABLE:
+      case PARAMETER:
+      case RESOURCE_VARIABLE:
+      case EXCEPTION_PARAMETER:
+      case BINDING_VARIABLE:
+        return element;
+      default:
+        return null;
+    }
+  }
+
+  /** Returns true if none of the given trees assigns the variable. */
+  private static boolean notAssigned(Element variable, Tree... trees) {
+    AssignmentFinder finder = new AssignmentFinder(variable);
+    for (Tree tree : trees) {
+      finder.scan(tree, null);
+      if (finder.found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Looks for an assignment, compound assignment, increment or decrement of a variable. */
+  private static final class AssignmentFinder extends TreeScanner<Void, Void> {
+
+    /** The variable. */
+    private final Element variable;
+
+    /** Whether an assignment has been found. */
+    boolean found;
+
+    AssignmentFinder(Element variable) {
+      this.variable = variable;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentTree tree, Void p) {
+      found |= variable.equals(localVariable(tree.getVariable()));
+      return super.visitAssignment(tree, p);
+    }
+
+    @Override
+    public Void visitCompoundAssignment(CompoundAssignmentTree tree, Void p) {
+      found |= variable.equals(localVariable(tree.getVariable()));
+      return super.visitCompoundAssignment(tree, p);
+    }
+
+    @Override
+    public Void visitUnary(UnaryTree tree, Void p) {
+      switch (tree.getKind()) {
+        case PREFIX_INCREMENT:
+        case PREFIX_DECREMENT:
+        case POSTFIX_INCREMENT:
+        case POSTFIX_DECREMENT:
+          found |= variable.equals(localVariable(tree.getExpression()));
+          break;
+        default:
+          break;
+      }
+      return super.visitUnary(tree, p);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+/**
+ * A precomputed view of the qualifier hierarchy. Each qualifier gets a dense ordinal, and every
+ * binary operation over the lattice (least upper bound, greatest lower bound, and the transfer
+ * rules tabulated by {@link DivByZeroTransfer}) is stored as a flat {@code size() * size()} table
+ * of ordinals. Once the lattice is built, no lookup walks the {@link QualifierHierarchy} or builds
+ * a new {@link AnnotationMirror}.
+ */
+final class DivByZeroLattice {
+
+  /** The interned mirror for each point, indexed by ordinal. */
+  private final AnnotationMirror[] points;
+
+  /** Maps the canonical name of each qualifier to its ordinal. */
+  private final Map<String, Integer> ordinals;
+
+  /** The ordinal of the top of the lattice. */
+  private final int top;
+
+  /** The ordinal of the bottom of the lattice. */
+  private final int bottom;
+
+  /** Least upper bounds, as a flat table. */
+  private final int[] lub;
+
+  /** Greatest lower bounds, as a flat table. */
+  private final int[] glb;
+
+  /**
+   * Precompute the lattice for the qualifiers supported by the given factory. Ordinals are assigned
+   * in order of qualifier name, so they are stable from one run to the next.
+   *
+   * @param factory the factory whose qualifier hierarchy to precompute
+   */
+  DivByZeroLattice(AnnotatedTypeFactory factory) {
+    Elements elements = factory.getElementUtils();
+    List<Class<? extends Annotation>> qualifiers =
+        new ArrayList<>(factory.getSupportedTypeQualifiers());
+    qualifiers.sort(Comparator.comparing(Class::getName));
+
+    points = new AnnotationMirror[qualifiers.size()];
+    ordinals = new HashMap<>();
+    for (int i = 0; i < points.length; i++) {
+      points[i] = AnnotationBuilder.fromClass(elements, qualifiers.get(i));
+      ordinals.put(qualifiers.get(i).getCanonicalName(), i);
+    }
+
+    QualifierHierarchy hierarchy = factory.getQualifierHierarchy();
+    top = ordinal(hierarchy.getTopAnnotations().iterator().next());
+    bottom = ordinal(hierarchy.getBottomAnnotations().iterator().next());
+    lub = tabulate(hierarchy::leastUpperBoundQualifiersOnly);
+    glb = tabulate(hierarchy::greatestLowerBoundQualifiersOnly);
+  }
+
+  /** The number of points in the lattice. */
+  int size() {
+    return points.length;
+  }
+
+  /** The ordinal of the top of the lattice. */
+  int top() {
+    return top;
+  }
+
+  /** The ordinal of the bottom of the lattice. */
+  int bottom() {
+    return bottom;
+  }
+
+  /** The interned mirror for the point with the given ordinal. */
+  AnnotationMirror mirror(int ordinal) {
+    return points[ordinal];
+  }
+
+  /** The ordinal of the given qualifier class. */
+  int ordinal(Class<? extends Annotation> qualifier) {
+    Integer result = ordinals.get(qualifier.getCanonicalName());
+    if (result == null) {
+      throw new IllegalArgumentException(qualifier.toString());
+    }
+    return result;
+  }
+
+  /**
+   * The ordinal of the given mirror, which need not be one of the interned mirrors.
+   *
+   * @param anno a point in the lattice
+   * @return its ordinal
+   */
+  int ordinal(AnnotationMirror anno) {
+    for (int i = 0; i < points.length; i++) {
+      if (points[i] == anno) {
+        return i;
+      }
+    }
+    Integer result = ordinals.get(AnnotationUtils.annotationName(anno));
+    if (result == null) {
+      throw new IllegalArgumentException(anno.toString());
+    }
+    return result;
+  }
+
+  /** Compute the least-upper-bound of two points in the lattice */
+  int lub(int x, int y) {
+    return lub[x * points.length + y];
+  }
+
+  /** Compute the greatest-lower-bound of two points in the lattice */
+  int glb(int x, int y) {
+    return glb[x * points.length + y];
+  }
+
+  /**
+   * Evaluate a binary rule over the lattice for every pair of points.
+   *
+   * @param rule the rule to tabulate
+   * @return a table to pass to {@link #apply}
+   */
+  int[] tabulate(BinaryOperator<AnnotationMirror> rule) {
+    int n = points.length;
+    int[] table = new int[n * n];
+    for (int x = 0; x < n; x++) {
+      for (int y = 0; y < n; y++) {
+        table[x * n + y] = ordinal(rule.apply(points[x], points[y]));
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Look up a rule computed by {@link #tabulate}.
+   *
+   * @param table the tabulated rule
+   * @param x the ordinal of the first argument
+   * @param y the ordinal of the second argument
+   * @return the ordinal of the result
+   */
+  int apply(int[] table, int x, int y) {
+    return table[x * points.length + y];
+  }
+}
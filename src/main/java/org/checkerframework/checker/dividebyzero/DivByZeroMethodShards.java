@@ -0,0 +1,134 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * The methods that one of several javac runs over the same sources checks, for {@code
+ * -AdbzMethodShard=<i>/<n>}. The outermost methods of each compilation unit, those not inside
+ * another method, are dealt to {@code n} shards, and the run with index {@code i} analyzes and
+ * visits only the methods of shard {@code i}. The methods of a local or anonymous class, and its
+ * lambdas, go with their outermost method. Code outside methods, such as field initializers, is
+ * checked by every run, and its diagnostics are merged by the driver like those of any other
+ * shard.
+ *
+ * <p>The flow analysis of a method does not depend on that of another method, and the summaries of
+ * {@link DivByZeroSummaries} are computed from source, so every method gets the same diagnostics in
+ * its shard as in a single run. Each run still parses and attributes the whole file.
+ *
+ * <p>Methods are dealt largest first, each to the shard with the fewest characters of method
+ * source so far, so that the runs take about as long as one another. The order depends only on the
+ * source, so every run computes the same assignment.
+ */
+final class DivByZeroMethodShards {
+
+  /** The index of the shard that this run checks. */
+  private final int index;
+
+  /** The number of shards. */
+  private final int count;
+
+  /** The source positions of trees. */
+  private final SourcePositions positions;
+
+  /** The shard of each outermost method of the current compilation unit. */
+  private final Map<MethodTree, Integer> shards = new IdentityHashMap<>();
+
+  /**
+   * Parse the option.
+   *
+   * @param checker the checker, whose option to parse
+   * @return the method shards, or null if the option was not given
+   * @throws UserError if the option is not of the form {@code i/n} with {@code 0 <= i < n}
+   */
+  static DivByZeroMethodShards fromOption(BaseTypeChecker checker) {
+    String value = checker.getOption(DivByZeroChecker.METHOD_SHARD_OPTION);
+    if (value == null) {
+      return null;
+    }
+    int slash = value.indexOf('/');
+    try {
+      int index = Integer.parseInt(value.substring(0, Math.max(0, slash)));
+      int count = Integer.parseInt(value.substring(slash + 1));
+      if (index >= 0 && index < count) {
+        return new DivByZeroMethodShards(index, count, checker);
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new UserError(
+        "-A%s must be <index>/<count> with 0 <= index < count, not %s",
+        DivByZeroChecker.METHOD_SHARD_OPTION,
+        value);
+  }
+
+  private DivByZeroMethodShards(int index, int count, BaseTypeChecker checker) {
+    this.index = index;
+    this.count = count;
+    this.positions = Trees.instance(checker.getProcessingEnvironment()).getSourcePositions();
+  }
+
+  /** Deal the outermost methods of a compilation unit to the shards. */
+  void assign(CompilationUnitTree root) {
+    shards.clear();
+    List<MethodTree> methods = new ArrayList<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitClass(ClassTree tree, Void p) {
+        for (Tree member : tree.getMembers()) {
+          if (member instanceof MethodTree) {
+            methods.add((MethodTree) member);
+          } else if (member instanceof ClassTree) {
+            scan(member, p);
+          }
+        }
+        return null;
+      }
+    }.scan(root, null);
+
+    long[] sizes = new long[methods.size()];
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < sizes.length; i++) {
+      MethodTree method = methods.get(i);
+      sizes[i] =
+          positions.getEndPosition(root, method) - positions.getStartPosition(root, method);
+      order.add(i);
+    }
+    // Largest first; equal sizes in source order.
+    order.sort(Comparator.comparingLong((Integer i) -> -sizes[i]).thenComparingInt(i -> i));
+    long[] load = new long[count];
+    for (int i : order) {
+      int smallest = 0;
+      for (int s = 1; s < count; s++) {
+        if (load[s] < load[smallest]) {
+          smallest = s;
+        }
+      }
+      load[smallest] += Math.max(1, sizes[i]);
+      shards.put(methods.get(i), smallest);
+    }
+  }
+
+  /**
+   * Returns true if this run checks the given method.
+   *
+   * @param method an outermost method of the current compilation unit
+   * @return true if the method is in this run's shard
+   */
+  boolean isInShard(MethodTree method) {
+    Integer shard = shards.get(method);
+    return shard == null || shard == index;
+  }
+}
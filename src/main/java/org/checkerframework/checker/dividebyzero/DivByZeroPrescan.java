@@ -0,0 +1,226 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * A syntactic scan that decides whether the flow analysis of some code can be skipped. Refined
+ * types matter only where the visitor compares a type against something other than {@code @Top}: at
+ * an int or long division or remainder, and where a value flows into a declaration that has a
+ * qualifier. So the analysis is needed only if the code contains
+ *
+ * <ul>
+ *   <li>an int or long {@code /}, {@code %}, {@code /=} or {@code %=};
+ *   <li>a written annotation, such as on a local variable, a parameter or a cast;
+ *   <li>a lambda or member reference, whose target type is hard to see syntactically; or
+ *   <li>a use of a field, method or variable whose declared type mentions a qualifier other than
+ *       {@code @Top}, including through stub files.
+ * </ul>
+ *
+ * <p>Local and anonymous classes are scanned as part of the code that contains them, because their
+ * analyses start from the store at their declaration.
+ */
+final class DivByZeroPrescan {
+
+  /** The operators at which the visitor may report an error. */
+  private static final Set<Tree.Kind> DIVISIONS =
+      EnumSet.of(
+          Tree.Kind.DIVIDE,
+          Tree.Kind.DIVIDE_ASSIGNMENT,
+          Tree.Kind.REMAINDER,
+          Tree.Kind.REMAINDER_ASSIGNMENT);
+
+  /** The type factory, for the declared types of elements. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  /** The top qualifier. */
+  private final AnnotationMirror top;
+
+  /** Whether the declared type of each element looked at so far mentions a qualifier. */
+  private final Map<Element, Boolean> qualifiedDeclarations = new IdentityHashMap<>();
+
+  DivByZeroPrescan(DivByZeroAnnotatedTypeFactory factory, AnnotationMirror top) {
+    this.factory = factory;
+    this.top = top;
+  }
+
+  /**
+   * Returns true if the flow analysis of the given code may refine a type that the visitor uses.
+   *
+   * @param code a method, or the initializer of a field or an initializer block
+   * @return false if the analysis of the code can be skipped
+   */
+  boolean needsFlow(Tree code) {
+    Scanner scanner = new Scanner();
+    scanner.scan(code, null);
+    return scanner.found;
+  }
+
+  /** Finds the first tree that needs the flow analysis. */
+  private final class Scanner extends TreeScanner<Void, Void> {
+
+    /** Whether a tree that needs the flow analysis has been found. */
+    boolean found = false;
+
+    @Override
+    public Void scan(Tree tree, Void p) {
+      if (found || tree == null) {
+        return null;
+      }
+      return super.scan(tree, p);
+    }
+
+    @Override
+    public Void visitBinary(BinaryTree tree, Void p) {
+      if (DIVISIONS.contains(tree.getKind()) && isInt(TreeUtils.typeOf(tree))) {
+        found = true;
+        return null;
+      }
+      return super.visitBinary(tree, p);
+    }
+
+    @Override
+    public Void visitCompoundAssignment(CompoundAssignmentTree tree, Void p) {
+      if (DIVISIONS.contains(tree.getKind()) && isInt(TreeUtils.typeOf(tree.getExpression()))) {
+        found = true;
+        return null;
+      }
+      return super.visitCompoundAssignment(tree, p);
+    }
+
+    @Override
+    public Void visitAnnotation(AnnotationTree tree, Void p) {
+      found = true;
+      return null;
+    }
+
+    @Override
+    public Void visitLambdaExpression(LambdaExpressionTree tree, Void p) {
+      found = true;
+      return null;
+    }
+
+    @Override
+    public Void visitMemberReference(MemberReferenceTree tree, Void p) {
+      found = true;
+      return null;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree tree, Void p) {
+      if (tree.getName().contentEquals("this") || tree.getName().contentEquals("super")) {
+        return null;
+      }
+      found = isQualified(TreeUtils.elementFromUse(tree));
+      return null;
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree tree, Void p) {
+      found = isQualified(TreeUtils.elementFromUse(tree));
+      return super.visitMemberSelect(tree, p);
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree tree, Void p) {
+      found = isQualified(TreeUtils.elementFromUse(tree));
+      return super.visitMethodInvocation(tree, p);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree tree, Void p) {
+      found = isQualified(TreeUtils.elementFromUse(tree));
+      return super.visitNewClass(tree, p);
+    }
+  }
+
+  private static boolean isInt(TypeMirror type) {
+    return type.getKind() == TypeKind.INT || type.getKind() == TypeKind.LONG;
+  }
+
+  /** Returns true if the declared type of a variable or method mentions a non-top qualifier. */
+  private boolean isQualified(Element element) {
+    if (element == null) {
+      return false;
+    }
+    ElementKind kind = element.getKind();
+    if (kind.isClass()
+        || kind.isInterface()
+        || kind == ElementKind.PACKAGE
+        || kind == ElementKind.TYPE_PARAMETER
+        || kind == ElementKind.OTHER) {
+      // Type names have no values.
+      return false;
+    }
+    Boolean qualified = qualifiedDeclarations.get(element);
+    if (qualified == null) {
+      qualified = mentionsQualifier(factory.getAnnotatedType(element));
+      qualifiedDeclarations.put(element, qualified);
+    }
+    return qualified;
+  }
+
+  /**
+   * Returns true if the given declared type has a qualifier other than top on itself or on a type
+   * it is built from. The bounds of type variables are not inspected: an unannotated use of a type
+   * variable stands for its instantiation, which the code names elsewhere.
+   */
+  private boolean mentionsQualifier(AnnotatedTypeMirror type) {
+    for (AnnotationMirror anno : type.getPrimaryAnnotations()) {
+      if (!AnnotationUtils.areSame(anno, top)) {
+        return true;
+      }
+    }
+    switch (type.getKind()) {
+      case DECLARED:
+        for (AnnotatedTypeMirror arg : ((AnnotatedDeclaredType) type).getTypeArguments()) {
+          if (mentionsQualifier(arg)) {
+            return true;
+          }
+        }
+        return false;
+      case ARRAY:
+        return mentionsQualifier(((AnnotatedArrayType) type).getComponentType());
+      case WILDCARD:
+        return mentionsQualifier(((AnnotatedWildcardType) type).getExtendsBound());
+      case EXECUTABLE:
+        AnnotatedExecutableType method = (AnnotatedExecutableType) type;
+        if (mentionsQualifier(method.getReturnType())) {
+          return true;
+        }
+        for (AnnotatedTypeMirror param : method.getParameterTypes()) {
+          if (mentionsQualifier(param)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        return false;
+    }
+  }
+}
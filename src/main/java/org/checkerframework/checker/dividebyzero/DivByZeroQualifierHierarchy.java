@@ -0,0 +1,37 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+import org.checkerframework.framework.type.NoElementQualifierHierarchy;
+
+/**
+ * The qualifier hierarchy of the Divide By Zero Checker, with the widening operator of {@link
+ * SignDomain}. The flow analysis widens at a loop head after {@link
+ * DivByZeroAnalysis#MAX_COUNT_BEFORE_WIDENING} visits, which bounds the iterations over any loop by
+ * a small constant, however large the constants in the loop are.
+ */
+final class DivByZeroQualifierHierarchy extends NoElementQualifierHierarchy {
+
+  /** The type factory, whose lattice interns the qualifiers that widening returns. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  DivByZeroQualifierHierarchy(
+      Collection<Class<? extends Annotation>> qualifierClasses,
+      Elements elements,
+      DivByZeroAnnotatedTypeFactory factory) {
+    super(qualifierClasses, elements, factory);
+    this.factory = factory;
+  }
+
+  @Override
+  public AnnotationMirror widenedUpperBound(
+      AnnotationMirror newQualifier, AnnotationMirror previousQualifier) {
+    int widened =
+        SignDomain.widen(
+            SignQualifiers.signsOf(previousQualifier), SignQualifiers.signsOf(newQualifier));
+    DivByZeroLattice lattice = factory.getLattice();
+    return lattice.mirror(lattice.ordinal(SignQualifiers.forSigns(widened)));
+  }
+}
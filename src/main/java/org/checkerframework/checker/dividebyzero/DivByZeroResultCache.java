@@ -0,0 +1,804 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.source.DiagMessage;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.util.AnnotatedTypes;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * The persistent per-method result cache used by {@code -AdbzCache=<dir>}.
+ *
+ * <p>Each method is keyed by a hash of its source text, of the signatures (including qualifiers)
+ * of every declaration it refers to and every method it overrides, and of the checker itself and
+ * everything it reads: every class and resource of its package, its qualifiers, the Checker
+ * Framework and JDK versions, the options it was run with, the contents of the summary and stub
+ * index files those options name, and the jars and class directories of the classpath, which hold
+ * the declarations and constant values of the code being checked.
+ * When the key of a method is found in the cache, its flow analysis is skipped and the diagnostics
+ * recorded for it last time are reported again instead of visiting it. Any change that could change
+ * the diagnostics of a method changes its key, so stale entries are never used; they are dropped
+ * when the cache file is compacted.
+ *
+ * <p>The cache is one append-only file, {@code results.dbz}, in the cache directory. It starts
+ * with a header, followed by one record per analyzed method:
+ *
+ * <pre>
+ * record     := key (16 bytes) count:int diagnostic*
+ * diagnostic := offset:int treeKind:byte kind:byte messageKey:UTF argCount:byte arg:UTF*
+ * </pre>
+ *
+ * where {@code offset} is the start of the reported tree relative to the start of the method. A
+ * later record for the same key replaces an earlier one. A truncated last record, left by a killed
+ * compiler, is ignored and removed at the next compaction.
+ */
+final class DivByZeroResultCache {
+
+  /** Identifies a results file; "DBZR". */
+  private static final int MAGIC = 0x44425A52;
+
+  /** The version of the file format. Part of every key, as well as the header. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** The name of the results file in the cache directory. */
+  private static final String FILE_NAME = "results.dbz";
+
+  /** The directory of the checker's package, whose classes and resources are part of every key. */
+  private static final String PACKAGE_DIRECTORY =
+      DivByZeroChecker.class.getPackage().getName().replace('.', '/') + "/";
+
+  /** The most files of a class directory on the classpath to look at. */
+  private static final int MAX_FILES_PER_DIRECTORY = 100_000;
+
+  /**
+   * The hash of the checker's code, computed once per class loader, since the classes it has
+   * loaded cannot change; see {@link #codeFingerprint}.
+   */
+  private static byte[] codeFingerprint;
+
+  /**
+   * A lock for each results file, by its real path. The checks of a {@link
+   * org.checkerframework.checker.dividebyzero.driver.CheckerDaemon} run concurrently in one JVM,
+   * where file locks cannot serialize them, so reads, appends and compactions of a file hold its
+   * lock.
+   */
+  private static final ConcurrentMap<Path, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+  /** The results file. */
+  private final Path file;
+
+  /** The lock of {@link #file} in this JVM; see {@link #FILE_LOCKS}. */
+  private final Object fileLock;
+
+  /** The checker whose diagnostics are cached. */
+  private final BaseTypeChecker checker;
+
+  /** Source positions of the trees being checked. */
+  private final SourcePositions positions;
+
+  /** The hash of everything about the checker that can change diagnostics; see {@link #key}. */
+  private final byte[] checkerFingerprint;
+
+  /** The cached results, loaded on first use. */
+  private Map<Key, CachedDiagnostic[]> results;
+
+  /** How many records the results file holds, including stale ones. */
+  private int recordsInFile;
+
+  /** True if the results file must be rewritten rather than appended to. */
+  private boolean rewrite;
+
+  /** Records computed in this run, not yet written. */
+  private final Map<Key, CachedDiagnostic[]> pending = new HashMap<>();
+
+  /** The key of each method looked up so far; null if the method cannot be cached. */
+  private final Map<MethodTree, Key> keys = new IdentityHashMap<>();
+
+  /** The source text of the compilation unit {@link #sourceRoot}. */
+  private CharSequence source;
+
+  /** The compilation unit whose text is {@link #source}. */
+  private CompilationUnitTree sourceRoot;
+
+  /** The method whose diagnostics are being recorded, or null. */
+  private MethodTree recording;
+
+  /** The compilation unit of {@link #recording}. */
+  private CompilationUnitTree recordingRoot;
+
+  /** The key of {@link #recording}. */
+  private Key recordingKey;
+
+  /** The diagnostics reported so far in {@link #recording}, or null if it cannot be cached. */
+  private List<CachedDiagnostic> recorded;
+
+  /**
+   * Create a result cache.
+   *
+   * @param directory the cache directory; it is created if needed
+   * @param checker the checker whose results are cached
+   */
+  DivByZeroResultCache(Path directory, BaseTypeChecker checker) {
+    try {
+      Files.createDirectories(directory);
+      this.fileLock =
+          FILE_LOCKS.computeIfAbsent(
+              directory.toRealPath().resolve(FILE_NAME), path -> new Object());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.file = directory.resolve(FILE_NAME);
+    this.checker = checker;
+    this.positions = Trees.instance(checker.getProcessingEnvironment()).getSourcePositions();
+    this.checkerFingerprint = fingerprint(checker);
+  }
+
+  // ========================================================================
+  // Lookup and replay
+
+  /**
+   * Returns true if the given method's diagnostics are in the cache, so it need not be analyzed.
+   *
+   * @param method a method
+   * @param factory the type factory, for the signatures of the declarations the method uses
+   * @return true if the method's results are cached
+   */
+  boolean contains(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    Key key = key(method, factory);
+    return key != null && results().containsKey(key);
+  }
+
+  /**
+   * If the given method's diagnostics are cached, report them again.
+   *
+   * @param method a method
+   * @param factory the type factory
+   * @return true if the diagnostics were reported, and the method need not be visited
+   */
+  boolean replay(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    Key key = key(method, factory);
+    CachedDiagnostic[] diagnostics = key == null ? null : results().get(key);
+    if (diagnostics == null) {
+      return false;
+    }
+    long start = positions.getStartPosition(factory.getRoot(), method);
+    for (CachedDiagnostic d : diagnostics) {
+      Tree tree = findTree(method, factory.getRoot(), start + d.offset, d.treeKind);
+      checker.report(tree == null ? method : tree, new DiagMessage(d.kind, d.messageKey, d.args));
+    }
+    return true;
+  }
+
+  /** Find the tree in {@code method} that starts at {@code position} and has the given kind. */
+  private Tree findTree(
+      MethodTree method, CompilationUnitTree root, long position, Tree.Kind kind) {
+    Tree[] found = new Tree[1];
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void scan(Tree tree, Void p) {
+        if (tree == null || found[0] != null) {
+          return null;
+        }
+        if (tree.getKind() == kind && positions.getStartPosition(root, tree) == position) {
+          found[0] = tree;
+          return null;
+        }
+        return super.scan(tree, p);
+      }
+    }.scan(method, null);
+    return found[0];
+  }
+
+  // ========================================================================
+  // Recording
+
+  /** Start recording the diagnostics of a method that was not found in the cache. */
+  void beginMethod(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    recording = method;
+    recordingRoot = factory.getRoot();
+    recordingKey = key(method, factory);
+    recorded = recordingKey == null ? null : new ArrayList<>();
+  }
+
+  /**
+   * Record a diagnostic, if it belongs to the method being recorded. A diagnostic that is not
+   * reported at a tree inside the method makes the method uncacheable.
+   *
+   * @param source the tree or element the diagnostic is reported at
+   * @param message the diagnostic
+   */
+  void record(Object source, DiagMessage message) {
+    if (recorded == null) {
+      return;
+    }
+    CompilationUnitTree root = recordingRoot;
+    long methodStart = positions.getStartPosition(root, recording);
+    long methodEnd = positions.getEndPosition(root, recording);
+    long start = source instanceof Tree ? positions.getStartPosition(root, (Tree) source) : -1;
+    if (start < methodStart || start >= methodEnd || message.getArgs().length > 255) {
+      recorded = null;
+      return;
+    }
+    Object[] args = message.getArgs();
+    String[] stringArgs = new String[args.length];
+    for (int i = 0; i < args.length; i++) {
+      stringArgs[i] = String.valueOf(args[i]);
+    }
+    recorded.add(
+        new CachedDiagnostic(
+            (int) (start - methodStart),
+            ((Tree) source).getKind(),
+            message.getKind(),
+            message.getMessageKey(),
+            stringArgs));
+  }
+
+  /** Stop recording, and remember the method's diagnostics if it can be cached. */
+  void endMethod() {
+    if (recorded != null) {
+      CachedDiagnostic[] diagnostics = recorded.toArray(new CachedDiagnostic[0]);
+      pending.put(recordingKey, diagnostics);
+      results().put(recordingKey, diagnostics);
+    }
+    recording = null;
+    recordingRoot = null;
+    recordingKey = null;
+    recorded = null;
+  }
+
+  // ========================================================================
+  // Keys
+
+  /**
+   * Compute the key of a method, or return null if it cannot be cached.
+   *
+   * @param method a method
+   * @param factory the type factory
+   * @return the key, or null
+   */
+  private Key key(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    if (keys.containsKey(method)) {
+      return keys.get(method);
+    }
+    Key key = computeKey(method, factory);
+    keys.put(method, key);
+    return key;
+  }
+
+  private Key computeKey(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    CompilationUnitTree root = factory.getRoot();
+    CharSequence text = sourceText(root);
+    long start = positions.getStartPosition(root, method);
+    long end = positions.getEndPosition(root, method);
+    if (text == null || start < 0 || end > text.length()) {
+      return null;
+    }
+    MessageDigest digest = sha256();
+    digest.update(checkerFingerprint);
+    update(digest, text.subSequence((int) start, (int) end).toString());
+
+    ExecutableElement element = TreeUtils.elementFromDeclaration(method);
+    TypeElement enclosing = (TypeElement) element.getEnclosingElement();
+    update(digest, enclosing.getQualifiedName() + " extends " + enclosing.getSuperclass());
+    update(digest, enclosing.getInterfaces().toString());
+    for (ExecutableElement overridden :
+        AnnotatedTypes.overriddenMethods(factory.getElementUtils(), factory, element).values()) {
+      update(digest, signature(overridden, factory));
+    }
+    for (String dependency : dependencies(method, factory)) {
+      update(digest, dependency);
+    }
+    return new Key(digest.digest());
+  }
+
+  /** The signatures of the declarations outside {@code method} that it refers to, sorted. */
+  private SortedSet<String> dependencies(MethodTree method, DivByZeroAnnotatedTypeFactory factory) {
+    SortedSet<String> result = new TreeSet<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitIdentifier(IdentifierTree tree, Void p) {
+        add(TreeUtils.elementFromTree(tree));
+        return super.visitIdentifier(tree, p);
+      }
+
+      @Override
+      public Void visitMemberSelect(MemberSelectTree tree, Void p) {
+        add(TreeUtils.elementFromTree(tree));
+        return super.visitMemberSelect(tree, p);
+      }
+
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree tree, Void p) {
+        add(TreeUtils.elementFromUse(tree));
+        return super.visitMethodInvocation(tree, p);
+      }
+
+      @Override
+      public Void visitNewClass(NewClassTree tree, Void p) {
+        add(TreeUtils.elementFromUse(tree));
+        return super.visitNewClass(tree, p);
+      }
+
+      private void add(Element element) {
+        if (element == null) {
+          return;
+        }
+        switch (element.getKind()) {
+          case FIELD:
+          case ENUM_CONSTANT:
+          case METHOD:
+          case CONSTRUCTOR:
+            result.add(signature(element, factory));
+            break;
+          default:
+            break;
+        }
+      }
+    }.scan(method.getBody(), null);
+    return result;
+  }
+
+  /**
+   * The signature of a declaration, including its qualifiers, any constant value and any inferred
+   * summary.
+   */
+  private static String signature(Element element, DivByZeroAnnotatedTypeFactory factory) {
+    StringBuilder result = new StringBuilder();
+    result.append(element.getEnclosingElement()).append('.').append(element);
+    result.append(':').append(factory.getAnnotatedType(element));
+    if (element instanceof VariableElement) {
+      result.append('=').append(((VariableElement) element).getConstantValue());
+    }
+    result.append('~').append(factory.getSummaries().summaryOf(element));
+    return result.toString();
+  }
+
+  /** The source text of a compilation unit, read once per compilation unit. */
+  private CharSequence sourceText(CompilationUnitTree root) {
+    if (root != sourceRoot) {
+      sourceRoot = root;
+      try {
+        source = root.getSourceFile().getCharContent(true);
+      } catch (IOException e) {
+        source = null;
+      }
+    }
+    return source;
+  }
+
+  /**
+   * Hash everything about the checker that can change the diagnostics of an unchanged method.
+   *
+   * @param checker the checker
+   * @return the hash
+   */
+  private static byte[] fingerprint(BaseTypeChecker checker) {
+    MessageDigest digest = sha256();
+    update(digest, "format " + FORMAT_VERSION);
+    update(digest, "jdk " + Runtime.version());
+    update(digest, "cf " + SourceChecker.class.getPackage().getImplementationVersion());
+    digest.update(codeFingerprint());
+    List<Class<?>> qualifiers =
+        new ArrayList<>(
+            ((DivByZeroAnnotatedTypeFactory) checker.getTypeFactory())
+                .getSupportedTypeQualifiers());
+    qualifiers.sort((x, y) -> x.getName().compareTo(y.getName()));
+    for (Class<?> c : qualifiers) {
+      update(digest, c.getName());
+      String resource = "/" + c.getName().replace('.', '/') + ".class";
+      try (InputStream in = c.getResourceAsStream(resource)) {
+        if (in != null) {
+          digest.update(in.readAllBytes());
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    Map<String, String> options = new TreeMap<>(checker.getOptions());
+    options.remove(DivByZeroChecker.CACHE_OPTION);
+    options.remove(DivByZeroChecker.STATS_OPTION);
+    options.remove(DivByZeroChecker.SUMMARY_OUT_OPTION);
+    options.remove(DivByZeroChecker.SARIF_OPTION);
+    update(digest, options.toString());
+    updateWithFiles(digest, options.get(DivByZeroChecker.SUMMARY_PATH_OPTION));
+    updateWithFiles(digest, options.get(DivByZeroChecker.STUB_INDEX_OPTION));
+    for (Path entry : classpath(checker)) {
+      updateWithClasspathEntry(digest, entry);
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Returns the hash of every class and resource in the checker's package and its subpackages, as
+   * found in the jar or class directory that the checker was loaded from.
+   */
+  private static synchronized byte[] codeFingerprint() {
+    if (codeFingerprint != null) {
+      return codeFingerprint;
+    }
+    MessageDigest digest = sha256();
+    try {
+      CodeSource source = DivByZeroChecker.class.getProtectionDomain().getCodeSource();
+      Path location = source == null ? null : Paths.get(source.getLocation().toURI());
+      if (location != null && Files.isDirectory(location)) {
+        Path dir = location.resolve(PACKAGE_DIRECTORY);
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+          files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+          update(digest, dir.relativize(file).toString().replace(File.separatorChar, '/'));
+          digest.update(Files.readAllBytes(file));
+        }
+      } else if (location != null && Files.isRegularFile(location)) {
+        try (JarFile jar = new JarFile(location.toFile())) {
+          List<JarEntry> entries =
+              jar.stream()
+                  .filter(e -> !e.isDirectory() && e.getName().startsWith(PACKAGE_DIRECTORY))
+                  .sorted((x, y) -> x.getName().compareTo(y.getName()))
+                  .collect(Collectors.toList());
+          for (JarEntry entry : entries) {
+            update(digest, entry.getName());
+            try (InputStream in = jar.getInputStream(entry)) {
+              digest.update(in.readAllBytes());
+            }
+          }
+        }
+      } else {
+        // Neither a jar nor a directory: no key can be trusted across runs.
+        update(digest, "run " + System.nanoTime());
+      }
+    } catch (IOException | UncheckedIOException | URISyntaxException | IllegalArgumentException e) {
+      update(digest, "run " + System.nanoTime());
+    }
+    codeFingerprint = digest.digest();
+    return codeFingerprint;
+  }
+
+  /**
+   * Hash the contents of the files in a path list, such as the value of {@code -AdbzSummaryPath}.
+   * A missing file is hashed as such, so creating it changes the hash.
+   */
+  private static void updateWithFiles(MessageDigest digest, String paths) {
+    if (paths == null) {
+      return;
+    }
+    for (String path : paths.split(File.pathSeparator)) {
+      if (path.isEmpty()) {
+        continue;
+      }
+      update(digest, path);
+      try {
+        digest.update(Files.readAllBytes(Paths.get(path)));
+      } catch (IOException | InvalidPathException e) {
+        update(digest, "unreadable");
+      }
+    }
+  }
+
+  /**
+   * Hash the size and modification time of a jar, or of every file in a class directory, of the
+   * classpath. The declarations and constant values that a method uses come from there.
+   */
+  private static void updateWithClasspathEntry(MessageDigest digest, Path entry) {
+    update(digest, entry.toString());
+    try {
+      if (Files.isDirectory(entry)) {
+        try (Stream<Path> walk = Files.walk(entry)) {
+          Iterator<Path> files = walk.limit(MAX_FILES_PER_DIRECTORY).sorted().iterator();
+          while (files.hasNext()) {
+            Path file = files.next();
+            update(
+                digest,
+                entry.relativize(file)
+                    + "@"
+                    + Files.getLastModifiedTime(file).toMillis()
+                    + "/"
+                    + Files.size(file));
+          }
+        }
+      } else if (Files.exists(entry)) {
+        update(digest, Files.getLastModifiedTime(entry).toMillis() + "/" + Files.size(entry));
+      }
+    } catch (IOException | UncheckedIOException e) {
+      update(digest, "unreadable " + System.nanoTime());
+    }
+  }
+
+  /** The entries of the classpath of the code being checked, or none if javac does not tell. */
+  private static List<Path> classpath(BaseTypeChecker checker) {
+    ProcessingEnvironment env = checker.getProcessingEnvironment();
+    if (!(env instanceof JavacProcessingEnvironment)) {
+      return List.of();
+    }
+    JavaFileManager fileManager =
+        ((JavacProcessingEnvironment) env).getContext().get(JavaFileManager.class);
+    if (!(fileManager instanceof StandardJavaFileManager)) {
+      return List.of();
+    }
+    Iterable<? extends Path> entries =
+        ((StandardJavaFileManager) fileManager).getLocationAsPaths(StandardLocation.CLASS_PATH);
+    List<Path> result = new ArrayList<>();
+    if (entries != null) {
+      for (Path entry : entries) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  // ========================================================================
+  // The results file
+
+  /** The cached results, read from the results file on first use. */
+  private Map<Key, CachedDiagnostic[]> results() {
+    if (results == null) {
+      results = new HashMap<>();
+      synchronized (fileLock) {
+        try {
+          recordsInFile = read(results);
+        } catch (NoSuchFileException e) {
+          rewrite = true;
+        } catch (IOException e) {
+          // A corrupt or foreign file: start over.
+          results.clear();
+          rewrite = true;
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Read the results file. A truncated last record is ignored, and makes the file be rewritten.
+   *
+   * @param into the map to put the records in
+   * @return the number of records read
+   * @throws IOException if the file is missing or is not a results file
+   */
+  private int read(Map<Key, CachedDiagnostic[]> into) throws IOException {
+    int records = 0;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("not a results file: " + file);
+      }
+      byte[] keyBytes = new byte[Key.LENGTH];
+      while (true) {
+        try {
+          in.readFully(keyBytes);
+        } catch (EOFException e) {
+          return records;
+        }
+        try {
+          into.put(new Key(keyBytes.clone()), readDiagnostics(in));
+          records++;
+        } catch (EOFException e) {
+          // A truncated record; drop it the next time the file is written.
+          rewrite = true;
+          return records;
+        }
+      }
+    }
+  }
+
+  private static CachedDiagnostic[] readDiagnostics(DataInputStream in) throws IOException {
+    Tree.Kind[] treeKinds = Tree.Kind.values();
+    Diagnostic.Kind[] kinds = Diagnostic.Kind.values();
+    CachedDiagnostic[] diagnostics = new CachedDiagnostic[in.readInt()];
+    for (int i = 0; i < diagnostics.length; i++) {
+      int offset = in.readInt();
+      Tree.Kind treeKind = treeKinds[in.readUnsignedByte()];
+      Diagnostic.Kind kind = kinds[in.readUnsignedByte()];
+      String messageKey = in.readUTF();
+      String[] args = new String[in.readUnsignedByte()];
+      for (int j = 0; j < args.length; j++) {
+        args[j] = in.readUTF();
+      }
+      diagnostics[i] = new CachedDiagnostic(offset, treeKind, kind, messageKey, args);
+    }
+    return diagnostics;
+  }
+
+  private static void write(DataOutputStream out, Key key, CachedDiagnostic[] diagnostics)
+      throws IOException {
+    out.write(key.bytes);
+    out.writeInt(diagnostics.length);
+    for (CachedDiagnostic d : diagnostics) {
+      out.writeInt(d.offset);
+      out.writeByte(d.treeKind.ordinal());
+      out.writeByte(d.kind.ordinal());
+      out.writeUTF(d.messageKey);
+      out.writeByte(d.args.length);
+      for (String arg : d.args) {
+        out.writeUTF(arg);
+      }
+    }
+  }
+
+  /**
+   * Write the results computed in this run. They are appended to the results file, unless it is
+   * missing, damaged, or mostly stale records, in which case it is rewritten with only the live
+   * ones.
+   */
+  void flush() {
+    if (pending.isEmpty() && !rewrite) {
+      return;
+    }
+    synchronized (fileLock) {
+      flushLocked();
+    }
+  }
+
+  /** Write the pending results, holding {@link #fileLock}. */
+  private void flushLocked() {
+    Map<Key, CachedDiagnostic[]> all = results();
+    boolean compact = rewrite || recordsInFile + pending.size() > 2 * all.size() + 64;
+    if (compact) {
+      // Keep the records that other checks in this JVM wrote since this one read the file.
+      Map<Key, CachedDiagnostic[]> merged = new HashMap<>();
+      try {
+        read(merged);
+      } catch (IOException e) {
+        merged.clear();
+      }
+      merged.putAll(all);
+      all = merged;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      if (compact) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+      }
+      for (Map.Entry<Key, CachedDiagnostic[]> e : (compact ? all : pending).entrySet()) {
+        write(out, e.getKey(), e.getValue());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      if (compact) {
+        Path temp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordsInFile = all.size();
+      } else {
+        // Appends from concurrent compilers must not interleave.
+        try (FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            FileLock lock = channel.lock()) {
+          ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+        recordsInFile += pending.size();
+      }
+    } catch (IOException | OverlappingFileLockException e) {
+      // An overlapping lock is held by a javac task in this JVM that names the file by another
+      // path; its records and these may not both be kept.
+      checker.message(Diagnostic.Kind.WARNING, "Cannot write %s: %s", file, e);
+    }
+    pending.clear();
+    rewrite = false;
+  }
+
+  /** A 128-bit method key. */
+  private static final class Key {
+    static final int LENGTH = 16;
+
+    final byte[] bytes;
+    private final int hash;
+
+    /** Create a key from a digest, which is truncated to {@link #LENGTH} bytes. */
+    Key(byte[] digest) {
+      this.bytes = digest.length == LENGTH ? digest : Arrays.copyOf(digest, LENGTH);
+      this.hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** A diagnostic reported inside a method. */
+  private static final class CachedDiagnostic {
+    /** The start of the reported tree, relative to the start of the method. */
+    final int offset;
+
+    final Tree.Kind treeKind;
+    final Diagnostic.Kind kind;
+    final String messageKey;
+    final String[] args;
+
+    CachedDiagnostic(
+        int offset, Tree.Kind treeKind, Diagnostic.Kind kind, String messageKey, String[] args) {
+      this.offset = offset;
+      this.treeKind = treeKind;
+      this.kind = kind;
+      this.messageKey = messageKey;
+      this.args = args;
+    }
+  }
+}
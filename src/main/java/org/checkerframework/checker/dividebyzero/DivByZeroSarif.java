@@ -0,0 +1,186 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.tools.Diagnostic;
+
+/**
+ * Streams the {@code divide.by.zero} diagnostics to a SARIF 2.1.0 file, for {@code
+ * -AdbzSarif=<file>}. Each result is written as soon as it is reported, through a buffer that is
+ * flushed whenever it fills, so memory use does not grow with the number of diagnostics and build
+ * tooling need not parse javac's text output. The file is complete once {@link #close()} has run;
+ * until then it lacks the closing brackets.
+ *
+ * <p>Each result has the level and text that javac reports, the file, the range of the division,
+ * and the properties {@code operator}, such as {@code "/="}, and {@code divisorQualifier}, the
+ * qualifier inferred for the divisor, such as {@code "@NonNegative"}. Diagnostics suppressed with
+ * {@code @SuppressWarnings} have no result.
+ */
+final class DivByZeroSarif {
+
+  /** The size of the write buffer, in chars; results reach the file in batches of this size. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The rule of every result. */
+  static final String RULE_ID = "divide.by.zero";
+
+  /** Everything before the first result. */
+  private static final String HEADER =
+      "{\n"
+          + "  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",\n"
+          + "  \"version\": \"2.1.0\",\n"
+          + "  \"runs\": [{\n"
+          + "    \"tool\": {\"driver\": {\n"
+          + "      \"name\": \"Divide By Zero Checker\",\n"
+          + "      \"informationUri\": \"https://github.com/kelloggm/div-by-zero-checker\",\n"
+          + "      \"rules\": [{\"id\": \""
+          + RULE_ID
+          + "\", \"shortDescription\": {\"text\": \"Possible division by zero\"}}]\n"
+          + "    }},\n"
+          + "    \"results\": [";
+
+  /** Everything after the last result. */
+  private static final String FOOTER = "\n    ]\n  }]\n}\n";
+
+  /** The source positions of the trees of every compilation unit. */
+  private final SourcePositions positions;
+
+  /** The open file. */
+  private final Writer out;
+
+  /** The number of results written. */
+  private long count;
+
+  /**
+   * Create the SARIF file and write its header.
+   *
+   * @param file the SARIF file
+   * @param positions the source positions of the trees of every compilation unit
+   * @throws IOException if the file cannot be created
+   */
+  DivByZeroSarif(Path file, SourcePositions positions) throws IOException {
+    this.positions = positions;
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    this.out =
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+            BUFFER_SIZE);
+    out.write(HEADER);
+  }
+
+  /**
+   * Write a result for a division whose divisor may be zero.
+   *
+   * @param root the compilation unit that contains the division
+   * @param division a division, remainder, or compound assignment that divides
+   * @param kind the kind of the diagnostic as javac reports it, such as a warning under {@code
+   *     -Awarns}
+   * @param text the text of the diagnostic, from the checker's message properties
+   * @param divisorQualifier the qualifier of the divisor, such as {@code "@NonNegative"}
+   * @throws IOException if the result cannot be written
+   */
+  void divisionByZero(
+      CompilationUnitTree root,
+      Tree division,
+      Diagnostic.Kind kind,
+      String text,
+      String divisorQualifier)
+      throws IOException {
+    long start = positions.getStartPosition(root, division);
+    long end = positions.getEndPosition(root, division);
+    LineMap lines = root.getLineMap();
+    StringBuilder result = new StringBuilder(512);
+    result.append(count == 0 ? "\n" : ",\n");
+    result.append("      {\"ruleId\": \"").append(RULE_ID).append("\", \"level\": \"");
+    result.append(level(kind)).append("\", \"message\": {\"text\": ");
+    quote(result, text);
+    result.append("},\n        \"locations\": [{\"physicalLocation\": {\"artifactLocation\": ");
+    result.append("{\"uri\": ");
+    quote(result, root.getSourceFile().toUri().toString());
+    result.append("}");
+    if (start >= 0 && end >= start) {
+      // SARIF lines and columns are 1-based, and the end column is exclusive, as in javac.
+      result.append(", \"region\": {\"startLine\": ").append(lines.getLineNumber(start));
+      result.append(", \"startColumn\": ").append(lines.getColumnNumber(start));
+      result.append(", \"endLine\": ").append(lines.getLineNumber(end));
+      result.append(", \"endColumn\": ").append(lines.getColumnNumber(end)).append("}");
+    }
+    result.append("}}],\n        \"properties\": {\"operator\": ");
+    quote(result, operator(division.getKind()));
+    result.append(", \"divisorQualifier\": ");
+    quote(result, divisorQualifier);
+    result.append("}}");
+    out.write(result.toString());
+    count++;
+  }
+
+  /**
+   * Write the end of the file, and close it.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  void close() throws IOException {
+    try {
+      out.write(FOOTER);
+    } finally {
+      out.close();
+    }
+  }
+
+  /** The SARIF level of a diagnostic kind. */
+  private static String level(Diagnostic.Kind kind) {
+    switch (kind) {
+      case ERROR:
+        return "error";
+      case WARNING:
+      case MANDATORY_WARNING:
+        return "warning";
+      default:
+        return "note";
+    }
+  }
+
+  /** The source text of a division operator. */
+  private static String operator(Tree.Kind kind) {
+    switch (kind) {
+      case DIVIDE:
+        return "/";
+      case DIVIDE_ASSIGNMENT:
+        return "/=";
+      case REMAINDER:
+        return "%";
+      case REMAINDER_ASSIGNMENT:
+        return "%=";
+      default:
+        return kind.toString();
+    }
+  }
+
+  /** Append the given string as a JSON string literal. */
+  private static void quote(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+}
@@ -0,0 +1,409 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * Statistics about where the checker spends its time, enabled by {@code -AdbzStats=<file>}. It
+ * counts, per method, the transfer function calls and fixpoint passes of the flow analysis, the
+ * stores it copies, and the types the visitor computes, and times the analysis and the visit. At
+ * the end of the run it writes a JSON report that ranks methods and classes by time:
+ *
+ * <pre>{@code
+ * {
+ *   "totals": {"methods": 2, "analysisNanos": ..., "transferCalls": ..., ...},
+ *   "transferCalls": {"visitEqualTo": ..., "visitIntegerDivision": ..., ...},
+ *   "classes": [{"class": "p.C", "methods": 2, "nanos": ...}, ...],
+ *   "methods": [{"class": "p.C", "method": "m(int)", "nanos": ..., ...}, ...],
+ *   "typeCaches": [{"cache": "fromExpressionTreeCache", "hitRate": ..., ...}, ...]
+ * }
+ * }</pre>
+ *
+ * <p>The same measurements are emitted as the JFR events {@code
+ * org.checkerframework.dividebyzero.MethodAnalysis} and {@code
+ * org.checkerframework.dividebyzero.MethodVisit}, whenever the checker runs in a JVM with a flight
+ * recording, so that they can be read next to GC and JIT activity.
+ *
+ * <p>Analyses of lambdas are attributed to the enclosing method, and analyses of field initializers
+ * and initializer blocks to a pseudo-method {@code <init-code>} of their class.
+ */
+final class DivByZeroStats {
+
+  /** The file to write the report to, or null to only emit JFR events. */
+  private final Path reportFile;
+
+  /** The statistics of each method, in the order they were first seen. */
+  private final Map<String, MethodStats> methods = new LinkedHashMap<>();
+
+  /** The number of transfer function calls, by node class, in the whole run. */
+  private final Map<Class<?>, long[]> transferCalls = new HashMap<>();
+
+  /** The flow analyses that are running, innermost first. */
+  private final Deque<Analysis> analyses = new ArrayDeque<>();
+
+  /** The method being visited, or null. */
+  private MethodStats visiting;
+
+  /** The start of the running visit, from {@link System#nanoTime}. */
+  private long visitStart;
+
+  /** The type computations of the visited method before the running visit. */
+  private long visitTypeComputations;
+
+  /** The type memo hits of the visited method before the running visit. */
+  private long visitTypeMemoHits;
+
+  /** The JFR event of the running visit. */
+  private MethodVisitEvent visitEvent;
+
+  /**
+   * @param reportFile the file to write the report to, or null to only emit JFR events
+   */
+  DivByZeroStats(Path reportFile) {
+    this.reportFile = reportFile;
+  }
+
+  /** The flow analysis of the given code is starting. */
+  void beginAnalysis(UnderlyingAST ast) {
+    MethodStats method = statsFor(ast);
+    method.analyses++;
+    analyses.push(new Analysis(method));
+  }
+
+  /** The flow analysis started by the last {@link #beginAnalysis} is done. */
+  void endAnalysis() {
+    Analysis analysis = analyses.pop();
+    MethodStats method = analysis.method;
+    method.analysisNanos += System.nanoTime() - analysis.start;
+    int passes = 0;
+    long transfers = 0;
+    for (int[] visits : analysis.nodeVisits.values()) {
+      passes = Math.max(passes, visits[0]);
+      transfers += visits[0];
+    }
+    method.transferCalls += transfers;
+    method.fixpointPasses = Math.max(method.fixpointPasses, passes);
+
+    MethodAnalysisEvent event = analysis.event;
+    if (event.shouldCommit()) {
+      event.className = method.className;
+      event.method = method.method;
+      event.transferCalls = transfers;
+      event.fixpointPasses = passes;
+      event.storeCopies = analysis.storeCopies;
+      event.commit();
+    }
+  }
+
+  /** The flow analysis is calling the transfer function for the given node. */
+  void transfer(Node node) {
+    transferCalls.computeIfAbsent(node.getClass(), c -> new long[1])[0]++;
+    Analysis analysis = analyses.peek();
+    if (analysis != null) {
+      analysis.nodeVisits.computeIfAbsent(node, n -> new int[1])[0]++;
+    }
+  }
+
+  /** The flow analysis has copied a store. */
+  void storeCopied() {
+    Analysis analysis = analyses.peek();
+    if (analysis != null) {
+      analysis.storeCopies++;
+      analysis.method.storeCopies++;
+    }
+  }
+
+  /** The visitor is starting to check the given outermost method. */
+  void beginVisit(MethodTree method) {
+    visiting = statsFor(TreeUtils.elementFromDeclaration(method));
+    visitTypeComputations = visiting.typeComputations;
+    visitTypeMemoHits = visiting.typeMemoHits;
+    visitEvent = new MethodVisitEvent();
+    visitEvent.begin();
+    visitStart = System.nanoTime();
+  }
+
+  /** The visit started by the last {@link #beginVisit} is done. */
+  void endVisit() {
+    MethodStats method = visiting;
+    method.visitNanos += System.nanoTime() - visitStart;
+    visiting = null;
+    if (visitEvent.shouldCommit()) {
+      visitEvent.className = method.className;
+      visitEvent.method = method.method;
+      visitEvent.typeComputations = method.typeComputations - visitTypeComputations;
+      visitEvent.typeMemoHits = method.typeMemoHits - visitTypeMemoHits;
+      visitEvent.commit();
+    }
+    visitEvent = null;
+  }
+
+  /** The visitor has asked the type factory for the type of a tree. */
+  void typeComputed() {
+    if (visiting != null) {
+      visiting.typeComputations++;
+    }
+  }
+
+  /** The visitor has answered a type query from its per-method memo. */
+  void typeMemoHit() {
+    if (visiting != null) {
+      visiting.typeMemoHits++;
+    }
+  }
+
+  /**
+   * Write the report, if a report file was requested.
+   *
+   * @param typeCaches the type factory's caches, whose counters are reported too
+   * @throws IOException if the report cannot be written
+   */
+  void write(List<DivByZeroTypeCache<?, ?>> typeCaches) throws IOException {
+    if (reportFile == null) {
+      return;
+    }
+    MethodStats totals = new MethodStats("", "");
+    Map<String, long[]> classes = new HashMap<>();
+    for (MethodStats method : methods.values()) {
+      totals.add(method);
+      long[] c = classes.computeIfAbsent(method.className, k -> new long[2]);
+      c[0]++;
+      c[1] += method.nanos();
+    }
+    List<MethodStats> byTime = new ArrayList<>(methods.values());
+    byTime.sort(Comparator.comparingLong(MethodStats::nanos).reversed());
+    List<Map.Entry<String, long[]>> classesByTime = new ArrayList<>(classes.entrySet());
+    classesByTime.sort(
+        Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[1]).reversed());
+    Map<String, Long> calls = new TreeMap<>();
+    for (Map.Entry<Class<?>, long[]> e : transferCalls.entrySet()) {
+      calls.merge(transferMethodName(e.getKey()), e.getValue()[0], Long::sum);
+    }
+
+    Path parent = reportFile.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer out = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+      out.write("{\n  \"totals\": {\"methods\": " + methods.size() + ", ");
+      totals.writeCounters(out);
+      out.write("},\n  \"transferCalls\": {");
+      String separator = "";
+      for (Map.Entry<String, Long> e : calls.entrySet()) {
+        out.write(separator + "\n    " + quote(e.getKey()) + ": " + e.getValue());
+        separator = ",";
+      }
+      out.write("\n  },\n  \"classes\": [");
+      separator = "";
+      for (Map.Entry<String, long[]> e : classesByTime) {
+        out.write(separator + "\n    {\"class\": " + quote(e.getKey()));
+        out.write(", \"methods\": " + e.getValue()[0] + ", \"nanos\": " + e.getValue()[1] + "}");
+        separator = ",";
+      }
+      out.write("\n  ],\n  \"methods\": [");
+      separator = "";
+      for (MethodStats method : byTime) {
+        out.write(separator + "\n    {\"class\": " + quote(method.className));
+        out.write(", \"method\": " + quote(method.method) + ", \"nanos\": " + method.nanos());
+        out.write(", \"fixpointPasses\": " + method.fixpointPasses + ", ");
+        method.writeCounters(out);
+        out.write("}");
+        separator = ",";
+      }
+      out.write("\n  ],\n  \"typeCaches\": [");
+      separator = "";
+      for (DivByZeroTypeCache<?, ?> cache : typeCaches) {
+        StringBuilder counters = new StringBuilder();
+        cache.writeCounters(counters);
+        out.write(separator + "\n    {\"cache\": " + quote(cache.name()) + ", " + counters + "}");
+        separator = ",";
+      }
+      out.write("\n  ]\n}\n");
+    }
+  }
+
+  /** Returns the statistics of the method that contains the given code. */
+  private MethodStats statsFor(UnderlyingAST ast) {
+    switch (ast.getKind()) {
+      case METHOD:
+        MethodTree method = ((UnderlyingAST.CFGMethod) ast).getMethod();
+        return statsFor(TreeUtils.elementFromDeclaration(method));
+      case LAMBDA:
+        UnderlyingAST.CFGLambda lambda = (UnderlyingAST.CFGLambda) ast;
+        if (lambda.getEnclosingMethod() != null) {
+          return statsFor(TreeUtils.elementFromDeclaration(lambda.getEnclosingMethod()));
+        }
+        return statsFor(lambda.getClassTree(), "<init-code>");
+      default:
+        return statsFor(((UnderlyingAST.CFGStatement) ast).getClassTree(), "<init-code>");
+    }
+  }
+
+  /** Returns the statistics of the given method. */
+  private MethodStats statsFor(ExecutableElement method) {
+    return statsFor(method.getEnclosingElement().toString(), method.toString());
+  }
+
+  /** Returns the statistics of a pseudo-method of the given class. */
+  private MethodStats statsFor(ClassTree classTree, String method) {
+    Element type = TreeUtils.elementFromDeclaration(classTree);
+    return statsFor(type.toString(), method);
+  }
+
+  /** Returns the statistics of the given method, creating them on first use. */
+  private MethodStats statsFor(String className, String method) {
+    return methods.computeIfAbsent(
+        className + '#' + method, k -> new MethodStats(className, method));
+  }
+
+  /** Returns "visitEqualTo" for EqualToNode, the name of the transfer method for a node class. */
+  private static String transferMethodName(Class<?> nodeClass) {
+    String name = nodeClass.getSimpleName();
+    if (name.endsWith("Node")) {
+      name = name.substring(0, name.length() - "Node".length());
+    }
+    return "visit" + name;
+  }
+
+  /** Returns the given string as a JSON string literal. */
+  private static String quote(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /** A running flow analysis. */
+  private static final class Analysis {
+    final MethodStats method;
+    final long start;
+    final MethodAnalysisEvent event = new MethodAnalysisEvent();
+
+    /** How often the analysis has visited each node, for counting fixpoint passes. */
+    final Map<Node, int[]> nodeVisits = new IdentityHashMap<>();
+
+    long storeCopies;
+
+    Analysis(MethodStats method) {
+      this.method = method;
+      event.begin();
+      this.start = System.nanoTime();
+    }
+  }
+
+  /** The statistics of one method. */
+  private static final class MethodStats {
+    final String className;
+    final String method;
+    long analyses;
+    long analysisNanos;
+    long visitNanos;
+    long transferCalls;
+    long fixpointPasses;
+    long storeCopies;
+    long typeComputations;
+    long typeMemoHits;
+
+    MethodStats(String className, String method) {
+      this.className = className;
+      this.method = method;
+    }
+
+    long nanos() {
+      return analysisNanos + visitNanos;
+    }
+
+    void add(MethodStats other) {
+      analyses += other.analyses;
+      analysisNanos += other.analysisNanos;
+      visitNanos += other.visitNanos;
+      transferCalls += other.transferCalls;
+      storeCopies += other.storeCopies;
+      typeComputations += other.typeComputations;
+      typeMemoHits += other.typeMemoHits;
+    }
+
+    void writeCounters(Writer out) throws IOException {
+      out.write("\"analyses\": " + analyses);
+      out.write(", \"analysisNanos\": " + analysisNanos + ", \"visitNanos\": " + visitNanos);
+      out.write(", \"transferCalls\": " + transferCalls + ", \"storeCopies\": " + storeCopies);
+      out.write(", \"typeComputations\": " + typeComputations);
+      out.write(", \"typeMemoHits\": " + typeMemoHits);
+    }
+  }
+
+  /** The flow analysis of one method, lambda or initializer. */
+  @Name("org.checkerframework.dividebyzero.MethodAnalysis")
+  @Label("Divide By Zero Flow Analysis")
+  @Category({"Checker Framework", "Divide By Zero Checker"})
+  @Description("The flow analysis of a method, lambda or initializer")
+  static final class MethodAnalysisEvent extends Event {
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Transfer Function Calls")
+    long transferCalls;
+
+    @Label("Fixpoint Passes")
+    @Description("The most times the analysis visited any one node")
+    long fixpointPasses;
+
+    @Label("Store Copies")
+    long storeCopies;
+  }
+
+  /** The visit of one outermost method by the checker's visitor. */
+  @Name("org.checkerframework.dividebyzero.MethodVisit")
+  @Label("Divide By Zero Method Visit")
+  @Category({"Checker Framework", "Divide By Zero Checker"})
+  @Description("The type-checking of a method after its flow analysis")
+  static final class MethodVisitEvent extends Event {
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Type Computations")
+    long typeComputations;
+
+    @Label("Type Memo Hits")
+    long typeMemoHits;
+  }
+}
@@ -0,0 +1,144 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.tools.Diagnostic;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.javacutil.ElementUtils;
+
+/**
+ * The qualifiers of declarations on the classpath, read from the index files given by {@code
+ * -AdbzStubIndex=<files>}, separated by the path separator. The files are compiled from stub files
+ * by {@link StubIndexCompiler}.
+ *
+ * <p>Unlike {@code -Astubs}, which parses every stub file when the checker starts, an index is
+ * mapped into memory and looked up only for the declarations the code being compiled uses, so a
+ * large set of stubs costs nothing until it is needed. An index entry takes precedence over the
+ * qualifiers from bytecode and from {@code -Astubs}.
+ */
+final class DivByZeroStubIndex {
+
+  /** The type factory. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  /** The index files, in the order given; an earlier file takes precedence. */
+  private final List<Path> files = new ArrayList<>();
+
+  /** The open indexes, or null before the first lookup. Files that cannot be read are omitted. */
+  private List<SignatureIndex> indexes;
+
+  /** The entry of each declaration that has been looked up, or {@link #ABSENT}. */
+  private final Map<Element, byte[]> entries = new IdentityHashMap<>();
+
+  /** Marks a declaration in {@link #entries} that no index has an entry for. */
+  private static final byte[] ABSENT = new byte[0];
+
+  /**
+   * Creates the index of a type factory.
+   *
+   * @param factory the type factory
+   * @param paths the value of {@code -AdbzStubIndex}, or null
+   */
+  DivByZeroStubIndex(DivByZeroAnnotatedTypeFactory factory, String paths) {
+    this.factory = factory;
+    if (paths != null) {
+      for (String path : paths.split(File.pathSeparator)) {
+        if (!path.isEmpty()) {
+          files.add(Paths.get(path));
+        }
+      }
+    }
+  }
+
+  /**
+   * Replace the qualifiers of the type of a declaration by those in the index.
+   *
+   * @param element a declaration
+   * @param type its type
+   */
+  void apply(Element element, AnnotatedTypeMirror type) {
+    if (files.isEmpty() || !ElementUtils.isElementFromByteCode(element)) {
+      return;
+    }
+    byte[] entry = entryOf(element);
+    if (entry == ABSENT) {
+      return;
+    }
+    if (type instanceof AnnotatedExecutableType) {
+      AnnotatedExecutableType method = (AnnotatedExecutableType) type;
+      List<AnnotatedTypeMirror> params = method.getParameterTypes();
+      if (entry.length != params.size() + 1) {
+        return;
+      }
+      replace(method.getReturnType(), entry[0]);
+      for (int i = 0; i < params.size(); i++) {
+        replace(params.get(i), entry[i + 1]);
+      }
+    } else if (entry.length == 1) {
+      replace(type, entry[0]);
+    }
+  }
+
+  /** Replace the primary qualifier of a type, unless the position is unannotated. */
+  private void replace(AnnotatedTypeMirror type, byte signs) {
+    if (signs == StubIndexCompiler.UNANNOTATED) {
+      return;
+    }
+    DivByZeroLattice lattice = factory.getLattice();
+    int ordinal = lattice.ordinal(SignQualifiers.forSigns(signs & SignDomain.ANY));
+    type.replaceAnnotation(lattice.mirror(ordinal));
+  }
+
+  /** The positions of the entry for a declaration, or {@link #ABSENT}. */
+  private byte[] entryOf(Element element) {
+    byte[] entry = entries.get(element);
+    if (entry != null) {
+      return entry;
+    }
+    entry = ABSENT;
+    ElementKind kind = element.getKind();
+    if (kind.isField() || kind == ElementKind.METHOD || kind == ElementKind.CONSTRUCTOR) {
+      String signature =
+          SignatureIndex.simpleSignature(element, factory.getProcessingEnv().getTypeUtils());
+      for (SignatureIndex index : indexes()) {
+        ByteBuffer value = index.lookup(signature);
+        if (value != null && value.remaining() > 0 && value.get(0) == value.remaining() - 1) {
+          entry = new byte[value.remaining() - 1];
+          for (int i = 0; i < entry.length; i++) {
+            entry[i] = value.get(i + 1);
+          }
+          break;
+        }
+      }
+    }
+    entries.put(element, entry);
+    return entry;
+  }
+
+  /** Open the index files, warning once for each file that cannot be read. */
+  private List<SignatureIndex> indexes() {
+    if (indexes == null) {
+      indexes = new ArrayList<>(files.size());
+      for (Path file : files) {
+        try {
+          indexes.add(SignatureIndex.open(file, SignatureIndex.STUB_QUALIFIERS));
+        } catch (IOException e) {
+          factory
+              .getChecker()
+              .message(Diagnostic.Kind.WARNING, "Ignoring stub index: %s", e.getMessage());
+        }
+      }
+    }
+    return indexes;
+  }
+}
@@ -0,0 +1,358 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ConditionalExpressionTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.TypesUtils;
+
+/**
+ * Inferred summaries of the values returned by methods and held by final fields, as sets of signs
+ * of {@link SignDomain}, so that {@code x / computeDivisor()} is checked with what {@code
+ * computeDivisor} can return rather than with its unannotated declaration.
+ *
+ * <p>A summary is computed from the declaration's source on first use. The summary of a method is
+ * the join of its return expressions, and the summary of a final field is its initializer's. An
+ * expression is evaluated by its constant value, by the summaries of the methods, fields and
+ * effectively final locals it uses, and by the arithmetic rules of {@link SignDomain}, so the
+ * summaries of callees are computed before those of their callers. Recursion, and everything else,
+ * evaluates to {@link SignDomain#ANY}. Only methods that cannot be overridden have summaries:
+ * static, private and final methods and the methods of final classes.
+ *
+ * <p>With {@code -AdbzSummaryOut=<file>}, the summaries of all the declarations in the compilation
+ * are written to a {@link SignatureIndex}. With {@code -AdbzSummaryPath=<files>}, the summaries in
+ * those files, separated by the path separator, are used for declarations that are not being
+ * compiled. Each file is mapped the first time a summary is looked up, and only the entries that
+ * are looked up are ever read.
+ */
+final class DivByZeroSummaries {
+
+  /** The type factory, for declarations and their declared types. */
+  private final DivByZeroAnnotatedTypeFactory factory;
+
+  /** The file to write summaries to, or null. */
+  private final Path outputFile;
+
+  /** The summary files of dependencies, in search order, not yet opened. */
+  private final List<Path> dependencyFiles;
+
+  /** The opened summary files of dependencies; a file that could not be opened is null. */
+  private final Map<Path, SignatureIndex> dependencies = new HashMap<>();
+
+  /** The summary of each declaration looked up so far, or null if it has none. */
+  private final Map<Element, Integer> summaries = new IdentityHashMap<>();
+
+  /** The summaries of source declarations to write to {@link #outputFile}, by signature. */
+  private final Map<String, Integer> computed = new TreeMap<>();
+
+  /** Marks a declaration in {@link #summaries} whose summary is being computed. */
+  private static final Integer IN_PROGRESS = Integer.valueOf(-1);
+
+  /**
+   * @param factory the type factory
+   * @param outputFile the file to write summaries to, or null
+   * @param dependencyPath the summary files of dependencies, separated by the path separator, or
+   *     null
+   */
+  DivByZeroSummaries(
+      DivByZeroAnnotatedTypeFactory factory, Path outputFile, String dependencyPath) {
+    this.factory = factory;
+    this.outputFile = outputFile;
+    this.dependencyFiles = new ArrayList<>();
+    if (dependencyPath != null) {
+      for (String file : dependencyPath.split(File.pathSeparator)) {
+        if (!file.isEmpty()) {
+          dependencyFiles.add(Paths.get(file));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the summary of a method's return value or a final field's value.
+   *
+   * @param element a method or field
+   * @return a set of signs of {@link SignDomain}, or null if the declaration has no summary
+   */
+  Integer summaryOf(Element element) {
+    if (!isSummarizable(element)) {
+      return null;
+    }
+    Integer summary = summaries.get(element);
+    if (summary == IN_PROGRESS) {
+      // A recursive method: its summary cannot be used to compute itself.
+      return SignDomain.ANY;
+    }
+    if (summary != null || summaries.containsKey(element)) {
+      return summary;
+    }
+    summaries.put(element, IN_PROGRESS);
+    Tree declaration = factory.declarationFromElement(element);
+    if (declaration != null) {
+      summary = summarize(element, declaration);
+      if (summary != null) {
+        Types types = factory.getProcessingEnv().getTypeUtils();
+        computed.put(SignatureIndex.signature(element, types), summary);
+      }
+    } else {
+      summary = lookUp(element);
+    }
+    summaries.put(element, summary);
+    return summary;
+  }
+
+  /**
+   * Compute the summaries of the methods and fields of a class, so that they are written to the
+   * output file even if nothing in this compilation uses them.
+   */
+  void summarizeMembers(ClassTree tree) {
+    if (outputFile == null) {
+      return;
+    }
+    for (Tree member : tree.getMembers()) {
+      if (member instanceof MethodTree) {
+        summaryOf(TreeUtils.elementFromDeclaration((MethodTree) member));
+      } else if (member instanceof VariableTree) {
+        summaryOf(TreeUtils.elementFromDeclaration((VariableTree) member));
+      }
+    }
+  }
+
+  /** Write the summaries of the declarations in this compilation, if an output file was given. */
+  void write() throws IOException {
+    if (outputFile == null) {
+      return;
+    }
+    Map<String, byte[]> entries = new TreeMap<>();
+    for (Map.Entry<String, Integer> e : computed.entrySet()) {
+      entries.put(e.getKey(), new byte[] {e.getValue().byteValue()});
+    }
+    SignatureIndex.write(outputFile, SignatureIndex.RETURN_SUMMARIES, entries);
+  }
+
+  /** Whether a declaration can have a summary. */
+  private boolean isSummarizable(Element element) {
+    if (element == null) {
+      return false;
+    }
+    switch (element.getKind()) {
+      case METHOD:
+        ExecutableElement method = (ExecutableElement) element;
+        return isIntegral(method.getReturnType())
+            && !method.getModifiers().contains(Modifier.ABSTRACT)
+            && (method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.PRIVATE)
+                || method.getModifiers().contains(Modifier.FINAL)
+                || method.getEnclosingElement().getModifiers().contains(Modifier.FINAL));
+      case FIELD:
+        return isIntegral(element.asType()) && element.getModifiers().contains(Modifier.FINAL);
+      default:
+        return false;
+    }
+  }
+
+  /** Whether a type is int or long, or their boxed types. */
+  private static boolean isIntegral(TypeMirror type) {
+    return type.getKind() == TypeKind.INT
+        || type.getKind() == TypeKind.LONG
+        || TypesUtils.isDeclaredOfName(type, "java.lang.Integer")
+        || TypesUtils.isDeclaredOfName(type, "java.lang.Long");
+  }
+
+  /** Compute the summary of a method or field declared in this compilation. */
+  private Integer summarize(Element element, Tree declaration) {
+    if (declaration instanceof VariableTree) {
+      ExpressionTree initializer = ((VariableTree) declaration).getInitializer();
+      // A blank final field is assigned in constructors, which are not summarized.
+      return initializer == null ? null : declared(element) & evaluate(initializer);
+    }
+    MethodTree method = (MethodTree) declaration;
+    if (method.getBody() == null) {
+      return null;
+    }
+    int[] result = {SignDomain.NONE};
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitReturn(ReturnTree tree, Void p) {
+        if (tree.getExpression() != null) {
+          result[0] |= evaluate(tree.getExpression());
+        }
+        return null;
+      }
+
+      @Override
+      public Void visitClass(ClassTree tree, Void p) {
+        // Returns in local and anonymous classes return from their own methods.
+        return null;
+      }
+
+      @Override
+      public Void visitLambdaExpression(LambdaExpressionTree tree, Void p) {
+        return null;
+      }
+    }.scan(method.getBody(), null);
+    return declared(element) & result[0];
+  }
+
+  /** The signs that the declared type of a method's return value or a variable permits. */
+  private int declared(Element element) {
+    AnnotatedTypeMirror type = factory.getAnnotatedType(element);
+    if (type instanceof AnnotatedTypeMirror.AnnotatedExecutableType) {
+      type = ((AnnotatedTypeMirror.AnnotatedExecutableType) type).getReturnType();
+    }
+    return signs(type);
+  }
+
+  /** The signs that the primary qualifier of a type permits. */
+  private int signs(AnnotatedTypeMirror type) {
+    return type.getPrimaryAnnotations().isEmpty()
+        ? SignDomain.ANY
+        : SignQualifiers.signsOf(type.getPrimaryAnnotations().iterator().next());
+  }
+
+  /** The signs an int or long expression may have, judged from the expression alone. */
+  private int evaluate(ExpressionTree tree) {
+    Number constant = factory.constantValue(tree);
+    if (constant != null) {
+      return SignDomain.ofValue(constant.longValue());
+    }
+    switch (tree.getKind()) {
+      case PARENTHESIZED:
+        return evaluate(((ParenthesizedTree) tree).getExpression());
+      case CONDITIONAL_EXPRESSION:
+        ConditionalExpressionTree conditional = (ConditionalExpressionTree) tree;
+        return evaluate(conditional.getTrueExpression())
+            | evaluate(conditional.getFalseExpression());
+      case TYPE_CAST:
+        TypeCastTree cast = (TypeCastTree) tree;
+        TypeKind to = TreeUtils.typeOf(cast).getKind();
+        TypeKind from = TreeUtils.typeOf(cast.getExpression()).getKind();
+        // A narrowing cast can turn any value into zero.
+        if (to == TypeKind.LONG || (to == TypeKind.INT && from != TypeKind.LONG)) {
+          return evaluate(cast.getExpression());
+        }
+        return SignDomain.ANY;
+      case UNARY_PLUS:
+        return evaluate(((UnaryTree) tree).getExpression());
+      case UNARY_MINUS:
+        return SignDomain.negate(evaluate(((UnaryTree) tree).getExpression()));
+      case PLUS:
+      case MINUS:
+      case MULTIPLY:
+      case DIVIDE:
+      case REMAINDER:
+        return evaluate((BinaryTree) tree);
+      case METHOD_INVOCATION:
+      case IDENTIFIER:
+      case MEMBER_SELECT:
+        return evaluateUse(tree);
+      default:
+        return SignDomain.ANY;
+    }
+  }
+
+  /** The signs of an arithmetic expression. */
+  private int evaluate(BinaryTree tree) {
+    if (!isIntegral(TreeUtils.typeOf(tree))) {
+      return SignDomain.ANY;
+    }
+    int left = evaluate(tree.getLeftOperand());
+    int right = evaluate(tree.getRightOperand());
+    switch (tree.getKind()) {
+      case PLUS:
+        return SignDomain.plus(left, right);
+      case MINUS:
+        return SignDomain.minus(left, right);
+      case MULTIPLY:
+        return SignDomain.times(left, right);
+      case DIVIDE:
+        return SignDomain.divide(left, right);
+      case REMAINDER:
+        return SignDomain.remainder(left, right);
+      default:
+        throw new IllegalArgumentException(tree.getKind().toString());
+    }
+  }
+
+  /** The signs of a method call or a use of a variable. */
+  private int evaluateUse(ExpressionTree tree) {
+    Element element = TreeUtils.elementFromTree(tree);
+    if (element == null) {
+      return SignDomain.ANY;
+    }
+    if (element.getKind() == ElementKind.LOCAL_VARIABLE
+        && ElementUtils.isEffectivelyFinal(element)) {
+      Tree declaration = factory.declarationFromElement(element);
+      if (declaration instanceof VariableTree
+          && ((VariableTree) declaration).getInitializer() != null) {
+        return evaluate(((VariableTree) declaration).getInitializer());
+      }
+      return SignDomain.ANY;
+    }
+    Integer summary = summaryOf(element);
+    return summary == null ? declared(element) : summary;
+  }
+
+  /** Look up the summary of a declaration that is not being compiled. */
+  private Integer lookUp(Element element) {
+    if (dependencyFiles.isEmpty()) {
+      return null;
+    }
+    String signature = SignatureIndex.signature(element, factory.getProcessingEnv().getTypeUtils());
+    for (Path file : dependencyFiles) {
+      SignatureIndex index = open(file);
+      ByteBuffer value = index == null ? null : index.lookup(signature);
+      if (value != null && value.remaining() == 1) {
+        return value.get(0) & SignDomain.ANY;
+      }
+    }
+    return null;
+  }
+
+  /** Open a summary file, warning once if it cannot be read. */
+  private SignatureIndex open(Path file) {
+    if (!dependencies.containsKey(file)) {
+      SignatureIndex index = null;
+      try {
+        index = SignatureIndex.open(file, SignatureIndex.RETURN_SUMMARIES);
+      } catch (IOException e) {
+        factory
+            .getChecker()
+            .message(Diagnostic.Kind.WARNING, "Ignoring summaries: %s", e.getMessage());
+      }
+      dependencies.put(file, index);
+    }
+    return dependencies.get(file);
+  }
+}
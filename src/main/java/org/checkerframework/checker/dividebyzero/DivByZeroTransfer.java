@@ -3,9 +3,10 @@ package org.checkerframework.checker.dividebyzero;
 import java.lang.annotation.Annotation;
 import java.util.Set;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import org.checkerframework.checker.dividebyzero.qual.*;
 import org.checkerframework.dataflow.analysis.ConditionalTransferResult;
-import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.cfg.node.*;
@@ -14,8 +15,6 @@ import org.checkerframework.framework.flow.CFAnalysis;
 import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFTransfer;
 import org.checkerframework.framework.flow.CFValue;
-import org.checkerframework.framework.type.QualifierHierarchy;
-import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 
 public class DivByZeroTransfer extends CFTransfer {
@@ -76,8 +75,24 @@ public class DivByZeroTransfer extends CFTransfer {
    */
   private AnnotationMirror refineLhsOfComparison(
       Comparison operator, AnnotationMirror lhs, AnnotationMirror rhs) {
-    // TODO
-    return lhs;
+    int l = SignQualifiers.signsOf(lhs);
+    int r = SignQualifiers.signsOf(rhs);
+    switch (operator) {
+      case EQ:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineEqual(l, r)));
+      case NE:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineNotEqual(l, r)));
+      case LT:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineLessThan(l, r)));
+      case LE:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineLessThanOrEqual(l, r)));
+      case GT:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineGreaterThan(l, r)));
+      case GE:
+        return reflect(SignQualifiers.forSigns(SignDomain.refineGreaterThanOrEqual(l, r)));
+      default:
+        throw new IllegalArgumentException(operator.toString());
+    }
   }
 
   /**
@@ -97,8 +112,22 @@ public class DivByZeroTransfer extends CFTransfer {
    */
   private AnnotationMirror arithmeticTransfer(
       BinaryOperator operator, AnnotationMirror lhs, AnnotationMirror rhs) {
-    // TODO
-    return top();
+    int l = SignQualifiers.signsOf(lhs);
+    int r = SignQualifiers.signsOf(rhs);
+    switch (operator) {
+      case PLUS:
+        return reflect(SignQualifiers.forSigns(SignDomain.plus(l, r)));
+      case MINUS:
+        return reflect(SignQualifiers.forSigns(SignDomain.minus(l, r)));
+      case TIMES:
+        return reflect(SignQualifiers.forSigns(SignDomain.times(l, r)));
+      case DIVIDE:
+        return reflect(SignQualifiers.forSigns(SignDomain.divide(l, r)));
+      case MOD:
+        return reflect(SignQualifiers.forSigns(SignDomain.remainder(l, r)));
+      default:
+        throw new IllegalArgumentException(operator.toString());
+    }
   }
 
   // ========================================================================
@@ -106,33 +135,30 @@ public class DivByZeroTransfer extends CFTransfer {
 
   /** Get the top of the lattice */
   private AnnotationMirror top() {
-    return analysis.getTypeFactory().getQualifierHierarchy().getTopAnnotations().iterator().next();
+    return lattice().mirror(lattice().top());
   }
 
   /** Get the bottom of the lattice */
   private AnnotationMirror bottom() {
-    return analysis
-        .getTypeFactory()
-        .getQualifierHierarchy()
-        .getBottomAnnotations()
-        .iterator()
-        .next();
+    return lattice().mirror(lattice().bottom());
   }
 
   /** Compute the least-upper-bound of two points in the lattice */
   private AnnotationMirror lub(AnnotationMirror x, AnnotationMirror y) {
-    return analysis.getTypeFactory().getQualifierHierarchy().leastUpperBoundQualifiersOnly(x, y);
+    DivByZeroLattice lattice = lattice();
+    return lattice.mirror(lattice.lub(lattice.ordinal(x), lattice.ordinal(y)));
   }
 
   /** Compute the greatest-lower-bound of two points in the lattice */
   private AnnotationMirror glb(AnnotationMirror x, AnnotationMirror y) {
-    return analysis.getTypeFactory().getQualifierHierarchy().greatestLowerBoundQualifiersOnly(x, y);
+    DivByZeroLattice lattice = lattice();
+    return lattice.mirror(lattice.glb(lattice.ordinal(x), lattice.ordinal(y)));
   }
 
   /** Convert a "Class" object (e.g. "Top.class") to a point in the lattice */
   private AnnotationMirror reflect(Class<? extends Annotation> qualifier) {
-    return AnnotationBuilder.fromClass(
-        analysis.getTypeFactory().getProcessingEnv().getElementUtils(), qualifier);
+    DivByZeroLattice lattice = lattice();
+    return lattice.mirror(lattice.ordinal(qualifier));
   }
 
   /** Determine whether two AnnotationMirrors are the same point in the lattice */
@@ -183,59 +209,179 @@ public class DivByZeroTransfer extends CFTransfer {
   // ========================================================================
   // Checker Framework plumbing
 
+  /** The precomputed lattice; see {@link #lattice()}. */
+  private DivByZeroLattice lattice;
+
+  /** {@link #arithmeticTransfer}, tabulated for each {@link BinaryOperator}. */
+  private int[][] arithmeticTables;
+
+  /** {@link #refineLhsOfComparison}, tabulated for each {@link Comparison}. */
+  private int[][] refinementTables;
+
+  /**
+   * The shared arithmetic result values, indexed by lattice ordinal and {@link TypeKind} ordinal;
+   * see {@link #resultValue}.
+   */
+  private CFValue[][] resultValues;
+
   public DivByZeroTransfer(CFAnalysis analysis) {
     super(analysis);
   }
 
+  /**
+   * Returns the type factory's precomputed lattice. It is fetched on first use rather than in the
+   * constructor, because the transfer function is created before the type factory is fully
+   * initialized.
+   */
+  private DivByZeroLattice lattice() {
+    if (lattice == null) {
+      lattice = ((DivByZeroAnnotatedTypeFactory) analysis.getTypeFactory()).getLattice();
+    }
+    return lattice;
+  }
+
+  /** Tabulate the transfer functions above, once, for every pair of lattice points. */
+  private void tabulateTransferFunctions() {
+    if (arithmeticTables != null) {
+      return;
+    }
+    DivByZeroLattice lattice = lattice();
+    BinaryOperator[] operators = BinaryOperator.values();
+    int[][] arithmetic = new int[operators.length][];
+    for (BinaryOperator op : operators) {
+      arithmetic[op.ordinal()] = lattice.tabulate((l, r) -> arithmeticTransfer(op, l, r));
+    }
+    Comparison[] comparisons = Comparison.values();
+    int[][] refinement = new int[comparisons.length][];
+    for (Comparison op : comparisons) {
+      refinement[op.ordinal()] = lattice.tabulate((l, r) -> refineLhsOfComparison(op, l, r));
+    }
+    refinementTables = refinement;
+    resultValues = new CFValue[lattice.size()][TypeKind.values().length];
+    arithmeticTables = arithmetic;
+  }
+
+  /** Look up the tabulated result of {@link #refineLhsOfComparison}, as a lattice ordinal. */
+  private int refinement(Comparison op, int lhs, int rhs) {
+    return lattice.apply(refinementTables[op.ordinal()], lhs, rhs);
+  }
+
   private TransferResult<CFValue, CFStore> implementComparison(
       Comparison op, BinaryOperationNode n, TransferResult<CFValue, CFStore> out) {
-    QualifierHierarchy hierarchy = analysis.getTypeFactory().getQualifierHierarchy();
-    AnnotationMirror l =
-        findAnnotation(analysis.getValue(n.getLeftOperand()).getAnnotations(), hierarchy);
-    AnnotationMirror r =
-        findAnnotation(analysis.getValue(n.getRightOperand()).getAnnotations(), hierarchy);
-
-    if (l == null || r == null) {
+    int lhs = ordinalOf(analysis.getValue(n.getLeftOperand()));
+    int rhs = ordinalOf(analysis.getValue(n.getRightOperand()));
+    if (lhs < 0 || rhs < 0) {
       // this can happen for generic types
       return out;
     }
 
-    CFStore thenStore = out.getThenStore().copy();
-    CFStore elseStore = out.getElseStore().copy();
-
-    thenStore.insertValue(
-        JavaExpression.fromNode(n.getLeftOperand()), refineLhsOfComparison(op, l, r));
-
-    thenStore.insertValue(
-        JavaExpression.fromNode(n.getRightOperand()), refineLhsOfComparison(flip(op), r, l));
+    tabulateTransferFunctions();
+    int thenLhs = refinement(op, lhs, rhs);
+    int thenRhs = refinement(flip(op), rhs, lhs);
+    int elseLhs = refinement(negate(op), lhs, rhs);
+    int elseRhs = refinement(flip(negate(op)), rhs, lhs);
+    boolean refinesThen = thenLhs != lhs || thenRhs != rhs;
+    boolean refinesElse = elseLhs != lhs || elseRhs != rhs;
+    if (!refinesThen && !refinesElse) {
+      // The comparison teaches nothing, so neither branch needs a store of its own.
+      return out;
+    }
 
-    elseStore.insertValue(
-        JavaExpression.fromNode(n.getLeftOperand()), refineLhsOfComparison(negate(op), l, r));
+    // The stores of a transfer result belong to it, so they are refined in place, and a store is
+    // copied only if both branches share it and a branch refines it.
+    CFStore thenStore;
+    CFStore elseStore;
+    if (out.containsTwoStores() && out.getThenStore() != out.getElseStore()) {
+      thenStore = out.getThenStore();
+      elseStore = out.getElseStore();
+    } else {
+      CFStore store = out.getRegularStore();
+      thenStore = refinesThen ? store.copy() : store;
+      elseStore = refinesThen ? store : store.copy();
+    }
 
-    elseStore.insertValue(
-        JavaExpression.fromNode(n.getRightOperand()),
-        refineLhsOfComparison(flip(negate(op)), r, l));
+    JavaExpression left = JavaExpression.fromNode(n.getLeftOperand());
+    JavaExpression right = JavaExpression.fromNode(n.getRightOperand());
+    insertIfRefined(thenStore, left, thenLhs, lhs);
+    insertIfRefined(thenStore, right, thenRhs, rhs);
+    insertIfRefined(elseStore, left, elseLhs, lhs);
+    insertIfRefined(elseStore, right, elseRhs, rhs);
 
     return new ConditionalTransferResult<>(out.getResultValue(), thenStore, elseStore);
   }
 
+  /** Insert a refined lattice point into a store, unless it is the point the store already has. */
+  private void insertIfRefined(CFStore store, JavaExpression expr, int refined, int current) {
+    if (refined != current) {
+      store.insertValue(expr, lattice.mirror(refined));
+    }
+  }
+
+  /**
+   * Set the result of an arithmetic operation. When the superclass already computed the right
+   * qualifier, {@code out} is returned unchanged; otherwise its result value is replaced with the
+   * shared value for the new qualifier. Either way, nothing is allocated once the values are
+   * shared.
+   *
+   * <p>Floating-point operations keep the superclass's result: they can underflow to zero and
+   * produce NaN, which the integer sign tables do not model.
+   */
   private TransferResult<CFValue, CFStore> implementOperator(
       BinaryOperator op, BinaryOperationNode n, TransferResult<CFValue, CFStore> out) {
-    QualifierHierarchy hierarchy = analysis.getTypeFactory().getQualifierHierarchy();
-    AnnotationMirror l =
-        findAnnotation(analysis.getValue(n.getLeftOperand()).getAnnotations(), hierarchy);
-    AnnotationMirror r =
-        findAnnotation(analysis.getValue(n.getRightOperand()).getAnnotations(), hierarchy);
-
-    if (l == null || r == null) {
+    TypeKind kind = n.getType().getKind();
+    if (kind != TypeKind.INT && kind != TypeKind.LONG) {
+      return out;
+    }
+    int lhs = ordinalOf(analysis.getValue(n.getLeftOperand()));
+    int rhs = ordinalOf(analysis.getValue(n.getRightOperand()));
+    if (lhs < 0 || rhs < 0) {
       // this can happen for generic types
       return out;
     }
 
-    AnnotationMirror res = arithmeticTransfer(op, l, r);
-    CFValue newResultValue =
-        analysis.createSingleAnnotationValue(res, out.getResultValue().getUnderlyingType());
-    return new RegularTransferResult<>(newResultValue, out.getRegularStore());
+    tabulateTransferFunctions();
+    int result = lattice.apply(arithmeticTables[op.ordinal()], lhs, rhs);
+    CFValue current = out.getResultValue();
+    if (ordinalOf(current) != result) {
+      out.setResultValue(resultValue(result, current.getUnderlyingType()));
+    }
+    return out;
+  }
+
+  /**
+   * The ordinal of the qualifier of a value. The checker has a single hierarchy, so a value has at
+   * most one qualifier.
+   *
+   * @param value a value, or null
+   * @return the ordinal of its qualifier, or -1 if it has none
+   */
+  private int ordinalOf(CFValue value) {
+    if (value == null) {
+      return -1;
+    }
+    Set<AnnotationMirror> annotations = value.getAnnotations();
+    return annotations.isEmpty() ? -1 : lattice().ordinal(annotations.iterator().next());
+  }
+
+  /**
+   * The value with a single qualifier and an underlying type. Values of primitive types are shared,
+   * one per qualifier and kind of primitive, since the analysis never mutates a value.
+   *
+   * @param ordinal the ordinal of the qualifier
+   * @param type the underlying type
+   * @return a value with that qualifier and type
+   */
+  private CFValue resultValue(int ordinal, TypeMirror type) {
+    TypeKind kind = type.getKind();
+    if (!kind.isPrimitive()) {
+      return analysis.createSingleAnnotationValue(lattice.mirror(ordinal), type);
+    }
+    CFValue value = resultValues[ordinal][kind.ordinal()];
+    if (value == null) {
+      value = analysis.createSingleAnnotationValue(lattice.mirror(ordinal), type);
+      resultValues[ordinal][kind.ordinal()] = value;
+    }
+    return value;
   }
 
   @Override
@@ -286,18 +432,6 @@ public class DivByZeroTransfer extends CFTransfer {
     return implementOperator(BinaryOperator.MOD, n, super.visitIntegerRemainder(n, p));
   }
 
-  @Override
-  public TransferResult<CFValue, CFStore> visitFloatingDivision(
-      FloatingDivisionNode n, TransferInput<CFValue, CFStore> p) {
-    return implementOperator(BinaryOperator.DIVIDE, n, super.visitFloatingDivision(n, p));
-  }
-
-  @Override
-  public TransferResult<CFValue, CFStore> visitFloatingRemainder(
-      FloatingRemainderNode n, TransferInput<CFValue, CFStore> p) {
-    return implementOperator(BinaryOperator.MOD, n, super.visitFloatingRemainder(n, p));
-  }
-
   @Override
   public TransferResult<CFValue, CFStore> visitNumericalMultiplication(
       NumericalMultiplicationNode n, TransferInput<CFValue, CFStore> p) {
@@ -315,13 +449,4 @@ public class DivByZeroTransfer extends CFTransfer {
       NumericalSubtractionNode n, TransferInput<CFValue, CFStore> p) {
     return implementOperator(BinaryOperator.MINUS, n, super.visitNumericalSubtraction(n, p));
   }
-
-  private static AnnotationMirror findAnnotation(
-      Set<AnnotationMirror> set, QualifierHierarchy hierarchy) {
-    if (set.size() == 0) {
-      return null;
-    }
-    Set<? extends AnnotationMirror> tops = hierarchy.getTopAnnotations();
-    return hierarchy.findAnnotationInSameHierarchy(set, tops.iterator().next());
-  }
 }
@@ -0,0 +1,263 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.UnionType;
+import javax.lang.model.type.WildcardType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+
+/**
+ * One of the type factory's caches, such as the cache of the types of expression trees. It is a
+ * least-recently-used cache bounded both by its number of entries, which is {@code -AatfCacheSize}
+ * as for the framework's own caches, and by the estimated bytes its entries retain, which is {@code
+ * -AdbzTypeCacheMegabytes} if given. It counts its lookups, hits and evictions for the report of
+ * {@code -AdbzStats}.
+ *
+ * <p>The retained bytes are estimated, not measured: an entry costs {@link #ENTRY_BYTES}, plus, for
+ * an {@link AnnotatedTypeMirror}, {@link #TYPE_BYTES} for each type in the structure of its
+ * underlying type, such as each type argument, and {@link #ANNOTATION_BYTES} for each primary
+ * annotation. Keys are trees and elements, which javac retains anyway, so they cost nothing more.
+ * The estimate of an entry is computed again when the entry is removed, rather than stored, so
+ * that the cache needs no more memory than the map it replaces.
+ *
+ * <p>The framework asks {@code containsKey} before {@code get} for some caches; a {@code get} of
+ * the key that was just found by {@code containsKey} is not counted as a second lookup.
+ */
+final class DivByZeroTypeCache<K, V> extends LinkedHashMap<K, V> {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The estimated bytes of a map entry, with its hash table slot. */
+  static final long ENTRY_BYTES = 64;
+
+  /** The estimated bytes of one annotated type, with its annotation set. */
+  static final long TYPE_BYTES = 96;
+
+  /** The estimated bytes of one primary annotation in an annotation set. */
+  static final long ANNOTATION_BYTES = 16;
+
+  /** How deeply type structures are followed when estimating their size. */
+  private static final int MAX_ESTIMATE_DEPTH = 8;
+
+  /** The name of the cache in reports, usually the name of the factory's field. */
+  private String name;
+
+  /** The most entries to keep. */
+  private final int maxEntries;
+
+  /** The most estimated bytes to keep, or {@link Long#MAX_VALUE} for no limit. */
+  private final long maxBytes;
+
+  /** The estimated bytes retained by the entries now in the cache. */
+  private long bytes;
+
+  /** The most estimated bytes retained at any time. */
+  private long peakBytes;
+
+  /** The number of lookups. */
+  private long lookups;
+
+  /** The number of lookups that found an entry. */
+  private long hits;
+
+  /** The number of entries evicted because the cache had too many entries. */
+  private long entryEvictions;
+
+  /** The number of entries evicted because the cache retained too many bytes. */
+  private long byteEvictions;
+
+  /** The key of the last {@code containsKey} that returned true, or null. */
+  private Object lastFound;
+
+  /**
+   * @param name the name of the cache in reports
+   * @param maxEntries the most entries to keep
+   * @param maxBytes the most estimated bytes to keep, or {@link Long#MAX_VALUE} for no limit
+   */
+  DivByZeroTypeCache(String name, int maxEntries, long maxBytes) {
+    super(16, 0.75f, true);
+    this.name = name;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  /** Returns the name of the cache in reports. */
+  String name() {
+    return name;
+  }
+
+  /** Set the name of the cache in reports. */
+  void setName(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    boolean found = super.containsKey(key);
+    lookups++;
+    if (found) {
+      hits++;
+      lastFound = key;
+    } else {
+      lastFound = null;
+    }
+    return found;
+  }
+
+  @Override
+  public V get(Object key) {
+    V value = super.get(key);
+    if (key != null && key == lastFound) {
+      // Already counted by containsKey.
+      lastFound = null;
+      return value;
+    }
+    lookups++;
+    if (value != null) {
+      hits++;
+    }
+    return value;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    V previous = super.put(key, value);
+    if (previous != null) {
+      bytes -= estimateBytes(previous);
+    }
+    bytes += estimateBytes(value);
+    evict();
+    peakBytes = Math.max(peakBytes, bytes);
+    return previous;
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public V remove(Object key) {
+    V previous = super.remove(key);
+    if (previous != null) {
+      bytes -= estimateBytes(previous);
+    }
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    bytes = 0;
+    lastFound = null;
+  }
+
+  /** Remove the least recently used entries until the cache is within both of its bounds. */
+  private void evict() {
+    Iterator<Map.Entry<K, V>> eldest = entrySet().iterator();
+    while (size() > 1 && (size() > maxEntries || bytes > maxBytes)) {
+      if (size() > maxEntries) {
+        entryEvictions++;
+      } else {
+        byteEvictions++;
+      }
+      Map.Entry<K, V> entry = eldest.next();
+      bytes -= estimateBytes(entry.getValue());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Write the counters of this cache as the members of a JSON object.
+   *
+   * @param out the string to append to
+   */
+  void writeCounters(StringBuilder out) {
+    out.append("\"lookups\": ").append(lookups);
+    out.append(", \"hits\": ").append(hits);
+    out.append(", \"hitRate\": ");
+    out.append(lookups == 0 ? "0" : String.format(Locale.ROOT, "%.4f", (double) hits / lookups));
+    out.append(", \"entries\": ").append(size());
+    out.append(", \"entryEvictions\": ").append(entryEvictions);
+    out.append(", \"byteEvictions\": ").append(byteEvictions);
+    out.append(", \"estimatedBytes\": ").append(bytes);
+    out.append(", \"peakEstimatedBytes\": ").append(peakBytes);
+  }
+
+  /** Returns the estimated bytes that an entry with the given value retains. */
+  static long estimateBytes(Object value) {
+    if (!(value instanceof AnnotatedTypeMirror)) {
+      return ENTRY_BYTES;
+    }
+    AnnotatedTypeMirror type = (AnnotatedTypeMirror) value;
+    return ENTRY_BYTES
+        + TYPE_BYTES * typeCount(type.getUnderlyingType(), 0)
+        + ANNOTATION_BYTES * type.getPrimaryAnnotations().size();
+  }
+
+  /**
+   * The number of types in the structure of a type, which is the number of annotated types that
+   * represent it. Type variables count with their bounds, which are not followed, since they may
+   * refer back to the variable.
+   */
+  private static long typeCount(TypeMirror type, int depth) {
+    if (type == null) {
+      return 0;
+    }
+    if (depth >= MAX_ESTIMATE_DEPTH) {
+      return 1;
+    }
+    long count = 1;
+    switch (type.getKind()) {
+      case DECLARED:
+        for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+          count += typeCount(argument, depth + 1);
+        }
+        break;
+      case ARRAY:
+        count += typeCount(((ArrayType) type).getComponentType(), depth + 1);
+        break;
+      case EXECUTABLE:
+        ExecutableType executable = (ExecutableType) type;
+        count += typeCount(executable.getReturnType(), depth + 1);
+        for (TypeMirror parameter : executable.getParameterTypes()) {
+          count += typeCount(parameter, depth + 1);
+        }
+        for (TypeMirror thrown : executable.getThrownTypes()) {
+          count += typeCount(thrown, depth + 1);
+        }
+        count += 3L * executable.getTypeVariables().size();
+        break;
+      case WILDCARD:
+        WildcardType wildcard = (WildcardType) type;
+        count += typeCount(wildcard.getExtendsBound(), depth + 1);
+        count += typeCount(wildcard.getSuperBound(), depth + 1);
+        break;
+      case TYPEVAR:
+        count += 2;
+        break;
+      case INTERSECTION:
+        for (TypeMirror bound : ((IntersectionType) type).getBounds()) {
+          count += typeCount(bound, depth + 1);
+        }
+        break;
+      case UNION:
+        for (TypeMirror alternative : ((UnionType) type).getAlternatives()) {
+          count += typeCount(alternative, depth + 1);
+        }
+        break;
+      default:
+        break;
+    }
+    return count;
+  }
+}
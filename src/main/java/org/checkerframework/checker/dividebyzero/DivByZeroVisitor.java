@@ -1,13 +1,20 @@
 package org.checkerframework.checker.dividebyzero;
 
 import com.sun.source.tree.*;
+import com.sun.source.util.TreePath;
 import java.lang.annotation.Annotation;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.type.TypeKind;
 import org.checkerframework.checker.dividebyzero.qual.*;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.TreeUtils;
 
 public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFactory> {
 
@@ -28,8 +35,9 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
    */
   private boolean errorAt(BinaryTree node) {
     // A BinaryTree can represent any binary operator, including + or -.
-    // TODO
-    return false;
+    return DIVISION_OPERATORS.contains(node.getKind())
+        && mayBeZero(node.getRightOperand())
+        && !isGuarded(node.getRightOperand());
   }
 
   /**
@@ -42,8 +50,9 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
   private boolean errorAt(CompoundAssignmentTree node) {
     // A CompoundAssignmentTree represents any binary operator combined with an assignment,
     // such as "x += 10".
-    // TODO
-    return false;
+    return DIVISION_OPERATORS.contains(node.getKind())
+        && mayBeZero(node.getExpression())
+        && !isGuarded(node.getExpression());
   }
 
   // ========================================================================
@@ -52,11 +61,62 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
   private static final Set<TypeKind> INT_TYPES = EnumSet.of(TypeKind.INT, TypeKind.LONG);
 
   private boolean isInt(Tree node) {
-    return INT_TYPES.contains(atypeFactory.getAnnotatedType(node).getKind());
+    return INT_TYPES.contains(typeOf(node).getKind());
   }
 
   private boolean hasAnnotation(Tree node, Class<? extends Annotation> c) {
-    return atypeFactory.getAnnotatedType(node).hasPrimaryAnnotation(c);
+    return typeOf(node).hasPrimaryAnnotation(c);
+  }
+
+  /** Whether the value of the given expression may be zero, according to its type. */
+  private boolean mayBeZero(Tree node) {
+    return !(hasAnnotation(node, NonZero.class)
+        || hasAnnotation(node, Positive.class)
+        || hasAnnotation(node, Negative.class)
+        || hasAnnotation(node, Bottom.class));
+  }
+
+  /**
+   * Whether a syntactic guard shows that the given divisor, an operand of the current tree, is not
+   * zero. Only the fast check looks for guards; the full check's types already account for them.
+   */
+  private boolean isGuarded(Tree divisor) {
+    DivByZeroGuards guards = atypeFactory.getGuards();
+    return guards != null && guards.isGuarded(new TreePath(getCurrentPath(), divisor));
+  }
+
+  /**
+   * The annotated types of the trees queried so far in the enclosing method. Computing a type can
+   * mean a full type computation plus a dataflow lookup, so each operand of a division is asked for
+   * its type once and every later query is answered from this snapshot.
+   */
+  private final Map<Tree, AnnotatedTypeMirror> methodTypes = new IdentityHashMap<>();
+
+  /** How many methods, including methods of local and anonymous classes, enclose the tree. */
+  private int methodDepth = 0;
+
+  /** The checker's statistics, or null if they are disabled. */
+  private final DivByZeroStats stats;
+
+  /** The top qualifier. */
+  private final AnnotationMirror top;
+
+  private AnnotatedTypeMirror typeOf(Tree node) {
+    if (methodDepth == 0) {
+      // Field initializers and the like are not worth remembering.
+      return atypeFactory.getAnnotatedType(node);
+    }
+    AnnotatedTypeMirror type = methodTypes.get(node);
+    if (type == null) {
+      type = atypeFactory.getAnnotatedType(node);
+      methodTypes.put(node, type);
+      if (stats != null) {
+        stats.typeComputed();
+      }
+    } else if (stats != null) {
+      stats.typeMemoHit();
+    }
+    return type;
   }
 
   // ========================================================================
@@ -64,13 +124,101 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
 
   public DivByZeroVisitor(BaseTypeChecker c) {
     super(c);
+    stats = ((DivByZeroChecker) c).getStats();
+    DivByZeroLattice lattice = atypeFactory.getLattice();
+    top = lattice.mirror(lattice.top());
+  }
+
+  @Override
+  public Void visitMethod(MethodTree node, Void p) {
+    if (methodDepth == 0 && !atypeFactory.isChecked(node)) {
+      // Another run checks this method, or it did not change.
+      return null;
+    }
+    if (methodDepth > 0 || stats == null) {
+      return visitMethodUntimed(node, p);
+    }
+    stats.beginVisit(node);
+    try {
+      return visitMethodUntimed(node, p);
+    } finally {
+      stats.endVisit();
+    }
+  }
+
+  /** Visit a method, replaying or recording its diagnostics if the result cache is enabled. */
+  private Void visitMethodUntimed(MethodTree node, Void p) {
+    methodDepth++;
+    try {
+      DivByZeroResultCache cache = ((DivByZeroChecker) checker).getResultCache();
+      if (methodDepth > 1 || cache == null) {
+        reportOverBudget(node);
+        return super.visitMethod(node, p);
+      }
+      if (cache.replay(node, atypeFactory)) {
+        return null;
+      }
+      cache.beginMethod(node, atypeFactory);
+      try {
+        reportOverBudget(node);
+        return super.visitMethod(node, p);
+      } finally {
+        cache.endMethod();
+      }
+    } finally {
+      if (--methodDepth == 0) {
+        methodTypes.clear();
+      }
+    }
+  }
+
+  /** Warn about a method whose flow analysis was abandoned; see {@link DivByZeroAnalysis}. */
+  private void reportOverBudget(MethodTree node) {
+    String limit = atypeFactory.takeOverBudget(node);
+    if (limit != null) {
+      ExecutableElement method = TreeUtils.elementFromDeclaration(node);
+      String name = method.getEnclosingElement().getSimpleName() + "." + method;
+      checker.reportWarning(node, "analysis.budget.exceeded", name, limit);
+    }
+  }
+
+  @Override
+  public Void visitVariable(VariableTree node, Void p) {
+    if (isUncheckedMember(node)) {
+      return null;
+    }
+    return super.visitVariable(node, p);
+  }
+
+  @Override
+  public Void visitBlock(BlockTree node, Void p) {
+    if (isUncheckedMember(node)) {
+      return null;
+    }
+    return super.visitBlock(node, p);
+  }
+
+  /**
+   * Whether the tree is a field or an initializer block that is not to be checked, because {@code
+   * -AdbzChangedLines} did not change it.
+   */
+  private boolean isUncheckedMember(Tree node) {
+    return methodDepth == 0
+        && getCurrentPath().getParentPath().getLeaf() instanceof ClassTree
+        && !atypeFactory.isChecked(node);
+  }
+
+  @Override
+  public void processClassTree(ClassTree classTree) {
+    atypeFactory.getSummaries().summarizeMembers(classTree);
+    super.processClassTree(classTree);
   }
 
   @Override
   public Void visitBinary(BinaryTree node, Void p) {
     if (isInt(node)) {
       if (errorAt(node)) {
-        checker.reportError(node, "divide.by.zero");
+        reportDivisionByZero(node, node.getRightOperand());
       }
     }
     return super.visitBinary(node, p);
@@ -80,9 +228,22 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
   public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
     if (isInt(node.getExpression())) {
       if (errorAt(node)) {
-        checker.reportError(node, "divide.by.zero");
+        reportDivisionByZero(node, node.getExpression());
       }
     }
     return super.visitCompoundAssignment(node, p);
   }
+
+  /**
+   * Report a division whose divisor may be zero. The qualifier of the divisor is the argument of
+   * the message, so that it reaches the result cache and {@code -AdbzSarif} with the diagnostic.
+   */
+  private void reportDivisionByZero(Tree node, Tree divisor) {
+    AnnotationMirror qualifier = typeOf(divisor).getPrimaryAnnotationInHierarchy(top);
+    String name =
+        qualifier == null
+            ? "@" + Top.class.getSimpleName()
+            : "@" + qualifier.getAnnotationType().asElement().getSimpleName();
+    checker.reportError(node, "divide.by.zero", name);
+  }
 }
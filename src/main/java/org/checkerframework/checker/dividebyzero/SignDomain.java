@@ -0,0 +1,201 @@
+package org.checkerframework.checker.dividebyzero;
+
+/**
+ * The numeric domain of the Divide By Zero Checker: the set of signs an integer may have. A set of
+ * signs is a bit mask over {@link #NEGATIVE}, {@link #ZERO} and {@link #POSITIVE}, so the empty set
+ * {@link #NONE} is the bottom of the domain, {@link #ANY} is its top, and union and intersection
+ * are its join and meet. Each of the eight sets corresponds to one qualifier; for example, {@code
+ * NEGATIVE | POSITIVE} is {@code @NonZero}.
+ *
+ * <p>The operations here do not depend on javac or the Checker Framework, so that other front ends
+ * can share them. Arithmetic wraps around, as int and long arithmetic does in Java and in the JVM:
+ * the sum of two positive values may be negative, the product of two nonzero values may be zero,
+ * as {@code 65536 * 65536} is, and {@code -Integer.MIN_VALUE} is negative. So every operation
+ * includes the signs that overflow can produce.
+ */
+public final class SignDomain {
+
+  /** No value: dead code, or an expression that always throws. */
+  public static final int NONE = 0;
+
+  /** Values less than zero. */
+  public static final int NEGATIVE = 1;
+
+  /** The value zero. */
+  public static final int ZERO = 2;
+
+  /** Values greater than zero. */
+  public static final int POSITIVE = 4;
+
+  /** Any value. */
+  public static final int ANY = NEGATIVE | ZERO | POSITIVE;
+
+  /**
+   * The signs of {@code x + y}, indexed by {@code 3 * sign(x) + sign(y)}; see {@link #index}. Two
+   * positive values may overflow to a negative sum, but never to zero; two negative values may
+   * overflow to any sum, such as {@code MIN_VALUE + MIN_VALUE == 0}.
+   */
+  private static final int[] PLUS = {
+    /* -, - */ ANY, /* -, 0 */ NEGATIVE, /* -, + */ ANY,
+    /* 0, - */ NEGATIVE, /* 0, 0 */ ZERO, /* 0, + */ POSITIVE,
+    /* +, - */ ANY, /* +, 0 */ POSITIVE, /* +, + */ NEGATIVE | POSITIVE,
+  };
+
+  /**
+   * The signs of {@code x - y}. A difference of values with opposite signs may overflow, but never
+   * to zero, and {@code 0 - MIN_VALUE} is negative.
+   */
+  private static final int[] MINUS = {
+    /* -, - */ ANY, /* -, 0 */ NEGATIVE, /* -, + */ NEGATIVE | POSITIVE,
+    /* 0, - */ NEGATIVE | POSITIVE, /* 0, 0 */ ZERO, /* 0, + */ NEGATIVE,
+    /* +, - */ NEGATIVE | POSITIVE, /* +, 0 */ POSITIVE, /* +, + */ ANY,
+  };
+
+  /** The signs of {@code x * y}; a product of nonzero values may overflow to any value. */
+  private static final int[] TIMES = {
+    /* -, - */ ANY, /* -, 0 */ ZERO, /* -, + */ ANY,
+    /* 0, - */ ZERO, /* 0, 0 */ ZERO, /* 0, + */ ZERO,
+    /* +, - */ ANY, /* +, 0 */ ZERO, /* +, + */ ANY,
+  };
+
+  /**
+   * The signs of {@code x / y}; integer division rounds toward zero, by zero it throws, and {@code
+   * MIN_VALUE / -1} overflows to {@code MIN_VALUE}.
+   */
+  private static final int[] DIVIDE = {
+    /* -, - */ ANY, /* -, 0 */ NONE, /* -, + */ NEGATIVE | ZERO,
+    /* 0, - */ ZERO, /* 0, 0 */ NONE, /* 0, + */ ZERO,
+    /* +, - */ NEGATIVE | ZERO, /* +, 0 */ NONE, /* +, + */ ZERO | POSITIVE,
+  };
+
+  /** The signs of {@code x % y}, which has the sign of {@code x} or is zero. */
+  private static final int[] REMAINDER = {
+    /* -, - */ NEGATIVE | ZERO, /* -, 0 */ NONE, /* -, + */ NEGATIVE | ZERO,
+    /* 0, - */ ZERO, /* 0, 0 */ NONE, /* 0, + */ ZERO,
+    /* +, - */ ZERO | POSITIVE, /* +, 0 */ NONE, /* +, + */ ZERO | POSITIVE,
+  };
+
+  private SignDomain() {
+    throw new AssertionError("do not instantiate");
+  }
+
+  /** The signs of a single value. */
+  public static int ofValue(long value) {
+    return value < 0 ? NEGATIVE : value == 0 ? ZERO : POSITIVE;
+  }
+
+  /** Whether a value with the given signs may be zero. */
+  public static boolean mayBeZero(int signs) {
+    return (signs & ZERO) != 0;
+  }
+
+  /** The signs of {@code -x}; {@code -MIN_VALUE} overflows to {@code MIN_VALUE}. */
+  public static int negate(int x) {
+    return mirror(x) | (x & NEGATIVE);
+  }
+
+  /** The signs of {@code x + y}. */
+  public static int plus(int x, int y) {
+    return apply(PLUS, x, y);
+  }
+
+  /** The signs of {@code x - y}. */
+  public static int minus(int x, int y) {
+    return apply(MINUS, x, y);
+  }
+
+  /** The signs of {@code x * y}. */
+  public static int times(int x, int y) {
+    return apply(TIMES, x, y);
+  }
+
+  /** The signs of {@code x / y}, for the executions that do not throw. */
+  public static int divide(int x, int y) {
+    return apply(DIVIDE, x, y);
+  }
+
+  /** The signs of {@code x % y}, for the executions that do not throw. */
+  public static int remainder(int x, int y) {
+    return apply(REMAINDER, x, y);
+  }
+
+  /** The signs of {@code x}, given that {@code x == y}. */
+  public static int refineEqual(int x, int y) {
+    return x & y;
+  }
+
+  /** The signs of {@code x}, given that {@code x != y}. */
+  public static int refineNotEqual(int x, int y) {
+    return y == ZERO ? x & ~ZERO : x;
+  }
+
+  /** The signs of {@code x}, given that {@code x < y}. */
+  public static int refineLessThan(int x, int y) {
+    if ((y & POSITIVE) != 0) {
+      return x;
+    }
+    // y <= 0, so x < 0.
+    return y == NONE ? NONE : x & NEGATIVE;
+  }
+
+  /** The signs of {@code x}, given that {@code x <= y}. */
+  public static int refineLessThanOrEqual(int x, int y) {
+    if ((y & POSITIVE) != 0) {
+      return x;
+    }
+    if ((y & ZERO) != 0) {
+      return x & (NEGATIVE | ZERO);
+    }
+    return x & y;
+  }
+
+  /** The signs of {@code x}, given that {@code x > y}. */
+  public static int refineGreaterThan(int x, int y) {
+    return mirror(refineLessThan(mirror(x), mirror(y)));
+  }
+
+  /** The signs of {@code x}, given that {@code x >= y}. */
+  public static int refineGreaterThanOrEqual(int x, int y) {
+    return mirror(refineLessThanOrEqual(mirror(x), mirror(y)));
+  }
+
+  /**
+   * The widening of {@code previous} by {@code next}, used at loop heads once an iteration bound is
+   * reached. The result is above both arguments, and every sequence of widenings stabilizes after
+   * at most three strict increases, whatever the values in the loop. The domain is finite, so this
+   * is the join; a richer domain, such as intervals, would jump to an unbounded end point here
+   * instead.
+   */
+  public static int widen(int previous, int next) {
+    return previous | next;
+  }
+
+  /**
+   * Swap the negative and positive signs. Unlike {@link #negate}, this is exact, so the refinements
+   * for {@code >} and {@code >=} can be derived from those for {@code <} and {@code <=}.
+   */
+  private static int mirror(int x) {
+    return (x & ZERO) | ((x & NEGATIVE) << 2) | ((x & POSITIVE) >> 2);
+  }
+
+  /** Apply a table of signs to every pair of signs in {@code x} and {@code y}, and join them. */
+  private static int apply(int[] table, int x, int y) {
+    int result = NONE;
+    for (int i = 0; i < 3; i++) {
+      if ((x & (1 << i)) == 0) {
+        continue;
+      }
+      for (int j = 0; j < 3; j++) {
+        if ((y & (1 << j)) != 0) {
+          result |= table[index(i, j)];
+        }
+      }
+    }
+    return result;
+  }
+
+  /** The table index of a pair of single signs, given as bit positions. */
+  private static int index(int x, int y) {
+    return 3 * x + y;
+  }
+}
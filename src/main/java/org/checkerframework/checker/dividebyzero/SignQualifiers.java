@@ -0,0 +1,63 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.checker.dividebyzero.qual.*;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+/** The correspondence between the qualifiers and the sets of signs of {@link SignDomain}. */
+final class SignQualifiers {
+
+  /** The qualifier for each set of signs, indexed by its bit mask. */
+  private static final List<Class<? extends Annotation>> QUALIFIERS =
+      List.of(
+          /* {}      */ Bottom.class,
+          /* {-}     */ Negative.class,
+          /* {0}     */ Zero.class,
+          /* {-,0}   */ NonPositive.class,
+          /* {+}     */ Positive.class,
+          /* {-,+}   */ NonZero.class,
+          /* {0,+}   */ NonNegative.class,
+          /* {-,0,+} */ Top.class);
+
+  /** The set of signs of each qualifier, by canonical name. */
+  private static final Map<String, Integer> SIGNS = new HashMap<>();
+
+  static {
+    for (int signs = SignDomain.NONE; signs <= SignDomain.ANY; signs++) {
+      SIGNS.put(QUALIFIERS.get(signs).getCanonicalName(), signs);
+    }
+  }
+
+  private SignQualifiers() {
+    throw new AssertionError("do not instantiate");
+  }
+
+  /** The qualifier for a set of signs. */
+  static Class<? extends Annotation> forSigns(int signs) {
+    return QUALIFIERS.get(signs);
+  }
+
+  /**
+   * The set of signs of a qualifier, given its canonical name.
+   *
+   * @param name the canonical name of an annotation
+   * @return the set of signs, or -1 if the name is not a qualifier of the Divide By Zero Checker
+   */
+  static int signsOf(String name) {
+    Integer signs = SIGNS.get(name);
+    return signs == null ? -1 : signs;
+  }
+
+  /** The set of signs of a qualifier of the Divide By Zero Checker. */
+  static int signsOf(AnnotationMirror qualifier) {
+    Integer signs = SIGNS.get(AnnotationUtils.annotationName(qualifier));
+    if (signs == null) {
+      throw new IllegalArgumentException("not a divide-by-zero qualifier: " + qualifier);
+    }
+    return signs;
+  }
+}
@@ -0,0 +1,348 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * A read-only file that maps the signatures of declarations to small binary values, and that is
+ * read through a memory mapping, so opening it costs the same however many entries it has, and a
+ * lookup touches only the pages it needs.
+ *
+ * <p>The file is a header, a table sorted by the hash of the signature, and the records the table
+ * points into. All integers are big-endian.
+ *
+ * <pre>
+ * int    magic ("DBZI")
+ * int    format version
+ * int    content kind, such as {@link #RETURN_SUMMARIES}
+ * int    number of entries n
+ * n * (long signature hash, int record offset)
+ * records: int key length, key bytes (UTF-8), int value length, value bytes
+ * </pre>
+ *
+ * <p>Signatures are built by {@link #signature(Element, Types)}: {@code pkg.Outer.Inner#name} for a
+ * field and {@code pkg.Outer.Inner#name(int,java.lang.String[])} for a method or constructor, whose
+ * parameter types are erased. Indexes built from source text that has not been attributed, such as
+ * stub files, use {@link #simpleSignature(Element, Types)} instead, which names parameter types by
+ * their simple names: {@code pkg.Outer.Inner#name(int,String[])}.
+ */
+final class SignatureIndex {
+
+  /** The content kind of a file of method return and final field summaries. */
+  static final int RETURN_SUMMARIES = 1;
+
+  /** The content kind of a file of qualifiers compiled from stub files. */
+  static final int STUB_QUALIFIERS = 2;
+
+  /** The first bytes of every index file. */
+  private static final int MAGIC = 0x44425A49;
+
+  /** The version of the format; a file of another version is rejected. */
+  private static final int VERSION = 1;
+
+  /** The size of the header, in bytes. */
+  private static final int HEADER_SIZE = 16;
+
+  /** The size of an entry of the table, in bytes. */
+  private static final int ENTRY_SIZE = 12;
+
+  /** The file, for messages. */
+  private final Path file;
+
+  /** The mapped file. Its position and limit are never changed. */
+  private final ByteBuffer buffer;
+
+  /** The number of entries. */
+  private final int size;
+
+  private SignatureIndex(Path file, ByteBuffer buffer, int size) {
+    this.file = file;
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * The indexes opened so far in this JVM, by absolute path, so that a long-running process such as
+   * the checker daemon maps each file once. An entry is used only while its file is unchanged.
+   */
+  private static final Map<Path, SignatureIndex> OPENED = new ConcurrentHashMap<>();
+
+  /** The modification time of the file when it was mapped, in milliseconds. */
+  private long modified;
+
+  /**
+   * Map an index file, or return the index already mapped for it if the file has not changed since.
+   * Only the header is read. Indexes are immutable, so they can be shared between threads.
+   *
+   * @param file the index file
+   * @param kind the content kind the file must have
+   * @return the index
+   * @throws IOException if the file cannot be read, or is not an index of the given kind
+   */
+  static SignatureIndex open(Path file, int kind) throws IOException {
+    Path key = file.toAbsolutePath().normalize();
+    long modified = Files.getLastModifiedTime(key).toMillis();
+    SignatureIndex cached = OPENED.get(key);
+    if (cached != null
+        && cached.modified == modified
+        && cached.buffer.capacity() == Files.size(key)
+        && cached.buffer.getInt(8) == kind) {
+      return cached;
+    }
+    SignatureIndex index = map(file, kind);
+    index.modified = modified;
+    OPENED.put(key, index);
+    return index;
+  }
+
+  /** Map an index file, and check its header. */
+  private static SignatureIndex map(Path file, int kind) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.capacity() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION
+        || buffer.getInt(8) != kind) {
+      throw new IOException(file + " is not a divide-by-zero index of kind " + kind);
+    }
+    int size = buffer.getInt(12);
+    if (size < 0 || HEADER_SIZE + (long) size * ENTRY_SIZE > buffer.capacity()) {
+      throw new IOException(file + " is truncated");
+    }
+    return new SignatureIndex(file, buffer, size);
+  }
+
+  /**
+   * Look up the value for a signature.
+   *
+   * @param signature a signature, as built by {@link #signature(Element, Types)}
+   * @return a read-only buffer of the value, or null if the index has no entry for the signature
+   */
+  ByteBuffer lookup(String signature) {
+    byte[] key = signature.getBytes(StandardCharsets.UTF_8);
+    long hash = hash(key);
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (buffer.getLong(HEADER_SIZE + mid * ENTRY_SIZE) < hash) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int i = low; i < size && buffer.getLong(HEADER_SIZE + i * ENTRY_SIZE) == hash; i++) {
+      int record = buffer.getInt(HEADER_SIZE + i * ENTRY_SIZE + 8);
+      if (keyEquals(record, key)) {
+        int valueAt = record + 4 + key.length;
+        int valueLength = buffer.getInt(valueAt);
+        ByteBuffer value = buffer.duplicate();
+        value.position(valueAt + 4).limit(valueAt + 4 + valueLength);
+        return value.slice().asReadOnlyBuffer();
+      }
+    }
+    return null;
+  }
+
+  /** Whether the record at the given offset has the given key. */
+  private boolean keyEquals(int record, byte[] key) {
+    if (buffer.getInt(record) != key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (buffer.get(record + 4 + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "SignatureIndex(" + file + ", " + size + " entries)";
+  }
+
+  /**
+   * Write an index file. The file is written to a temporary file and then moved into place, so a
+   * concurrent reader sees either the old or the new file.
+   *
+   * @param file the index file
+   * @param kind the content kind, such as {@link #RETURN_SUMMARIES}
+   * @param entries the value for each signature
+   * @throws IOException if the file cannot be written
+   */
+  static void write(Path file, int kind, Map<String, byte[]> entries) throws IOException {
+    List<byte[]> keys = new ArrayList<>(entries.size());
+    List<byte[]> values = new ArrayList<>(entries.size());
+    for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+      keys.add(e.getKey().getBytes(StandardCharsets.UTF_8));
+      values.add(e.getValue());
+    }
+    int n = keys.size();
+    long[] hashes = new long[n];
+    List<Integer> order = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      hashes[i] = hash(keys.get(i));
+      order.add(i);
+    }
+    order.sort(Comparator.comparingLong(i -> hashes[i]));
+
+    long total = HEADER_SIZE + (long) n * ENTRY_SIZE;
+    for (int i = 0; i < n; i++) {
+      total += 8 + keys.get(i).length + values.get(i).length;
+    }
+    if (total > Integer.MAX_VALUE) {
+      throw new IOException("too many entries for " + file);
+    }
+    ByteBuffer out = ByteBuffer.allocate((int) total);
+    out.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(n);
+    int record = HEADER_SIZE + n * ENTRY_SIZE;
+    for (int i : order) {
+      out.putLong(hashes[i]).putInt(record);
+      record += 8 + keys.get(i).length + values.get(i).length;
+    }
+    for (int i : order) {
+      out.putInt(keys.get(i).length).put(keys.get(i));
+      out.putInt(values.get(i).length).put(values.get(i));
+    }
+
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream stream = Files.newOutputStream(temp)) {
+        stream.write(out.array());
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * The signature of a field, method or constructor, as used for keys of an index.
+   *
+   * @param element a field, method or constructor
+   * @param types the type utilities, for erasure
+   * @return the signature
+   */
+  static String signature(Element element, Types types) {
+    TypeElement owner = (TypeElement) element.getEnclosingElement();
+    StringBuilder result = new StringBuilder();
+    result.append(owner.getQualifiedName()).append('#');
+    if (element.getKind() == ElementKind.CONSTRUCTOR) {
+      result.append("<init>");
+    } else {
+      result.append(element.getSimpleName());
+    }
+    if (element instanceof ExecutableElement) {
+      result.append('(');
+      String separator = "";
+      for (VariableElement param : ((ExecutableElement) element).getParameters()) {
+        result.append(separator).append(erasedName(param.asType(), types));
+        separator = ",";
+      }
+      result.append(')');
+    }
+    return result.toString();
+  }
+
+  /**
+   * The signature of a field, method or constructor, with the simple names of its parameter types,
+   * as used for keys of an index built from unattributed source.
+   *
+   * @param element a field, method or constructor
+   * @param types the type utilities, for erasure
+   * @return the signature
+   */
+  static String simpleSignature(Element element, Types types) {
+    TypeElement owner = (TypeElement) element.getEnclosingElement();
+    List<String> params = new ArrayList<>();
+    if (element instanceof ExecutableElement) {
+      for (VariableElement param : ((ExecutableElement) element).getParameters()) {
+        String name = erasedName(param.asType(), types);
+        params.add(name.substring(name.lastIndexOf('.') + 1));
+      }
+    }
+    String name =
+        element.getKind() == ElementKind.CONSTRUCTOR
+            ? "<init>"
+            : element.getSimpleName().toString();
+    return simpleSignature(
+        owner.getQualifiedName().toString(), name, element instanceof ExecutableElement, params);
+  }
+
+  /**
+   * A signature with the simple names of parameter types, from its parts.
+   *
+   * @param owner the canonical name of the class that declares the member
+   * @param name the name of the member, or {@code <init>} for a constructor
+   * @param executable true for a method or constructor, false for a field
+   * @param params the simple names of the erased parameter types, such as {@code int[]}
+   * @return the signature
+   */
+  static String simpleSignature(
+      String owner, String name, boolean executable, List<String> params) {
+    StringBuilder result = new StringBuilder(owner).append('#').append(name);
+    if (executable) {
+      result.append('(').append(String.join(",", params)).append(')');
+    }
+    return result.toString();
+  }
+
+  /**
+   * The name of the erasure of a type, without any type annotations: {@code int}, {@code
+   * java.util.Map.Entry} or {@code java.lang.Object[]}.
+   */
+  private static String erasedName(TypeMirror type, Types types) {
+    TypeMirror erased = types.erasure(type);
+    switch (erased.getKind()) {
+      case ARRAY:
+        return erasedName(((ArrayType) erased).getComponentType(), types) + "[]";
+      case DECLARED:
+        return ((TypeElement) ((DeclaredType) erased).asElement()).getQualifiedName().toString();
+      default:
+        if (erased.getKind().isPrimitive()) {
+          return erased.getKind().name().toLowerCase(Locale.ROOT);
+        }
+        return erased.toString();
+    }
+  }
+
+  /** The FNV-1a hash of some bytes. */
+  private static long hash(byte[] bytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+}
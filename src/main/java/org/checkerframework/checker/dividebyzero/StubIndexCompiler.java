@@ -0,0 +1,355 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.AnnotatedTypeTree;
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ArrayTypeTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParameterizedTypeTree;
+import com.sun.source.tree.PrimitiveTypeTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeParameterTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles stub files into a binary index of the qualifiers they write on the return types,
+ * parameter types and field types of declarations, for {@code -AdbzStubIndex}. Run it as part of
+ * the build, whenever the stub files change:
+ *
+ * <pre>
+ * ./gradlew stubIndex -PstubIndexArgs="-o build/dbz-stubs.idx stubs/"
+ * </pre>
+ *
+ * <p>Each argument is a stub file ({@code .astub} or {@code .stub}) or a directory that is searched
+ * for them. Stub files are parsed with javac's parser, one package at a time, and are not
+ * attributed, so qualifiers are recognized by name: written in full, or by simple name when the
+ * file imports them. Only qualifiers on the outermost type of a return, parameter or field are
+ * indexed; qualifiers on type arguments or array components still need {@code -Astubs}.
+ *
+ * <p>The value of each entry is a count of positions followed by a byte per position: for a method
+ * or constructor the return type then each parameter, and for a field its type. A byte is a set of
+ * signs of {@link SignDomain}, or {@link #UNANNOTATED}.
+ */
+public final class StubIndexCompiler {
+
+  /** The value byte of a position that has no qualifier. */
+  static final byte UNANNOTATED = (byte) 0xff;
+
+  /** The package of the qualifiers. */
+  private static final String QUALIFIER_PACKAGE = "org.checkerframework.checker.dividebyzero.qual";
+
+  /** A package declaration; a stub file may contain several. */
+  private static final Pattern PACKAGE = Pattern.compile("(?m)^\\s*package\\s+([\\w.]+)\\s*;");
+
+  /** An import declaration. */
+  private static final Pattern IMPORT =
+      Pattern.compile("(?m)^\\s*import\\s+(static\\s+)?([\\w.]+(\\.\\*)?)\\s*;");
+
+  private StubIndexCompiler() {
+    throw new AssertionError("do not instantiate");
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path output = null;
+    List<Path> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-o") && i + 1 < args.length) {
+        output = Paths.get(args[++i]);
+      } else {
+        inputs.add(Paths.get(args[i]));
+      }
+    }
+    if (output == null || inputs.isEmpty()) {
+      System.err.println("Usage: StubIndexCompiler -o <index file> <stub file or directory>...");
+      System.exit(2);
+    }
+    int entries = compile(inputs, output, System.err);
+    System.err.printf("Wrote %d entries to %s%n", entries, output);
+  }
+
+  /**
+   * Compile stub files into an index.
+   *
+   * @param inputs stub files, and directories to search for stub files
+   * @param output the index file to write
+   * @param log where to report stub files that cannot be parsed
+   * @return the number of entries written
+   * @throws IOException if a stub file cannot be read or the index cannot be written
+   */
+  public static int compile(List<Path> inputs, Path output, PrintStream log) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (Path input : inputs) {
+      if (Files.isDirectory(input)) {
+        try (Stream<Path> walk = Files.walk(input)) {
+          walk.filter(StubIndexCompiler::isStubFile).sorted().forEach(files::add);
+        }
+      } else {
+        files.add(input);
+      }
+    }
+    Map<String, byte[]> entries = new TreeMap<>();
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    for (Path file : files) {
+      String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      Set<String> imports = new HashSet<>();
+      Matcher importMatcher = IMPORT.matcher(text);
+      while (importMatcher.find()) {
+        if (importMatcher.group(1) == null) {
+          imports.add(importMatcher.group(2));
+        }
+      }
+      // javac accepts one package per compilation unit, so parse each package separately. Imports
+      // only serve to recognize qualifiers, so they are removed.
+      String code = IMPORT.matcher(text).replaceAll("");
+      for (String unit : splitPackages(code)) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavacTask task =
+            (JavacTask)
+                javac.getTask(
+                    null,
+                    null,
+                    diagnostics,
+                    Arrays.asList("-proc:none"),
+                    null,
+                    Arrays.asList(new StubSource(file, unit)));
+        for (CompilationUnitTree root : task.parse()) {
+          String pkg = root.getPackageName() == null ? "" : root.getPackageName().toString();
+          for (Tree decl : root.getTypeDecls()) {
+            if (decl instanceof ClassTree) {
+              new Indexer(imports, entries).indexClass((ClassTree) decl, pkg, new HashMap<>());
+            }
+          }
+        }
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+          if (d.getKind() == Diagnostic.Kind.ERROR) {
+            log.printf("%s: %s%n", file, d.getMessage(Locale.ROOT));
+          }
+        }
+      }
+    }
+    SignatureIndex.write(output, SignatureIndex.STUB_QUALIFIERS, entries);
+    return entries.size();
+  }
+
+  private static boolean isStubFile(Path file) {
+    String name = file.getFileName().toString();
+    return name.endsWith(".astub") || name.endsWith(".stub");
+  }
+
+  /** Split the text of a stub file into one compilation unit per package declaration. */
+  private static List<String> splitPackages(String code) {
+    List<Integer> starts = new ArrayList<>();
+    Matcher m = PACKAGE.matcher(code);
+    while (m.find()) {
+      starts.add(m.start());
+    }
+    if (starts.size() <= 1) {
+      return Arrays.asList(code);
+    }
+    List<String> units = new ArrayList<>();
+    for (int i = 0; i < starts.size(); i++) {
+      int end = i + 1 < starts.size() ? starts.get(i + 1) : code.length();
+      // Keep the line numbers of the original file, for error messages.
+      String before = code.substring(0, starts.get(i)).replaceAll("[^\n]", "");
+      units.add(before + code.substring(starts.get(i), end));
+    }
+    return units;
+  }
+
+  /** Records the qualifiers of the declarations in a compilation unit. */
+  private static final class Indexer {
+
+    /** The imports of the stub file. */
+    private final Set<String> imports;
+
+    /** The entries of the index. */
+    private final Map<String, byte[]> entries;
+
+    Indexer(Set<String> imports, Map<String, byte[]> entries) {
+      this.imports = imports;
+      this.entries = entries;
+    }
+
+    /**
+     * Index a class and its nested classes.
+     *
+     * @param tree the class
+     * @param owner the canonical name of the enclosing class or package
+     * @param typeVariables the simple name of the erasure of each type variable in scope
+     */
+    void indexClass(ClassTree tree, String owner, Map<String, String> typeVariables) {
+      String simpleName = tree.getSimpleName().toString();
+      String name = owner.isEmpty() ? simpleName : owner + "." + simpleName;
+      Map<String, String> classScope = new HashMap<>(typeVariables);
+      addTypeVariables(tree.getTypeParameters(), classScope);
+      for (Tree member : tree.getMembers()) {
+        if (member instanceof ClassTree) {
+          indexClass((ClassTree) member, name, classScope);
+        } else if (member instanceof MethodTree) {
+          indexMethod((MethodTree) member, name, classScope);
+        } else if (member instanceof VariableTree) {
+          VariableTree field = (VariableTree) member;
+          byte signs = signs(field.getModifiers().getAnnotations(), field.getType());
+          if (signs != UNANNOTATED) {
+            String key =
+                SignatureIndex.simpleSignature(
+                    name, field.getName().toString(), false, new ArrayList<>());
+            entries.put(key, new byte[] {1, signs});
+          }
+        }
+      }
+    }
+
+    private void indexMethod(MethodTree method, String owner, Map<String, String> classScope) {
+      Map<String, String> scope = new HashMap<>(classScope);
+      addTypeVariables(method.getTypeParameters(), scope);
+      boolean constructor = method.getReturnType() == null;
+      List<String> params = new ArrayList<>();
+      byte[] value = new byte[2 + method.getParameters().size()];
+      value[0] = (byte) (value.length - 1);
+      value[1] =
+          constructor
+              ? UNANNOTATED
+              : signs(method.getModifiers().getAnnotations(), method.getReturnType());
+      boolean annotated = value[1] != UNANNOTATED;
+      int i = 2;
+      for (VariableTree param : method.getParameters()) {
+        params.add(erasedSimpleName(param.getType(), scope));
+        value[i] = signs(param.getModifiers().getAnnotations(), param.getType());
+        annotated |= value[i] != UNANNOTATED;
+        i++;
+      }
+      if (annotated) {
+        String name = constructor ? "<init>" : method.getName().toString();
+        entries.put(SignatureIndex.simpleSignature(owner, name, true, params), value);
+      }
+    }
+
+    /** Record the erasures of some type parameters. */
+    private void addTypeVariables(
+        List<? extends TypeParameterTree> parameters, Map<String, String> scope) {
+      for (TypeParameterTree param : parameters) {
+        // Bounds may refer to the parameters themselves, so look them up after adding them all.
+        scope.put(param.getName().toString(), "Object");
+      }
+      for (TypeParameterTree param : parameters) {
+        if (!param.getBounds().isEmpty()) {
+          scope.put(param.getName().toString(), erasedSimpleName(param.getBounds().get(0), scope));
+        }
+      }
+    }
+
+    /**
+     * The qualifier written on a type, as a set of signs.
+     *
+     * @param declarationAnnotations the annotations written before the declaration, which apply to
+     *     its type
+     * @param type the type
+     * @return the set of signs, or {@link #UNANNOTATED}
+     */
+    private byte signs(List<? extends AnnotationTree> declarationAnnotations, Tree type) {
+      byte result = UNANNOTATED;
+      for (AnnotationTree annotation : declarationAnnotations) {
+        result = merge(result, signs(annotation));
+      }
+      if (type instanceof AnnotatedTypeTree) {
+        for (AnnotationTree annotation : ((AnnotatedTypeTree) type).getAnnotations()) {
+          result = merge(result, signs(annotation));
+        }
+      }
+      return result;
+    }
+
+    private static byte merge(byte previous, int signs) {
+      if (signs < 0) {
+        return previous;
+      }
+      return (byte) (previous == UNANNOTATED ? signs : previous & signs);
+    }
+
+    /** The set of signs of an annotation, or -1 if it is not a qualifier of this checker. */
+    private int signs(AnnotationTree annotation) {
+      String name = annotation.getAnnotationType().toString();
+      if (name.indexOf('.') < 0) {
+        if (!imports.contains(QUALIFIER_PACKAGE + ".*")
+            && !imports.contains(QUALIFIER_PACKAGE + "." + name)) {
+          return -1;
+        }
+        name = QUALIFIER_PACKAGE + "." + name;
+      }
+      return SignQualifiers.signsOf(name);
+    }
+
+    /** The simple name of the erasure of a type, as written in a stub file. */
+    private String erasedSimpleName(Tree type, Map<String, String> typeVariables) {
+      switch (type.getKind()) {
+        case PRIMITIVE_TYPE:
+          return ((PrimitiveTypeTree) type).getPrimitiveTypeKind().name().toLowerCase(Locale.ROOT);
+        case ARRAY_TYPE:
+          return erasedSimpleName(((ArrayTypeTree) type).getType(), typeVariables) + "[]";
+        case PARAMETERIZED_TYPE:
+          return erasedSimpleName(((ParameterizedTypeTree) type).getType(), typeVariables);
+        case ANNOTATED_TYPE:
+          return erasedSimpleName(((AnnotatedTypeTree) type).getUnderlyingType(), typeVariables);
+        case MEMBER_SELECT:
+          return ((MemberSelectTree) type).getIdentifier().toString();
+        case IDENTIFIER:
+          String name = ((IdentifierTree) type).getName().toString();
+          return typeVariables.getOrDefault(name, name);
+        default:
+          return type.toString();
+      }
+    }
+  }
+
+  /** The text of one package of a stub file, as a source file for javac's parser. */
+  private static final class StubSource extends SimpleJavaFileObject {
+
+    /** The text. */
+    private final String code;
+
+    StubSource(Path file, String code) {
+      super(uriOf(file), JavaFileObject.Kind.SOURCE);
+      this.code = code;
+    }
+
+    private static URI uriOf(Path file) {
+      // javac's parser only accepts files whose names end in .java.
+      return URI.create(file.toUri() + ".java");
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+}
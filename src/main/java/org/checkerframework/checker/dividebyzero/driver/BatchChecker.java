@@ -0,0 +1,169 @@
+package org.checkerframework.checker.dividebyzero.driver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Checks sources in this JVM and returns their diagnostics, for programs that produce many small
+ * sources, such as code generators, and want each of them checked without launching javac.
+ *
+ * <pre>{@code
+ * BatchChecker checker = new BatchChecker(classpath, List.of("-Anomsgtext"));
+ * List<JavaFileObject> sources = new ArrayList<>();
+ * for (GeneratedClass c : generated) {
+ *   sources.add(BatchChecker.source(c.path(), c.code()));
+ * }
+ * for (ReportedDiagnostic d : checker.check(sources)) {
+ *   ...
+ * }
+ * }</pre>
+ *
+ * <p>Sources are checked in batches of {@link #DEFAULT_BATCH_SIZE} by default. The sources of a
+ * batch are checked in one javac task, so they share its symbol table, the classes it loads from
+ * the classpath, and one initialized checker; batches share a file manager, which indexes the
+ * classpath, and the loaded and JIT-compiled code of javac and the checker. A javac task cannot be
+ * reused, so larger batches are faster, but a batch holds the trees and types of all its sources
+ * in memory until it is done.
+ *
+ * <p>A syntax or type error in a source can stop javac before the checker sees the other sources
+ * of its batch. So when javac itself reports errors in some sources of a batch, the diagnostics of
+ * those sources are kept and the rest of the batch is checked again without them. A source that
+ * uses a rejected one is then rejected too, since it no longer compiles.
+ *
+ * <p>Instances are thread-safe: batches may be checked from several threads at once.
+ */
+public final class BatchChecker {
+
+  /** The default number of sources checked in one javac task. */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  /** Runs the checks. */
+  private final InProcessChecker checker = new InProcessChecker();
+
+  /** The classpath of the sources. */
+  private final String classpath;
+
+  /** The javac and checker options. */
+  private final List<String> options;
+
+  /** The most sources checked in one javac task. */
+  private final int batchSize;
+
+  /**
+   * Creates a checker with the default batch size.
+   *
+   * @param classpath the classpath of the sources, in the format of {@code -classpath}
+   * @param options javac and checker options, such as {@code -AdbzStubIndex=stubs.idx}
+   */
+  public BatchChecker(String classpath, List<String> options) {
+    this(classpath, options, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates a checker.
+   *
+   * @param classpath the classpath of the sources, in the format of {@code -classpath}
+   * @param options javac and checker options, such as {@code -AdbzStubIndex=stubs.idx}
+   * @param batchSize the most sources to check in one javac task
+   */
+  public BatchChecker(String classpath, List<String> options, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.classpath = classpath;
+    this.options = Collections.unmodifiableList(new ArrayList<>(options));
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Returns an in-memory source.
+   *
+   * @param path the path of the source relative to a source root, such as {@code
+   *     com/example/Foo.java}; it names the source in diagnostics, and must end in the simple name
+   *     of its public class, if it has one
+   * @param code the code of the source
+   * @return a source whose diagnostics name the given path
+   */
+  public static JavaFileObject source(String path, String code) {
+    return new StringSource(path, code);
+  }
+
+  /**
+   * Check some sources.
+   *
+   * @param sources the sources to check
+   * @return the diagnostics of all the sources, in report order; see {@link ReportedDiagnostic}
+   * @throws IOException if the classpath cannot be read
+   */
+  public List<ReportedDiagnostic> check(List<? extends JavaFileObject> sources)
+      throws IOException {
+    List<ReportedDiagnostic> result = new ArrayList<>();
+    for (int start = 0; start < sources.size(); start += batchSize) {
+      checkBatch(sources.subList(start, Math.min(sources.size(), start + batchSize)), result);
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Check one batch. If javac rejects some of its sources, their diagnostics are kept and the
+   * others are checked again without them.
+   */
+  private void checkBatch(List<? extends JavaFileObject> batch, List<ReportedDiagnostic> result)
+      throws IOException {
+    List<JavaFileObject> remaining = new ArrayList<>(batch);
+    while (!remaining.isEmpty()) {
+      InProcessChecker.Result checked = checker.checkSources(remaining, classpath, options);
+      Set<String> rejected = checked.compilerErrorFiles;
+      List<JavaFileObject> accepted = new ArrayList<>();
+      for (JavaFileObject source : remaining) {
+        if (!rejected.contains(source.getName())) {
+          accepted.add(source);
+        }
+      }
+      if (rejected.isEmpty() || accepted.size() == remaining.size()) {
+        // No errors, or errors that no source of the batch can be blamed for.
+        result.addAll(checked.diagnostics);
+        return;
+      }
+      for (ReportedDiagnostic d : checked.diagnostics) {
+        if (rejected.contains(d.file)) {
+          result.add(d);
+        }
+      }
+      remaining = accepted;
+    }
+  }
+
+  /** A source held in a string. */
+  private static final class StringSource extends SimpleJavaFileObject {
+
+    /** The path, as given. */
+    private final String path;
+
+    /** The code. */
+    private final String code;
+
+    StringSource(String path, String code) {
+      super(URI.create("string:///" + path.replace('\\', '/')), Kind.SOURCE);
+      this.path = path;
+      this.code = code;
+    }
+
+    @Override
+    public String getName() {
+      return path;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+}
@@ -0,0 +1,318 @@
+package org.checkerframework.checker.dividebyzero.driver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-running process that checks source files on request, so that a one-file check from a
+ * pre-commit hook or an editor does not pay for starting a JVM, loading the Checker Framework and
+ * warming up the JIT. Start it with {@link DaemonClient}, which starts the daemon if none is
+ * running, or directly:
+ *
+ * <pre>
+ * java -cp "$CHECKER_CLASSPATH" org.checkerframework.checker.dividebyzero.driver.CheckerDaemon \
+ *     [--socket PATH] [--threads N] [--idle-minutes N]
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code --socket PATH}: the Unix domain socket to listen on (default: {@link
+ *       #defaultSocket()}); only the user who started the daemon can connect to it
+ *   <li>{@code --threads N}: how many checks to run at once (default: half the processors, at least
+ *       one)
+ *   <li>{@code --idle-minutes N}: exit after this many minutes without a request (default 30)
+ * </ul>
+ *
+ * <p>The protocol is line-based UTF-8 text, one request per connection. A check request is
+ *
+ * <pre>
+ * CHECK
+ * cp CLASSPATH       (optional)
+ * opt JAVAC_OPTION   (any number, such as "opt -AdbzCache=/tmp/dbz" or "opt -sourcepath")
+ * src ABSOLUTE_PATH  (one or more)
+ * END
+ * </pre>
+ *
+ * and its response is one line per diagnostic, in the format of {@link ReportedDiagnostic}, and a
+ * last line {@code EXIT n}, where n is 0 if there were no errors, 1 if there were, and 2 if the
+ * check failed. {@code PING} is answered with {@code PONG} and the number of checks done, and
+ * {@code STOP} makes the daemon exit. Paths in requests should be absolute, since they are resolved
+ * against the daemon's working directory.
+ *
+ * <p>Each check runs in a fresh javac task; see {@link InProcessChecker} for what is reused between
+ * checks and when it is invalidated.
+ */
+public final class CheckerDaemon {
+
+  /** The default idle timeout, in minutes. */
+  private static final int DEFAULT_IDLE_MINUTES = 30;
+
+  /** A small class that is checked once at startup, to load and compile the checker's code. */
+  private static final String WARM_UP_SOURCE =
+      "class DbzWarmUp {\n"
+          + "  int f(int x, int y) {\n"
+          + "    if (y != 0) {\n"
+          + "      return x / y;\n"
+          + "    }\n"
+          + "    for (int i = 1; i < x; i++) {\n"
+          + "      y += x % i;\n"
+          + "    }\n"
+          + "    return y;\n"
+          + "  }\n"
+          + "}\n";
+
+  private Path socket = defaultSocket();
+  private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private long idleMillis = TimeUnit.MINUTES.toMillis(DEFAULT_IDLE_MINUTES);
+
+  /** Runs the checks. */
+  private final InProcessChecker checker = new InProcessChecker();
+
+  /** The number of requests being served. */
+  private final AtomicInteger active = new AtomicInteger();
+
+  /** The time the last request finished, from {@link System#nanoTime()}. */
+  private final AtomicLong lastActivity = new AtomicLong(System.nanoTime());
+
+  /** The number of checks done. */
+  private final AtomicLong checks = new AtomicLong();
+
+  /** The listening socket. */
+  private ServerSocketChannel server;
+
+  public static void main(String[] args) throws IOException {
+    CheckerDaemon daemon = new CheckerDaemon();
+    try {
+      daemon.parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    }
+    daemon.run();
+  }
+
+  /**
+   * Returns the default socket: {@code dbz-daemon-USER/daemon.sock} in the temporary directory.
+   */
+  public static Path defaultSocket() {
+    return Paths.get(
+        System.getProperty("java.io.tmpdir"),
+        "dbz-daemon-" + System.getProperty("user.name"),
+        "daemon.sock");
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--socket")) {
+        socket = Paths.get(value(args, ++i, arg));
+      } else if (arg.equals("--threads")) {
+        threads = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("--idle-minutes")) {
+        idleMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(value(args, ++i, arg)));
+      } else {
+        throw new IllegalArgumentException(
+            "Usage: CheckerDaemon [--socket PATH] [--threads N] [--idle-minutes N]");
+      }
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("--threads must be positive");
+    }
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(option + " requires an argument");
+    }
+    return args[i];
+  }
+
+  private void run() throws IOException {
+    bind();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    timer.scheduleAtFixedRate(this::exitIfIdle, 1, 1, TimeUnit.MINUTES);
+    pool.submit(this::warmUp);
+    System.err.printf("Listening on %s with %d threads%n", socket, threads);
+    try {
+      while (true) {
+        SocketChannel connection = server.accept();
+        active.incrementAndGet();
+        pool.submit(() -> serve(connection));
+      }
+    } catch (IOException e) {
+      // The socket was closed by STOP or the idle timer.
+    } finally {
+      pool.shutdownNow();
+      timer.shutdownNow();
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  /** Listen on the socket, unless another daemon already does. */
+  private void bind() throws IOException {
+    createSocketDirectory(socket);
+    if (Files.exists(socket)) {
+      if (isListening(socket)) {
+        throw new IOException("A daemon is already listening on " + socket);
+      }
+      // A daemon that was killed left its socket behind.
+      Files.delete(socket);
+    }
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socket));
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+    }
+  }
+
+  /**
+   * Create the directory of a socket, if it does not exist, so that only this user can enter it.
+   *
+   * @param socket a socket
+   * @return the directory
+   * @throws IOException if the directory cannot be created
+   */
+  static Path createSocketDirectory(Path socket) throws IOException {
+    Path dir = socket.toAbsolutePath().getParent();
+    if (!Files.isDirectory(dir)) {
+      Files.createDirectories(dir);
+      if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+        Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+      }
+    }
+    return dir;
+  }
+
+  /** Returns true if a daemon accepts connections on the given socket. */
+  static boolean isListening(Path socket) {
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Serve one request. */
+  private void serve(SocketChannel connection) {
+    try (SocketChannel c = connection;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(c), StandardCharsets.UTF_8));
+        Writer out =
+            new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(c), StandardCharsets.UTF_8))) {
+      String command = in.readLine();
+      if (command == null) {
+        return;
+      }
+      switch (command) {
+        case "PING":
+          out.write("PONG " + checks.get() + "\n");
+          break;
+        case "STOP":
+          out.write("STOPPING\n");
+          out.flush();
+          server.close();
+          break;
+        case "CHECK":
+          check(in, out);
+          break;
+        default:
+          out.write("ERROR unknown command " + command + "\n");
+          break;
+      }
+    } catch (IOException e) {
+      System.err.println("Request failed: " + e);
+    } finally {
+      lastActivity.set(System.nanoTime());
+      active.decrementAndGet();
+    }
+  }
+
+  /** Read the rest of a check request, check the files, and write the response. */
+  private void check(BufferedReader in, Writer out) throws IOException {
+    String classpath = "";
+    List<String> options = new ArrayList<>();
+    List<Path> files = new ArrayList<>();
+    for (String line = in.readLine(); !"END".equals(line); line = in.readLine()) {
+      if (line == null) {
+        throw new IOException("request ended without END");
+      } else if (line.startsWith("cp ")) {
+        classpath = line.substring(3);
+      } else if (line.startsWith("opt ")) {
+        options.add(line.substring(4));
+      } else if (line.startsWith("src ")) {
+        files.add(Paths.get(line.substring(4)));
+      }
+    }
+    InProcessChecker.Result result;
+    try {
+      result = checker.check(files, classpath, options);
+    } catch (IOException | RuntimeException e) {
+      out.write(new ReportedDiagnostic("", 0, 0, "error", "check failed: " + e) + "\n");
+      out.write("EXIT 2\n");
+      return;
+    }
+    checks.incrementAndGet();
+    for (ReportedDiagnostic d : result.diagnostics) {
+      out.write(d.toString().replace('\n', ' ') + "\n");
+    }
+    out.write("EXIT " + result.exitCode + "\n");
+  }
+
+  /** Check a small class, so that the first real request finds the checker loaded and compiled. */
+  private void warmUp() {
+    try {
+      Path dir = Files.createTempDirectory("dbz-warm-up");
+      Path file = dir.resolve("DbzWarmUp.java");
+      Files.write(file, WARM_UP_SOURCE.getBytes(StandardCharsets.UTF_8));
+      try {
+        for (int i = 0; i < 3; i++) {
+          checker.check(List.of(file), "", List.of());
+        }
+      } finally {
+        Files.delete(file);
+        Files.delete(dir);
+      }
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Warm-up failed: " + e);
+    }
+  }
+
+  /** Exit if no request has been served for the idle timeout. */
+  private void exitIfIdle() {
+    long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivity.get());
+    if (active.get() == 0 && idle >= idleMillis) {
+      System.err.printf("Exiting after %d idle minutes%n", TimeUnit.MILLISECONDS.toMinutes(idle));
+      try {
+        server.close();
+      } catch (IOException e) {
+        System.exit(0);
+      }
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package org.checkerframework.checker.dividebyzero.driver;
+
+import com.sun.source.util.JavacTask;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+
+/**
+ * Runs the Divide By Zero Checker in javac tasks inside this JVM, so that a long-running process
+ * pays for class loading and JIT compilation once. Each check is a fresh javac task with a fresh
+ * checker, because javac's symbol table belongs to a single compilation, but the file managers,
+ * which index the jars of the classpath, are kept and reused.
+ *
+ * <p>File managers are pooled per classpath and are not shared between concurrent checks, since
+ * javac's file manager is not thread-safe. When a jar or class directory of a classpath changes,
+ * the pool of that classpath is discarded, so a check never sees stale classes. Instances are
+ * thread-safe.
+ *
+ * <p>{@link BatchChecker} is the public interface to this class.
+ */
+final class InProcessChecker {
+
+  /** The most classpaths to keep file managers for; the least recently used is discarded. */
+  private static final int MAX_CLASSPATHS = 8;
+
+  /** The code of the diagnostics that annotation processors, such as the checker, report. */
+  private static final String CHECKER_DIAGNOSTIC_CODE = "compiler.err.proc.messager";
+
+  /** The most files of a class directory to look at when deciding whether it changed. */
+  private static final int MAX_FILES_PER_DIRECTORY = 100_000;
+
+  /** The system Java compiler. */
+  private final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+
+  /** The file managers of each classpath, most recently used last. Guarded by {@code this}. */
+  private final LinkedHashMap<String, Pool> pools =
+      new LinkedHashMap<String, Pool>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pool> eldest) {
+          if (size() > MAX_CLASSPATHS) {
+            eldest.getValue().closeIdle();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  /** The outcome of a check. */
+  static final class Result {
+    /** The diagnostics, in the order javac reported them. */
+    final List<ReportedDiagnostic> diagnostics;
+
+    /** 0 if there were no errors, 1 if there were, and 2 if javac failed without reporting one. */
+    final int exitCode;
+
+    /**
+     * The files in which javac itself, rather than the checker, reported an error, such as a syntax
+     * error. Such an error can stop javac before the checker sees the other sources.
+     */
+    final Set<String> compilerErrorFiles;
+
+    Result(List<ReportedDiagnostic> diagnostics, int exitCode, Set<String> compilerErrorFiles) {
+      this.diagnostics = diagnostics;
+      this.exitCode = exitCode;
+      this.compilerErrorFiles = compilerErrorFiles;
+    }
+  }
+
+  /**
+   * Check some source files.
+   *
+   * @param files the source files to check
+   * @param classpath the classpath of the code being checked
+   * @param options other javac options, such as {@code -sourcepath} and checker options such as
+   *     {@code -AdbzCache=/tmp/dbz}
+   * @return the diagnostics and exit code
+   * @throws IOException if the classpath cannot be read
+   */
+  Result check(List<Path> files, String classpath, List<String> options) throws IOException {
+    return check(fileManager -> fileManager.getJavaFileObjectsFromPaths(files), classpath, options);
+  }
+
+  /**
+   * Check some sources, which need not be files, in one javac task.
+   *
+   * @param sources the sources to check
+   * @param classpath the classpath of the code being checked
+   * @param options other javac options and checker options
+   * @return the diagnostics and exit code
+   * @throws IOException if the classpath cannot be read
+   */
+  Result checkSources(
+      List<? extends JavaFileObject> sources, String classpath, List<String> options)
+      throws IOException {
+    return check(fileManager -> sources, classpath, options);
+  }
+
+  /** Check the sources that a function gives for a file manager of the classpath. */
+  private Result check(
+      Function<StandardJavaFileManager, Iterable<? extends JavaFileObject>> sources,
+      String classpath,
+      List<String> options)
+      throws IOException {
+    List<File> entries = new ArrayList<>();
+    for (String entry : classpath.split(File.pathSeparator)) {
+      if (!entry.isEmpty()) {
+        entries.add(new File(entry));
+      }
+    }
+    String fingerprint = fingerprint(entries);
+    Pool pool;
+    StandardJavaFileManager fileManager;
+    synchronized (this) {
+      pool = pool(classpath, entries, fingerprint);
+      fileManager = pool.idle.poll();
+    }
+    if (fileManager == null) {
+      fileManager = javac.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+      fileManager.setLocation(StandardLocation.CLASS_PATH, pool.entries);
+    }
+    try {
+      return check(fileManager, sources.apply(fileManager), options);
+    } finally {
+      release(classpath, pool, fileManager);
+    }
+  }
+
+  private Result check(
+      StandardJavaFileManager fileManager,
+      Iterable<? extends JavaFileObject> sources,
+      List<String> options) {
+    List<ReportedDiagnostic> diagnostics = new ArrayList<>();
+    Set<String> compilerErrorFiles = new HashSet<>();
+    List<String> javacOptions = new ArrayList<>();
+    javacOptions.add("-proc:only");
+    javacOptions.add("-implicit:none");
+    javacOptions.add("-Xmaxerrs");
+    javacOptions.add(String.valueOf(Integer.MAX_VALUE));
+    javacOptions.add("-Xmaxwarns");
+    javacOptions.add(String.valueOf(Integer.MAX_VALUE));
+    javacOptions.addAll(options);
+    JavacTask task =
+        (JavacTask)
+            javac.getTask(
+                null,
+                fileManager,
+                d -> {
+                  synchronized (diagnostics) {
+                    ReportedDiagnostic reported = toReported(d);
+                    diagnostics.add(reported);
+                    if (d.getKind() == Diagnostic.Kind.ERROR
+                        && !CHECKER_DIAGNOSTIC_CODE.equals(d.getCode())) {
+                      compilerErrorFiles.add(reported.file);
+                    }
+                  }
+                },
+                javacOptions,
+                null,
+                sources);
+    task.setProcessors(List.of(new DivByZeroChecker()));
+    boolean success;
+    try {
+      success = task.call();
+    } catch (RuntimeException e) {
+      diagnostics.add(new ReportedDiagnostic("", 0, 0, "error", "javac failed: " + e));
+      compilerErrorFiles.add("");
+      return new Result(diagnostics, 2, compilerErrorFiles);
+    }
+    boolean errors = diagnostics.stream().anyMatch(d -> d.kind.equals("error"));
+    return new Result(diagnostics, errors ? 1 : success ? 0 : 2, compilerErrorFiles);
+  }
+
+  /** Convert a javac diagnostic to the form of a report. */
+  private static ReportedDiagnostic toReported(Diagnostic<? extends JavaFileObject> d) {
+    String file = d.getSource() == null ? "" : d.getSource().getName();
+    long line = Math.max(0, d.getLineNumber());
+    long column = Math.max(0, d.getColumnNumber());
+    String kind;
+    switch (d.getKind()) {
+      case ERROR:
+        kind = "error";
+        break;
+      case WARNING:
+      case MANDATORY_WARNING:
+        kind = "warning";
+        break;
+      default:
+        kind = "note";
+        break;
+    }
+    return new ReportedDiagnostic(file, line, column, kind, d.getMessage(Locale.ROOT));
+  }
+
+  /**
+   * Returns the pool of a classpath, replacing it if the classpath has changed since the pool was
+   * made. Must hold the lock.
+   */
+  private Pool pool(String classpath, List<File> entries, String fingerprint) {
+    Pool pool = pools.get(classpath);
+    if (pool == null || !pool.fingerprint.equals(fingerprint)) {
+      if (pool != null) {
+        pool.closeIdle();
+      }
+      pool = new Pool(entries, fingerprint);
+      pools.put(classpath, pool);
+    }
+    return pool;
+  }
+
+  /** Return a file manager to its pool, or close it if the pool has been replaced. */
+  private void release(String classpath, Pool pool, StandardJavaFileManager fileManager) {
+    synchronized (this) {
+      if (pools.get(classpath) == pool) {
+        pool.idle.push(fileManager);
+        return;
+      }
+    }
+    close(fileManager);
+  }
+
+  /**
+   * A string that changes when any entry of the classpath changes: the size and modification time
+   * of every jar, and of every file in every class directory.
+   */
+  private static String fingerprint(List<File> entries) throws IOException {
+    StringBuilder result = new StringBuilder();
+    for (File entry : entries) {
+      result.append(entry.getPath()).append('@');
+      if (entry.isDirectory()) {
+        long newest = entry.lastModified();
+        long count = 0;
+        try (Stream<Path> walk = Files.walk(entry.toPath())) {
+          Iterator<Path> files = walk.limit(MAX_FILES_PER_DIRECTORY).iterator();
+          while (files.hasNext()) {
+            newest = Math.max(newest, Files.getLastModifiedTime(files.next()).toMillis());
+            count++;
+          }
+        }
+        result.append(newest).append('/').append(count);
+      } else {
+        result.append(entry.lastModified()).append('/').append(entry.length());
+      }
+      result.append(File.pathSeparatorChar);
+    }
+    return result.toString();
+  }
+
+  private static void close(StandardJavaFileManager fileManager) {
+    try {
+      fileManager.close();
+    } catch (IOException e) {
+      // The file manager only holds open jars; nothing is lost.
+    }
+  }
+
+  /** The idle file managers of one classpath. */
+  private static final class Pool {
+    /** The classpath. */
+    final List<File> entries;
+
+    /** The fingerprint of the classpath when the pool was made. */
+    final String fingerprint;
+
+    /** File managers not in use. */
+    final Deque<StandardJavaFileManager> idle = new ArrayDeque<>();
+
+    Pool(List<File> entries, String fingerprint) {
+      this.entries = entries;
+      this.fingerprint = fingerprint;
+    }
+
+    void closeIdle() {
+      for (StandardJavaFileManager fileManager : idle) {
+        close(fileManager);
+      }
+      idle.clear();
+    }
+  }
+}
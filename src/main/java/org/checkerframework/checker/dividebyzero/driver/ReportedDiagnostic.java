@@ -0,0 +1,110 @@
+package org.checkerframework.checker.dividebyzero.driver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One diagnostic in a merged report. Reports list diagnostics one per line, ordered by file,
+ * position, kind and message, in the form
+ *
+ * <pre>
+ * file:line:column: kind: message
+ * </pre>
+ *
+ * where the column is 1-based, or 0 if unknown.
+ */
+public final class ReportedDiagnostic implements Comparable<ReportedDiagnostic> {
+
+  /** The order of a report. */
+  private static final Comparator<ReportedDiagnostic> ORDER =
+      Comparator.comparing((ReportedDiagnostic d) -> d.file)
+          .thenComparingLong(d -> d.line)
+          .thenComparingLong(d -> d.column)
+          .thenComparing(d -> d.kind)
+          .thenComparing(d -> d.message);
+
+  /** A diagnostic line in javac's default output format. */
+  private static final Pattern JAVAC_DIAGNOSTIC =
+      Pattern.compile("^(.+?):(\\d+): (error|warning): (.*)$");
+
+  /** The file the diagnostic is reported in. */
+  public final String file;
+
+  /** The 1-based line. */
+  public final long line;
+
+  /** The 1-based column, or 0 if unknown. */
+  public final long column;
+
+  /** "error" or "warning". */
+  public final String kind;
+
+  /** The message, such as "(divide.by.zero)" when run with {@code -Anomsgtext}. */
+  public final String message;
+
+  public ReportedDiagnostic(String file, long line, long column, String kind, String message) {
+    this.file = file;
+    this.line = line;
+    this.column = column;
+    this.kind = kind;
+    this.message = message;
+  }
+
+  /**
+   * Parse javac's output. javac follows each diagnostic line with the offending source line and a
+   * line with a caret under the reported column, which give the column. Other lines are ignored.
+   *
+   * @param output the standard error of a javac run
+   * @return the diagnostics, in the order javac printed them
+   */
+  public static List<ReportedDiagnostic> parseJavacOutput(String output) {
+    List<ReportedDiagnostic> result = new ArrayList<>();
+    String[] lines = output.split("\\R");
+    for (int i = 0; i < lines.length; i++) {
+      Matcher m = JAVAC_DIAGNOSTIC.matcher(lines[i]);
+      if (!m.matches()) {
+        continue;
+      }
+      long column = 0;
+      if (i + 2 < lines.length && lines[i + 2].trim().equals("^")) {
+        column = lines[i + 2].indexOf('^') + 1;
+      }
+      result.add(
+          new ReportedDiagnostic(
+              m.group(1), Long.parseLong(m.group(2)), column, m.group(3), m.group(4)));
+    }
+    return result;
+  }
+
+  @Override
+  public int compareTo(ReportedDiagnostic other) {
+    return ORDER.compare(this, other);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof ReportedDiagnostic)) {
+      return false;
+    }
+    ReportedDiagnostic other = (ReportedDiagnostic) o;
+    return file.equals(other.file)
+        && line == other.line
+        && column == other.column
+        && kind.equals(other.kind)
+        && message.equals(other.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(file, line, column, kind, message);
+  }
+
+  @Override
+  public String toString() {
+    return file + ":" + line + ":" + column + ": " + kind + ": " + message;
+  }
+}
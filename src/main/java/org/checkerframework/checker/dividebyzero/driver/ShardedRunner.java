@@ -0,0 +1,411 @@
+package org.checkerframework.checker.dividebyzero.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+
+/**
+ * Checks a large source tree with the Divide By Zero Checker, using several javac processes at
+ * once.
+ *
+ * <p>The source files are partitioned into shards of roughly equal size. A package is only split
+ * across shards if it is larger than a shard. Every shard is checked by its own javac process, with
+ * the same classpath and with every source root on the sourcepath, so a shard sees the same
+ * declarations that a single javac run over the whole tree would. The diagnostics of all shards are
+ * merged, deduplicated, and printed in a stable order; see {@link ReportedDiagnostic}.
+ *
+ * <p>With {@code --split-large-files}, a file that is itself larger than a shard, such as a large
+ * generated class, is checked by several javac processes. Each parses the whole file but analyzes
+ * and checks only a share of its methods, with {@code -AdbzMethodShard}.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * java -cp &lt;checker classpath&gt; org.checkerframework.checker.dividebyzero.driver.ShardedRunner \
+ *     [-j N] [--shard-kb KB] [--split-large-files] [-cp CLASSPATH] [-o REPORT] \
+ *     [-J&lt;jvm option&gt;]... [-A&lt;option&gt;]... SOURCE_ROOT...
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code -j N}: how many javac processes to run at once (default: the number of processors)
+ *   <li>{@code --shard-kb KB}: the largest shard to make, in kilobytes of source (default: the
+ *       source size divided by four times the parallelism, so that shards can be balanced, but at
+ *       least 256 KB, so that JVM startup does not dominate)
+ *   <li>{@code --split-large-files}: split the methods of a file larger than a shard across as
+ *       many processes as it has shards' worth of source, up to {@code N}
+ *   <li>{@code -cp CLASSPATH}: the classpath of the code being checked
+ *   <li>{@code -o REPORT}: write the report to a file instead of standard output
+ *   <li>{@code -J<option>}: pass an option to every javac JVM, such as {@code -J-Xmx4g}
+ *   <li>{@code -A<option>}: pass an option to the checker, such as {@code -AdbzCache=/tmp/dbz}
+ * </ul>
+ *
+ * <p>The timing of each shard is printed to standard error. The exit status is 0 if no errors were
+ * reported, 1 if some were, and 2 if a shard failed without reporting any.
+ */
+public final class ShardedRunner {
+
+  /**
+   * JVM options for running the Checker Framework in javac. Keep this list in sync with {@code
+   * compilerArgsForRunningCF} in build.gradle.
+   */
+  static final List<String> JVM_OPTIONS_FOR_RUNNING_CF =
+      List.of(
+          "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+          "--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
+
+  /** The smallest default shard size; see {@code --shard-kb}. */
+  private static final long MIN_DEFAULT_SHARD_BYTES = 256 * 1024;
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private long maxShardBytes = -1;
+  private boolean splitLargeFiles;
+  private String classpath = "";
+  private Path reportFile;
+  private final List<String> jvmOptions = new ArrayList<>();
+  private final List<String> checkerOptions = new ArrayList<>();
+  private final List<Path> sourceRoots = new ArrayList<>();
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    ShardedRunner runner = new ShardedRunner();
+    try {
+      runner.parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    }
+    System.exit(runner.run());
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-j")) {
+        parallelism = Integer.parseInt(value(args, ++i, arg));
+      } else if (arg.equals("--shard-kb")) {
+        maxShardBytes = Long.parseLong(value(args, ++i, arg)) * 1024;
+      } else if (arg.equals("--split-large-files")) {
+        splitLargeFiles = true;
+      } else if (arg.equals("-cp") || arg.equals("-classpath")) {
+        classpath = value(args, ++i, arg);
+      } else if (arg.equals("-o")) {
+        reportFile = Paths.get(value(args, ++i, arg));
+      } else if (arg.startsWith("-J")) {
+        jvmOptions.add(arg.substring(2));
+      } else if (arg.startsWith("-A")) {
+        checkerOptions.add(arg);
+      } else if (arg.startsWith("-")) {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      } else {
+        sourceRoots.add(Paths.get(arg));
+      }
+    }
+    if (sourceRoots.isEmpty() || parallelism < 1) {
+      throw new IllegalArgumentException(
+          "Usage: ShardedRunner [-j N] [--shard-kb KB] [--split-large-files] [-cp CLASSPATH]"
+              + " [-o REPORT] [-J<jvm option>]... [-A<option>]... SOURCE_ROOT...");
+    }
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(option + " requires an argument");
+    }
+    return args[i];
+  }
+
+  /**
+   * Partition, check, merge and print.
+   *
+   * @return the exit status
+   */
+  private int run() throws IOException, InterruptedException {
+    List<Shard> shards = partition(sourceFilesByPackage());
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    List<Future<Shard.Result>> futures = new ArrayList<>();
+    for (Shard shard : shards) {
+      futures.add(pool.submit(() -> shard.check(javacCommand(shard))));
+    }
+    pool.shutdown();
+
+    SortedSet<ReportedDiagnostic> merged = new TreeSet<>();
+    boolean failed = false;
+    for (Future<Shard.Result> future : futures) {
+      Shard.Result result;
+      try {
+        result = future.get();
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+      System.err.println(result.timing());
+      merged.addAll(result.diagnostics);
+      if (result.crashed()) {
+        failed = true;
+        System.err.println(result.output);
+      }
+    }
+    System.err.printf(
+        "%d shards, %d diagnostics, %.1f s%n",
+        shards.size(), merged.size(), (System.nanoTime() - start) / 1e9);
+
+    try (PrintStream out =
+        reportFile == null
+            ? new PrintStream(System.out, false, StandardCharsets.UTF_8)
+            : new PrintStream(Files.newOutputStream(reportFile), false, StandardCharsets.UTF_8)) {
+      for (ReportedDiagnostic d : merged) {
+        out.println(d);
+      }
+    }
+    if (failed) {
+      return 2;
+    }
+    return merged.stream().anyMatch(d -> d.kind.equals("error")) ? 1 : 0;
+  }
+
+  /** Find the Java source files under the source roots, grouped by package directory. */
+  private Map<String, List<Path>> sourceFilesByPackage() throws IOException {
+    Map<String, List<Path>> result = new TreeMap<>();
+    for (Path root : sourceRoots) {
+      if (Files.isRegularFile(root)) {
+        result.computeIfAbsent("", k -> new ArrayList<>()).add(root);
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(root)) {
+        for (Path file : files.filter(p -> p.toString().endsWith(".java")).sorted()
+            .collect(Collectors.toList())) {
+          Path dir = root.relativize(file).getParent();
+          result.computeIfAbsent(dir == null ? "" : dir.toString(), k -> new ArrayList<>())
+              .add(file);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Partition packages into shards. Packages are placed largest first, each into the currently
+   * smallest shard, so shards end up about the same size; a package larger than the largest
+   * allowed shard is first split into pieces of that size.
+   */
+  private List<Shard> partition(Map<String, List<Path>> packages) throws IOException {
+    List<Shard> pieces = new ArrayList<>();
+    long total = 0;
+    for (Map.Entry<String, List<Path>> e : packages.entrySet()) {
+      Shard piece = new Shard(e.getKey());
+      for (Path file : e.getValue()) {
+        piece.add(file, Files.size(file));
+      }
+      pieces.add(piece);
+      total += piece.bytes;
+    }
+    long limit =
+        maxShardBytes > 0
+            ? maxShardBytes
+            : Math.max(MIN_DEFAULT_SHARD_BYTES, total / (4L * parallelism));
+
+    List<Shard> split = new ArrayList<>();
+    List<Shard> largeFiles = new ArrayList<>();
+    for (Shard piece : pieces) {
+      for (Shard p : piece.split(limit)) {
+        if (splitLargeFiles && p.files.size() == 1 && p.bytes > limit) {
+          largeFiles.add(p);
+          total -= p.bytes;
+        } else {
+          split.add(p);
+        }
+      }
+    }
+    split.sort(Comparator.comparingLong((Shard s) -> s.bytes).reversed());
+
+    int count = (int) Math.max(1, Math.min(split.size(), (total + limit - 1) / limit));
+    List<Shard> shards = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      shards.add(new Shard("shard " + (i + 1)));
+    }
+    for (Shard piece : split) {
+      Shard smallest = shards.get(0);
+      for (Shard s : shards) {
+        if (s.bytes < smallest.bytes) {
+          smallest = s;
+        }
+      }
+      smallest.addAll(piece);
+    }
+    shards.removeIf(s -> s.files.isEmpty());
+
+    // Every process checking a large file parses and attributes all of it, but only analyzes and
+    // checks its share of the methods.
+    for (Shard file : largeFiles) {
+      int share = (int) Math.min(parallelism, (file.bytes + limit - 1) / limit);
+      for (int i = 0; i < share; i++) {
+        Shard shard = new Shard("shard " + (shards.size() + 1));
+        shard.add(file.files.get(0), file.bytes / share);
+        shard.methodShard = i + "/" + share;
+        shards.add(shard);
+      }
+    }
+    return shards;
+  }
+
+  /** The javac command that checks one shard. */
+  private List<String> javacCommand(Shard shard) throws IOException {
+    Path argFile = Files.createTempFile("dbz-shard", ".args");
+    argFile.toFile().deleteOnExit();
+    List<String> fileNames = new ArrayList<>();
+    for (Path file : shard.files) {
+      fileNames.add("\"" + file.toString().replace("\\", "\\\\") + "\"");
+    }
+    Files.write(argFile, fileNames, StandardCharsets.UTF_8);
+
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "javac").toString());
+    for (String option : JVM_OPTIONS_FOR_RUNNING_CF) {
+      command.add("-J" + option);
+    }
+    for (String option : jvmOptions) {
+      command.add("-J" + option);
+    }
+    command.add("-proc:only");
+    command.add("-implicit:none");
+    command.add("-processorpath");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-processor");
+    command.add(DivByZeroChecker.class.getName());
+    command.add("-classpath");
+    command.add(classpath);
+    command.add("-sourcepath");
+    command.add(
+        sourceRoots.stream()
+            .filter(Files::isDirectory)
+            .map(Path::toString)
+            .collect(Collectors.joining(File.pathSeparator)));
+    command.add("-Xmaxerrs");
+    command.add(String.valueOf(Integer.MAX_VALUE));
+    command.add("-Xmaxwarns");
+    command.add(String.valueOf(Integer.MAX_VALUE));
+    command.addAll(checkerOptions);
+    if (shard.methodShard != null) {
+      command.add("-AdbzMethodShard=" + shard.methodShard);
+    }
+    command.add("@" + argFile);
+    return command;
+  }
+
+  /** A set of source files that one javac process checks. */
+  static final class Shard {
+    final String name;
+    final List<Path> files = new ArrayList<>();
+    final List<Long> sizes = new ArrayList<>();
+    long bytes;
+
+    /** The methods of its one file that this shard checks, as {@code i/n}, or null for all. */
+    String methodShard;
+
+    Shard(String name) {
+      this.name = name;
+    }
+
+    void add(Path file, long size) {
+      files.add(file);
+      sizes.add(size);
+      bytes += size;
+    }
+
+    void addAll(Shard other) {
+      for (int i = 0; i < other.files.size(); i++) {
+        add(other.files.get(i), other.sizes.get(i));
+      }
+    }
+
+    /** Split this shard, in file order, into pieces of at most {@code limit} bytes if possible. */
+    List<Shard> split(long limit) {
+      List<Shard> result = new ArrayList<>();
+      Shard current = new Shard(name);
+      for (int i = 0; i < files.size(); i++) {
+        if (!current.files.isEmpty() && current.bytes + sizes.get(i) > limit) {
+          result.add(current);
+          current = new Shard(name);
+        }
+        current.add(files.get(i), sizes.get(i));
+      }
+      result.add(current);
+      return result;
+    }
+
+    /** Run javac over this shard. */
+    Result check(List<String> command) {
+      long start = System.nanoTime();
+      try {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        return new Result(this, exitCode, output, System.nanoTime() - start);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    /** The outcome of checking a shard. */
+    static final class Result {
+      final Shard shard;
+      final int exitCode;
+      final String output;
+      final long nanos;
+      final List<ReportedDiagnostic> diagnostics;
+
+      Result(Shard shard, int exitCode, String output, long nanos) {
+        this.shard = shard;
+        this.exitCode = exitCode;
+        this.output = output;
+        this.nanos = nanos;
+        this.diagnostics = ReportedDiagnostic.parseJavacOutput(output);
+      }
+
+      /** True if javac failed without reporting an error, for example because it crashed. */
+      boolean crashed() {
+        return exitCode != 0 && diagnostics.stream().noneMatch(d -> d.kind.equals("error"));
+      }
+
+      String timing() {
+        return String.format(
+            "%s: %d files%s, %d KB, %.1f s, %d diagnostics, exit %d",
+            shard.name,
+            shard.files.size(),
+            shard.methodShard == null ? "" : " (methods " + shard.methodShard + ")",
+            shard.bytes / 1024,
+            nanos / 1e9,
+            diagnostics.size(),
+            exitCode);
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package org.checkerframework.checker.dividebyzero.qual;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import org.checkerframework.framework.qual.SubtypeOf;
+
+/**
+ * The expression has no value: it is dead code, or it always throws, such as {@code 1 / 0}. Users
+ * rarely need to write this qualifier.
+ */
+@SubtypeOf({Positive.class, Zero.class, Negative.class})
+@Target({ElementType.TYPE_USE, ElementType.TYPE_PARAMETER})
+public @interface Bottom {}
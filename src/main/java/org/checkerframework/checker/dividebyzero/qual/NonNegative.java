@@ -0,0 +1,10 @@
+package org.checkerframework.checker.dividebyzero.qual;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import org.checkerframework.framework.qual.SubtypeOf;
+
+/** The value is zero or positive. */
+@SubtypeOf({Top.class})
+@Target({ElementType.TYPE_USE, ElementType.TYPE_PARAMETER})
+public @interface NonNegative {}
@@ -6,8 +6,8 @@ import org.checkerframework.framework.qual.DefaultQualifierInHierarchy;
 import org.checkerframework.framework.qual.SubtypeOf;
 
 /**
- * You do not want a qualifier `@Top`. It appears here as a placeholder, so that the project
- * compiles.
+ * The value may be anything, including zero. This is the default qualifier, so it rarely needs to
+ * be written.
  */
 @DefaultQualifierInHierarchy
 @SubtypeOf({})
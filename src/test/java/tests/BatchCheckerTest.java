@@ -0,0 +1,50 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.dividebyzero.driver.BatchChecker;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.junit.Test;
+
+/**
+ * Checks {@code tests/dividebyzero} with {@link BatchChecker}, in one batch and in several, and
+ * checks that it reports what a single javac run does.
+ */
+public class BatchCheckerTest {
+
+  @Test
+  public void batchesReportWhatJavacDoes() throws IOException, InterruptedException {
+    List<Path> files = JavacBaseline.testFiles("dividebyzero");
+    List<String> expected = lines(JavacBaseline.check(files, List.of("-Anomsgtext")));
+    assertFalse("the corpus should have errors", expected.isEmpty());
+
+    // Name each source by its absolute path, as javac does the files it is given.
+    List<JavaFileObject> sources = new ArrayList<>();
+    for (Path file : files) {
+      sources.add(
+          BatchChecker.source(file.toString(), Files.readString(file, StandardCharsets.UTF_8)));
+    }
+    String classpath = System.getProperty("java.class.path");
+    for (int batchSize : new int[] {BatchChecker.DEFAULT_BATCH_SIZE, 2}) {
+      BatchChecker checker = new BatchChecker(classpath, List.of("-Anomsgtext"), batchSize);
+      assertEquals("batches of " + batchSize, expected, lines(checker.check(sources)));
+    }
+  }
+
+  /** Returns the report lines of some sorted diagnostics, without duplicates. */
+  private static List<String> lines(List<ReportedDiagnostic> diagnostics) {
+    return diagnostics.stream()
+        .distinct()
+        .map(ReportedDiagnostic::toString)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,27 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test runner for the budget of the flow analysis. The tests in {@code tests/budget} are checked
+ * with a budget small enough that some of their methods exceed it.
+ */
+public class BudgetTest extends CheckerFrameworkPerDirectoryTest {
+  public BudgetTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DivByZeroChecker.class,
+        "budget",
+        "-Anomsgtext",
+        "-AdbzMaxSteps=200");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"budget"};
+  }
+}
@@ -0,0 +1,28 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test runner for checking only changed lines. The tests in {@code tests/changedlines} are checked
+ * with {@code -AdbzChangedLines}, naming the line ranges in {@code tests/changedlines-ranges.txt}.
+ */
+public class ChangedLinesTest extends CheckerFrameworkPerDirectoryTest {
+  public ChangedLinesTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DivByZeroChecker.class,
+        "changedlines",
+        "-Anomsgtext",
+        "-AdbzChangedLines=tests/changedlines-ranges.txt",
+        "-nowarn");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"changedlines"};
+  }
+}
@@ -0,0 +1,183 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.dividebyzero.driver.CheckerDaemon;
+import org.checkerframework.checker.dividebyzero.driver.DaemonClient;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks {@code tests/dividebyzero} with a {@link CheckerDaemon}, and checks that each check
+ * reports what a single javac run does: a second check that reuses what the first one loaded, a
+ * check from another directory than the daemon's, and concurrent checks that share a cache.
+ */
+public class DaemonTest {
+
+  /** How long to wait for a daemon started by the test to listen, in milliseconds. */
+  private static final long START_TIMEOUT_MILLIS = 60_000;
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  /** The files of the corpus. */
+  private List<Path> files;
+
+  /** The report lines of a single javac run over {@link #files}. */
+  private SortedSet<String> expected;
+
+  /** The daemon's socket. */
+  private Path socket;
+
+  /** The daemon, if the test started it rather than a client. */
+  private Process daemon;
+
+  @Before
+  public void checkWithJavac() throws IOException, InterruptedException {
+    files = JavacBaseline.testFiles("dividebyzero");
+    expected = new TreeSet<>();
+    for (ReportedDiagnostic d : JavacBaseline.check(files, List.of("-Anomsgtext"))) {
+      expected.add(d.toString());
+    }
+    assertFalse("the corpus should have errors", expected.isEmpty());
+    socket = temp.getRoot().toPath().resolve("daemon.sock");
+  }
+
+  @After
+  public void stopDaemon() throws IOException, InterruptedException {
+    Process process = client(temp.getRoot().toPath(), List.of("--stop"));
+    process.getInputStream().readAllBytes();
+    process.waitFor();
+    if (daemon != null) {
+      daemon.destroy();
+      daemon.waitFor();
+    }
+  }
+
+  @Test
+  public void daemonReportsWhatJavacDoes() throws IOException, InterruptedException {
+    for (int run = 1; run <= 2; run++) {
+      assertEquals("run " + run, expected, check(temp.getRoot().toPath()));
+    }
+  }
+
+  @Test
+  public void relativePathsAreTheClients() throws IOException, InterruptedException {
+    Path started = temp.newFolder("started").toPath();
+    Path other = temp.newFolder("other").toPath();
+    // The first check starts the daemon, in the directory of its client.
+    assertEquals(expected, check(started));
+    assertEquals(expected, check(other, "-AdbzCache=cache"));
+    assertTrue(Files.isRegularFile(other.resolve("cache").resolve("results.dbz")));
+    assertFalse(Files.exists(started.resolve("cache")));
+  }
+
+  @Test
+  public void concurrentChecksShareACache() throws IOException, InterruptedException {
+    startDaemon(2);
+    for (int round = 1; round <= 3; round++) {
+      Path cache = temp.newFolder("cache" + round).toPath();
+      String option = "-AdbzCache=" + cache;
+      Process first = client(temp.getRoot().toPath(), arguments("--no-start", option));
+      Process second = client(temp.getRoot().toPath(), arguments("--no-start", option));
+      assertEquals("round " + round, expected, reported(first));
+      assertEquals("round " + round, expected, reported(second));
+
+      // If either check's records were lost, this one would analyze and append them again.
+      Path results = cache.resolve("results.dbz");
+      long size = Files.size(results);
+      assertEquals("round " + round, expected, check(temp.getRoot().toPath(), option));
+      assertEquals("round " + round + ": records were lost", size, Files.size(results));
+    }
+  }
+
+  /**
+   * Check the corpus with a client, starting the daemon in the client's directory if needed.
+   *
+   * @param directory the working directory of the client
+   * @param options checker options
+   * @return the report lines
+   */
+  private SortedSet<String> check(Path directory, String... options)
+      throws IOException, InterruptedException {
+    return reported(client(directory, arguments(options)));
+  }
+
+  /** Returns the arguments of a client that checks the corpus, after the given ones. */
+  private List<String> arguments(String... options) {
+    List<String> arguments = new ArrayList<>(List.of(options));
+    arguments.add("-cp");
+    arguments.add(System.getProperty("java.class.path"));
+    arguments.add("-Anomsgtext");
+    for (Path file : files) {
+      arguments.add(file.toString());
+    }
+    return arguments;
+  }
+
+  /** Wait for a client that checks the corpus, and return the report lines it printed. */
+  private static SortedSet<String> reported(Process client)
+      throws IOException, InterruptedException {
+    String output = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertEquals(output, 1, client.waitFor());
+    return output.lines().collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Start {@link DaemonClient} on the test's socket.
+   *
+   * @param directory the working directory of the client
+   * @param arguments its arguments after the socket
+   * @return the client process, whose standard output has the diagnostics
+   */
+  private Process client(Path directory, List<String> arguments) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(DaemonClient.class.getName());
+    command.add("--socket");
+    command.add(socket.toString());
+    command.addAll(arguments);
+    return new ProcessBuilder(command)
+        .directory(directory.toFile())
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+  }
+
+  /** Start a daemon on the test's socket that runs the given number of checks at once. */
+  private void startDaemon(int threads) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(JavacBaseline.JVM_OPTIONS_FOR_RUNNING_CF);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(CheckerDaemon.class.getName());
+    command.add("--socket");
+    command.add(socket.toString());
+    command.add("--threads");
+    command.add(Integer.toString(threads));
+    daemon = new ProcessBuilder(command).inheritIO().start();
+    long deadline = System.nanoTime() + START_TIMEOUT_MILLIS * 1_000_000;
+    while (!Files.exists(socket)) {
+      assertTrue("the daemon exited", daemon.isAlive());
+      assertTrue("the daemon did not start", System.nanoTime() < deadline);
+      Thread.sleep(20);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test runner for the fast check. The tests in {@code tests/fastmode} are checked with {@code
+ * -AdbzMode=fast}, which uses no flow analysis.
+ */
+public class FastModeTest extends CheckerFrameworkPerDirectoryTest {
+  public FastModeTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DivByZeroChecker.class,
+        "fastmode",
+        "-Anomsgtext",
+        "-AdbzMode=fast",
+        "-nowarn");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"fastmode"};
+  }
+}
@@ -0,0 +1,91 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+
+/**
+ * The diagnostics of one plain javac process over a set of files, which the drivers in {@code
+ * org.checkerframework.checker.dividebyzero.driver} must reproduce however they split or reuse the
+ * work.
+ */
+final class JavacBaseline {
+
+  /** The add-exports and add-opens that javac needs to run the Checker Framework. */
+  static final List<String> JVM_OPTIONS_FOR_RUNNING_CF =
+      List.of(
+          "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+          "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+          "--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
+
+  private JavacBaseline() {}
+
+  /**
+   * Returns the Java files of a test directory, in order.
+   *
+   * @param dir a directory under {@code tests}, such as "dividebyzero"
+   * @return the absolute paths of its Java files
+   */
+  static List<Path> testFiles(String dir) throws IOException {
+    try (Stream<Path> files = Files.list(Paths.get("tests", dir))) {
+      return files
+          .filter(p -> p.toString().endsWith(".java"))
+          .map(p -> p.toAbsolutePath().normalize())
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Check files with the checker in one javac process.
+   *
+   * @param files the files to check
+   * @param options checker options, such as {@code -Anomsgtext}
+   * @return the diagnostics, deduplicated and in report order
+   */
+  static List<ReportedDiagnostic> check(List<Path> files, List<String> options)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "javac").toString());
+    for (String option : JVM_OPTIONS_FOR_RUNNING_CF) {
+      command.add("-J" + option);
+    }
+    command.add("-proc:only");
+    command.add("-implicit:none");
+    command.add("-processorpath");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-processor");
+    command.add(DivByZeroChecker.class.getName());
+    command.add("-classpath");
+    command.add(System.getProperty("java.class.path"));
+    command.addAll(options);
+    for (Path file : files) {
+      command.add(file.toString());
+    }
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    int exitCode = process.waitFor();
+    SortedSet<ReportedDiagnostic> result =
+        new TreeSet<>(ReportedDiagnostic.parseJavacOutput(output));
+    if (exitCode > 1 || (exitCode == 1 && result.isEmpty())) {
+      throw new IOException("javac failed with exit status " + exitCode + ":\n" + output);
+    }
+    return new ArrayList<>(result);
+  }
+}
@@ -0,0 +1,28 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test runner for method shards. The tests in {@code tests/methodshard} are checked with {@code
+ * -AdbzMethodShard=1/2}, which checks the second of two shares of the methods of each file.
+ */
+public class MethodShardTest extends CheckerFrameworkPerDirectoryTest {
+  public MethodShardTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DivByZeroChecker.class,
+        "methodshard",
+        "-Anomsgtext",
+        "-AdbzMethodShard=1/2",
+        "-nowarn");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"methodshard"};
+  }
+}
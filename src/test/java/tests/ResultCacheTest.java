@@ -0,0 +1,63 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks {@code tests/dividebyzero} with {@code -AdbzCache}, and checks that a run that replays the
+ * cache reports what a run without it does, and that changing an option does not replay results
+ * recorded with the old one.
+ */
+public class ResultCacheTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void replayIsThatOfAFreshRun() throws IOException, InterruptedException {
+    List<Path> files = JavacBaseline.testFiles("dividebyzero");
+    List<ReportedDiagnostic> fresh = JavacBaseline.check(files, List.of("-Anomsgtext"));
+    assertFalse("the corpus should have errors", fresh.isEmpty());
+
+    Path directory = temp.newFolder("cache").toPath();
+    List<String> cached = List.of("-Anomsgtext", "-AdbzCache=" + directory);
+    assertEquals(fresh, JavacBaseline.check(files, cached));
+    Path results = directory.resolve("results.dbz");
+    long recorded = Files.size(results);
+    assertTrue("the methods should have been recorded", recorded > 0);
+
+    assertEquals(fresh, JavacBaseline.check(files, cached));
+    assertEquals("every method should have been replayed", recorded, Files.size(results));
+  }
+
+  @Test
+  public void changingAnOptionInvalidatesTheCache() throws IOException, InterruptedException {
+    List<Path> files = JavacBaseline.testFiles("dividebyzero");
+    List<ReportedDiagnostic> full = JavacBaseline.check(files, List.of("-Anomsgtext"));
+    List<ReportedDiagnostic> starved =
+        JavacBaseline.check(files, List.of("-Anomsgtext", "-AdbzMaxSteps=1"));
+    assertNotEquals("the budget should change the diagnostics", full, starved);
+
+    Path directory = temp.newFolder("cache").toPath();
+    String cache = "-AdbzCache=" + directory;
+    assertEquals(full, JavacBaseline.check(files, List.of("-Anomsgtext", cache)));
+    long recorded = Files.size(directory.resolve("results.dbz"));
+
+    assertEquals(
+        starved, JavacBaseline.check(files, List.of("-Anomsgtext", "-AdbzMaxSteps=1", cache)));
+    assertEquals(full, JavacBaseline.check(files, List.of("-Anomsgtext", cache)));
+    assertTrue(
+        "the results under the budget should have been recorded separately",
+        Files.size(directory.resolve("results.dbz")) > recorded);
+  }
+}
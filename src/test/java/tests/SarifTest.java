@@ -0,0 +1,265 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks {@code tests/dividebyzero} with {@code -AdbzSarif}, and checks that the file is SARIF
+ * 2.1.0 with one result, of the rule {@code divide.by.zero}, for each {@code divide.by.zero}
+ * diagnostic of the run, with its level and text and a region that covers the division.
+ */
+public class SarifTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void sarifHasAResultForEachError() throws IOException, InterruptedException {
+    checkSarif(List.of("-Anomsgtext"), "error");
+  }
+
+  @Test
+  public void sarifHasAWarningForEachWarning() throws IOException, InterruptedException {
+    checkSarif(List.of("-Anomsgtext", "-Awarns"), "warning");
+  }
+
+  /**
+   * Check the corpus with a SARIF file, and compare the file with the diagnostics of the run.
+   *
+   * @param options the checker options
+   * @param kind the kind of the {@code divide.by.zero} diagnostics with these options
+   */
+  private void checkSarif(List<String> options, String kind)
+      throws IOException, InterruptedException {
+    Path file = temp.getRoot().toPath().resolve("dbz.sarif");
+    List<String> withSarif = new ArrayList<>(options);
+    withSarif.add("-AdbzSarif=" + file);
+    List<ReportedDiagnostic> diagnostics =
+        JavacBaseline.check(JavacBaseline.testFiles("dividebyzero"), withSarif);
+    List<ReportedDiagnostic> reported = new ArrayList<>();
+    for (ReportedDiagnostic d : diagnostics) {
+      if (d.message.equals("(divide.by.zero)")) {
+        assertEquals(d.toString(), kind, d.kind);
+        reported.add(d);
+      }
+    }
+    assertFalse("the corpus should have diagnostics", reported.isEmpty());
+
+    Map<?, ?> log = (Map<?, ?>) new Json(Files.readString(file, StandardCharsets.UTF_8)).parse();
+    assertEquals("2.1.0", log.get("version"));
+    assertEquals("https://json.schemastore.org/sarif-2.1.0.json", log.get("$schema"));
+    List<?> runs = (List<?>) log.get("runs");
+    assertEquals(1, runs.size());
+    Map<?, ?> run = (Map<?, ?>) runs.get(0);
+    Map<?, ?> driver = (Map<?, ?>) ((Map<?, ?>) run.get("tool")).get("driver");
+    assertTrue(driver.get("name") instanceof String);
+    List<?> rules = (List<?>) driver.get("rules");
+    assertEquals(1, rules.size());
+    assertEquals("divide.by.zero", ((Map<?, ?>) rules.get(0)).get("id"));
+
+    Properties messages = new Properties();
+    try (InputStream in = DivByZeroChecker.class.getResourceAsStream("messages.properties")) {
+      messages.load(in);
+    }
+    List<?> results = (List<?>) run.get("results");
+    List<String> regions = new ArrayList<>();
+    for (Object o : results) {
+      Map<?, ?> result = (Map<?, ?>) o;
+      assertEquals("divide.by.zero", result.get("ruleId"));
+      assertEquals(kind, result.get("level"));
+      Map<?, ?> properties = (Map<?, ?>) result.get("properties");
+      assertEquals(
+          String.format(
+              messages.getProperty("divide.by.zero"), properties.get("divisorQualifier")),
+          ((Map<?, ?>) result.get("message")).get("text"));
+      List<?> locations = (List<?>) result.get("locations");
+      assertEquals(1, locations.size());
+      Map<?, ?> physical = (Map<?, ?>) ((Map<?, ?>) locations.get(0)).get("physicalLocation");
+      String uri = (String) ((Map<?, ?>) physical.get("artifactLocation")).get("uri");
+      Path source = Paths.get(URI.create(uri));
+      Map<?, ?> region = (Map<?, ?>) physical.get("region");
+      int startLine = number(region, "startLine");
+      int startColumn = number(region, "startColumn");
+      int endLine = number(region, "endLine");
+      int endColumn = number(region, "endColumn");
+      assertTrue(region.toString(), startLine <= endLine);
+      assertTrue(region.toString(), startLine < endLine || startColumn < endColumn);
+
+      String operator = (String) properties.get("operator");
+      String text = text(source, startLine, startColumn, endLine, endColumn);
+      assertTrue(uri + ": " + text, text.contains(operator));
+      assertFalse("suppressed: " + text, text.equals("x / y") && uri.endsWith("/Suppressed.java"));
+      for (int line = startLine; line <= endLine; line++) {
+        regions.add(source + ":" + line);
+      }
+    }
+    assertEquals(regions.toString(), reported.size(), results.size());
+    for (ReportedDiagnostic d : reported) {
+      assertTrue(d + " has no result", regions.contains(d.file + ":" + d.line));
+    }
+  }
+
+  /** Returns the value of a property that must be a positive integer. */
+  private static int number(Map<?, ?> object, String name) {
+    Object value = object.get(name);
+    assertTrue(name + " of " + object, value instanceof Long && (Long) value > 0);
+    return ((Long) value).intValue();
+  }
+
+  /** Returns the source text of a region, whose columns are 1-based and whose end is exclusive. */
+  private static String text(
+      Path source, int startLine, int startColumn, int endLine, int endColumn) throws IOException {
+    List<String> lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+    if (startLine == endLine) {
+      return lines.get(startLine - 1).substring(startColumn - 1, endColumn - 1);
+    }
+    StringBuilder sb = new StringBuilder(lines.get(startLine - 1).substring(startColumn - 1));
+    for (int line = startLine + 1; line < endLine; line++) {
+      sb.append('\n').append(lines.get(line - 1));
+    }
+    return sb.append('\n').append(lines.get(endLine - 1), 0, endColumn - 1).toString();
+  }
+
+  /** A reader of the JSON subset that SARIF files use: no exponents or fractions in numbers. */
+  private static final class Json {
+    private final String s;
+    private int i;
+
+    Json(String s) {
+      this.s = s;
+    }
+
+    /** Parse the whole text as one value. */
+    Object parse() {
+      Object value = value();
+      skipSpace();
+      assertEquals("trailing text", s.length(), i);
+      return value;
+    }
+
+    private Object value() {
+      skipSpace();
+      char c = s.charAt(i);
+      if (c == '{') {
+        Map<String, Object> object = new LinkedHashMap<>();
+        i++;
+        if (!consume('}')) {
+          do {
+            skipSpace();
+            String name = string();
+            expect(':');
+            assertFalse("duplicate " + name, object.containsKey(name));
+            object.put(name, value());
+          } while (consume(','));
+          expect('}');
+        }
+        return object;
+      } else if (c == '[') {
+        List<Object> array = new ArrayList<>();
+        i++;
+        if (!consume(']')) {
+          do {
+            array.add(value());
+          } while (consume(','));
+          expect(']');
+        }
+        return array;
+      } else if (c == '"') {
+        return string();
+      } else if (s.startsWith("true", i)) {
+        i += 4;
+        return true;
+      } else if (s.startsWith("false", i)) {
+        i += 5;
+        return false;
+      } else if (s.startsWith("null", i)) {
+        i += 4;
+        return null;
+      }
+      int start = i;
+      if (c == '-') {
+        i++;
+      }
+      while (i < s.length() && Character.isDigit(s.charAt(i))) {
+        i++;
+      }
+      assertTrue("bad value at " + start, i > start);
+      return Long.parseLong(s.substring(start, i));
+    }
+
+    private String string() {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      for (char c = s.charAt(i++); c != '"'; c = s.charAt(i++)) {
+        assertTrue("control character at " + i, c >= ' ');
+        if (c != '\\') {
+          sb.append(c);
+          continue;
+        }
+        char e = s.charAt(i++);
+        switch (e) {
+          case 'u':
+            sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+            i += 4;
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          default:
+            assertTrue("bad escape at " + i, e == '"' || e == '\\' || e == '/');
+            sb.append(e);
+        }
+      }
+      return sb.toString();
+    }
+
+    private void skipSpace() {
+      while (i < s.length() && " \t\r\n".indexOf(s.charAt(i)) >= 0) {
+        i++;
+      }
+    }
+
+    private boolean consume(char c) {
+      skipSpace();
+      if (i < s.length() && s.charAt(i) == c) {
+        i++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      assertTrue("expected " + c + " at " + i, consume(c));
+    }
+  }
+}
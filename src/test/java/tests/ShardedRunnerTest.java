@@ -0,0 +1,81 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.dividebyzero.driver.ReportedDiagnostic;
+import org.checkerframework.checker.dividebyzero.driver.ShardedRunner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs {@link ShardedRunner} over {@code tests/dividebyzero}, split into many shards and with the
+ * methods of each file split across processes, and checks that its report is that of a single
+ * javac run.
+ */
+public class ShardedRunnerTest {
+
+  /** A line of the timing that the runner prints for each shard. */
+  private static final Pattern TIMING =
+      Pattern.compile(
+          "shard \\d+: \\d+ files( \\(methods \\d+/\\d+\\))?, \\d+ KB, [\\d.,]+ s,"
+              + " \\d+ diagnostics, exit \\d+");
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void shardedReportIsThatOfOneJavacRun() throws IOException, InterruptedException {
+    Path root = Paths.get("tests", "dividebyzero").toAbsolutePath();
+    List<ReportedDiagnostic> expected =
+        JavacBaseline.check(JavacBaseline.testFiles("dividebyzero"), List.of("-Anomsgtext"));
+    assertFalse("the corpus should have errors", expected.isEmpty());
+
+    Path report = temp.getRoot().toPath().resolve("report.txt");
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ShardedRunner.class.getName());
+    command.add("-j");
+    command.add("2");
+    command.add("--shard-kb");
+    command.add("1");
+    command.add("--split-large-files");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-o");
+    command.add(report.toString());
+    command.add("-Anomsgtext");
+    command.add(root.toString());
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    int exitCode = process.waitFor();
+
+    assertEquals(output, 1, exitCode);
+    List<String> timings =
+        output
+            .lines()
+            .filter(line -> line.startsWith("shard "))
+            .collect(Collectors.toList());
+    assertFalse(output, timings.isEmpty());
+    for (String timing : timings) {
+      assertTrue(timing, TIMING.matcher(timing).matches());
+    }
+    assertTrue(output, timings.stream().anyMatch(line -> line.contains("(methods ")));
+
+    List<String> expectedLines =
+        expected.stream().map(ReportedDiagnostic::toString).collect(Collectors.toList());
+    assertEquals(expectedLines, Files.readAllLines(report, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,48 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.DivByZeroChecker;
+import org.checkerframework.checker.dividebyzero.StubIndexCompiler;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test runner for qualifiers read from a compiled stub index. The stub files in {@code
+ * tests/stubindex-stubs} are compiled into an index, and the tests in {@code tests/stubindex} are
+ * checked with {@code -AdbzStubIndex}.
+ */
+public class StubIndexTest extends CheckerFrameworkPerDirectoryTest {
+
+  /** The compiled index. */
+  private static final Path INDEX = Paths.get("build", "stubindex", "stubs.idx");
+
+  static {
+    try {
+      StubIndexCompiler.compile(
+          Arrays.asList(Paths.get("tests", "stubindex-stubs")), INDEX, System.err);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public StubIndexTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DivByZeroChecker.class,
+        "stubindex",
+        "-Anomsgtext",
+        "-AdbzStubIndex=" + INDEX,
+        "-nowarn");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"stubindex"};
+  }
+}
@@ -0,0 +1,118 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Methods whose flow analysis exceeds -AdbzMaxSteps=200 are checked without refined types.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Budget {
+
+  int small(int x, int y) {
+    if (y != 0) {
+      return x / y;
+    }
+    return 0;
+  }
+
+  int declared(int x, @Positive int y) {
+    return x / y;
+  }
+
+  // :: warning: analysis.budget.exceeded
+  int large(int code, int x, @NonZero int y) {
+    int result = 0;
+    if (code == 1) {
+      result += code * 1;
+    } else if (code == 2) {
+      result += code * 2;
+    } else if (code == 3) {
+      result += code * 3;
+    } else if (code == 4) {
+      result += code * 4;
+    } else if (code == 5) {
+      result += code * 5;
+    } else if (code == 6) {
+      result += code * 6;
+    } else if (code == 7) {
+      result += code * 7;
+    } else if (code == 8) {
+      result += code * 8;
+    } else if (code == 9) {
+      result += code * 9;
+    } else if (code == 10) {
+      result += code * 10;
+    } else if (code == 11) {
+      result += code * 11;
+    } else if (code == 12) {
+      result += code * 12;
+    } else if (code == 13) {
+      result += code * 13;
+    } else if (code == 14) {
+      result += code * 14;
+    } else if (code == 15) {
+      result += code * 15;
+    } else if (code == 16) {
+      result += code * 16;
+    } else if (code == 17) {
+      result += code * 17;
+    } else if (code == 18) {
+      result += code * 18;
+    } else if (code == 19) {
+      result += code * 19;
+    } else if (code == 20) {
+      result += code * 20;
+    } else if (code == 21) {
+      result += code * 21;
+    } else if (code == 22) {
+      result += code * 22;
+    } else if (code == 23) {
+      result += code * 23;
+    } else if (code == 24) {
+      result += code * 24;
+    } else if (code == 25) {
+      result += code * 25;
+    } else if (code == 26) {
+      result += code * 26;
+    } else if (code == 27) {
+      result += code * 27;
+    } else if (code == 28) {
+      result += code * 28;
+    } else if (code == 29) {
+      result += code * 29;
+    } else if (code == 30) {
+      result += code * 30;
+    } else if (code == 31) {
+      result += code * 31;
+    } else if (code == 32) {
+      result += code * 32;
+    } else if (code == 33) {
+      result += code * 33;
+    } else if (code == 34) {
+      result += code * 34;
+    } else if (code == 35) {
+      result += code * 35;
+    } else if (code == 36) {
+      result += code * 36;
+    } else if (code == 37) {
+      result += code * 37;
+    } else if (code == 38) {
+      result += code * 38;
+    } else if (code == 39) {
+      result += code * 39;
+    } else if (code == 40) {
+      result += code * 40;
+    }
+    // Declared qualifiers still hold.
+    result += x / y;
+    if (x != 0) {
+      // :: error: divide.by.zero
+      result += result / x;
+    }
+    return result;
+  }
+
+  int afterLarge(int x, int y) {
+    if (y > 0) {
+      return x / y;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,31 @@
+// Checked with -AdbzChangedLines=tests/changedlines-ranges.txt, which lists lines of this file.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class ChangedLines {
+
+  static int divisor;
+
+  // An unchanged field initializer is not checked.
+  int unchangedField = 10 / divisor;
+
+  // A changed field initializer is checked.
+  // :: error: divide.by.zero
+  int changedField = 10 / divisor;
+
+  // An unchanged method is not checked.
+  int unchanged(int x) {
+    return 1 / x;
+  }
+
+  // A method with a changed line is checked in full, not only on the changed line.
+  int changed(int x) {
+    int y = x + 1;
+    // :: error: divide.by.zero
+    return y / x;
+  }
+
+  // An unchanged method may use one that changed.
+  int caller(int x) {
+    return changed(x) / x;
+  }
+}
@@ -0,0 +1,36 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Casts that narrow may turn a nonzero value into zero, so only constants keep a qualifier
+// through them.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Casts {
+
+  int truncated(@Positive long big, int x) {
+    // :: error: divide.by.zero
+    return x / (int) big;
+  }
+
+  int truncatedConstant() {
+    // :: error: divide.by.zero
+    return 1 / (int) 4294967296L;
+  }
+
+  int constant(int x) {
+    return x / (int) 4294967297L + x / (short) 3 + x / (char) 'a';
+  }
+
+  int narrowTypes(@NonZero int y, int x) {
+    // :: error: divide.by.zero
+    int a = x / (short) y;
+    // :: error: divide.by.zero
+    int b = x / (byte) y;
+    // :: error: divide.by.zero
+    int c = x / (char) y;
+    return a + b + c;
+  }
+
+  long widened(@Positive int y, long x) {
+    return x / (long) y + x / (int) y;
+  }
+}
@@ -0,0 +1,48 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Refinements along if/else-if chains, where some comparisons teach nothing.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class ComparisonChains {
+
+  static int chain(int code, int x) {
+    if (code == 1) {
+      return x / code;
+    } else if (code == 2) {
+      return x / code;
+    } else if (code < 0) {
+      return x / code;
+    } else if (code > 100) {
+      return x / code;
+    } else {
+      // :: error: divide.by.zero
+      return x / code;
+    }
+  }
+
+  static int uninformative(int y, int n) {
+    // Comparing against an unknown value refines neither branch.
+    if (y < n) {
+      // :: error: divide.by.zero
+      return 1 / y;
+    }
+    if (y != 0) {
+      if (n == y) {
+        return 1 / n;
+      }
+      // :: error: divide.by.zero
+      return 1 / n;
+    }
+    // :: error: divide.by.zero
+    return 1 / y;
+  }
+
+  static int bothBranches(@NonNegative int y) {
+    if (y > 0) {
+      return 1 / y;
+    } else {
+      @Zero int z = y;
+      return z;
+    }
+  }
+}
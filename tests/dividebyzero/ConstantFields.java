@@ -0,0 +1,48 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Uses of static final int and long fields with constant initializers have the point in the
+// lattice of their value, whether the field is declared in source or in a class file.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class ConstantFields {
+
+  static final int BUCKET_COUNT = 16;
+
+  static final long SHARDS = 1L << 4;
+
+  static final int NEGATIVE = -3;
+
+  static final int NONE = 0;
+
+  static final int OFFSET = BUCKET_COUNT - 16;
+
+  static int mutable = 16;
+
+  void sourceConstants(int x, long n) {
+    int a = x / BUCKET_COUNT;
+    long b = n % SHARDS;
+    int c = x / NEGATIVE;
+    int d = x / ConstantFields.BUCKET_COUNT;
+    // :: error: divide.by.zero
+    int e = x / NONE;
+    // :: error: divide.by.zero
+    int f = x / OFFSET;
+    // :: error: divide.by.zero
+    int g = x / mutable;
+  }
+
+  void classFileConstants(int x, long n) {
+    int a = x / Integer.MAX_VALUE;
+    int b = x / Integer.MIN_VALUE;
+    int c = x % Integer.SIZE;
+    long d = n / Long.MAX_VALUE;
+  }
+
+  void qualifiers() {
+    @Positive int a = BUCKET_COUNT;
+    @Negative int b = NEGATIVE;
+    @Zero int c = NONE;
+    // :: error: assignment
+    @Positive int d = NONE;
+  }
+}
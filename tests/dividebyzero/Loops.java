@@ -0,0 +1,74 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Loops, whose heads the analysis must reach a fixpoint at.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Loops {
+
+  static int countUp(int x, int n) {
+    int sum = 0;
+    for (int i = 1; i < n; i++) {
+      sum += x / i;
+    }
+    return sum;
+  }
+
+  static int countUpLong(long x, long n) {
+    long sum = 0;
+    for (long i = 1000000000000L; i < n; i += 1000000000000L) {
+      sum += x / i;
+    }
+    return (int) sum;
+  }
+
+  static int countDown(int x, int n) {
+    int sum = 0;
+    for (int i = -1; i > -n; i--) {
+      sum += x % i;
+    }
+    return sum;
+  }
+
+  static int fromZero(int x, int n) {
+    int sum = 0;
+    for (int i = 0; i < n; i++) {
+      // :: error: divide.by.zero
+      sum += x / i;
+    }
+    return sum;
+  }
+
+  static int crossesZero(int x) {
+    int sum = 0;
+    for (int i = 5; i > -5; i--) {
+      // :: error: divide.by.zero
+      sum += x / i;
+    }
+    return sum;
+  }
+
+  // d overflows to Integer.MIN_VALUE and then to zero, while still less than n.
+  static int doubling(int x, int n) {
+    int d = 1;
+    while (d < n) {
+      // :: error: divide.by.zero
+      x /= d;
+      d = d * 2;
+    }
+    return x;
+  }
+
+  static int guardedByLoopCondition(int x, int d) {
+    while (d != 0) {
+      x = x / d;
+      d = d / 2;
+    }
+    return x;
+  }
+
+  static int constantSeconds(int x) {
+    int result = x / (60 * 60 * 24);
+    // :: error: divide.by.zero
+    return result / (60 * 60 - 3600);
+  }
+}
@@ -0,0 +1,40 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Arithmetic wraps around on overflow, so only signs that overflow cannot produce are kept.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Overflow {
+
+  int sums(@Positive int p, @Negative int n, int x) {
+    // Integer.MAX_VALUE + 1 is negative, but a sum of positive values is never zero.
+    @NonZero int a = p + p;
+    // :: error: assignment
+    @Positive int b = p + p;
+    // Integer.MIN_VALUE + Integer.MIN_VALUE is zero.
+    // :: error: divide.by.zero
+    int c = x / (n + n);
+    return x / (p + p) + x / (p - n) + x / (n - p);
+  }
+
+  int products(@Positive int p, @Negative int n, int x) {
+    // 65536 * 65536 is zero.
+    // :: error: divide.by.zero
+    int a = x / (p * p);
+    // :: error: divide.by.zero
+    int b = x / (n * n);
+    // :: error: divide.by.zero
+    int c = x / (p * n);
+    return a + b + c;
+  }
+
+  int quotients(@Negative int n, int x) {
+    // Integer.MIN_VALUE / -1 is Integer.MIN_VALUE.
+    // :: error: assignment
+    @NonNegative int a = n / n;
+    return a;
+  }
+
+  int constants(int x) {
+    return x / (65536 * 65535) + x / (Integer.MAX_VALUE + 2);
+  }
+}
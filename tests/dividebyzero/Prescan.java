@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Methods without a division still need the flow analysis when a refined value
+// flows into a declaration with a qualifier.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Prescan {
+
+  @NonZero int field = 1;
+
+  List<@NonZero Integer> divisors = new ArrayList<>();
+
+  static void takesNonZero(@NonZero int x) {}
+
+  static int noDivision(int y) {
+    int z = y + 1;
+    return z * 2;
+  }
+
+  void assignsField(int y) {
+    if (y != 0) {
+      field = y;
+    }
+    // :: error: assignment
+    field = y;
+  }
+
+  void passesArgument(int y) {
+    if (y > 0) {
+      takesNonZero(y);
+    }
+    // :: error: argument
+    takesNonZero(y);
+  }
+
+  void addsToList(int y) {
+    if (y < 0) {
+      divisors.add(y);
+    }
+    // :: error: argument
+    divisors.add(y);
+  }
+
+  @Positive int returns(int y) {
+    if (y > 0) {
+      return y;
+    }
+    // :: error: return
+    return y;
+  }
+
+  int fieldInitializer = 1 / field;
+
+  void anonymous(int y) {
+    Runnable r =
+        new Runnable() {
+          public void run() {
+            int d = y - 1;
+            if (d != 0) {
+              takesNonZero(d);
+            }
+          }
+        };
+  }
+}
@@ -4,12 +4,60 @@ import org.checkerframework.checker.dividebyzero.qual.*;
 // The file contains "// ::" comments to indicate expected errors and warnings.
 
 class SubtypeTest {
-  /// You will want a test like this for every pair of qualifiers in your type hierarchy.
-  // void oneSubtypingRelationship(@MyTopQualifier int x, @MyBottomQualifier int y) {
-  //   @MyTopQualifier int a = x;
-  //   @MyTopQualifier int b = y;
-  //   // :: error: assignment
-  //   @MyBottomQualifier int c = x; // expected error on this line, as indicated just above
-  //   @MyBottomQualifier int d = y;
-  // }
+  void top(@Top int x, @NonZero int nz, @NonNegative int nn, @NonPositive int np) {
+    @Top int a = nz;
+    @Top int b = nn;
+    @Top int c = np;
+    // :: error: assignment
+    @NonZero int d = x;
+    // :: error: assignment
+    @NonNegative int e = x;
+    // :: error: assignment
+    @NonPositive int f = x;
+  }
+
+  void middle(@NonZero int nz, @NonNegative int nn, @NonPositive int np) {
+    // :: error: assignment
+    @NonZero int a = nn;
+    // :: error: assignment
+    @NonNegative int b = np;
+    // :: error: assignment
+    @NonPositive int c = nz;
+  }
+
+  void bottomOfMiddle(@Positive int p, @Zero int z, @Negative int n) {
+    @NonZero int a = p;
+    @NonNegative int b = p;
+    // :: error: assignment
+    @NonPositive int c = p;
+
+    // :: error: assignment
+    @NonZero int d = z;
+    @NonNegative int e = z;
+    @NonPositive int f = z;
+
+    @NonZero int g = n;
+    // :: error: assignment
+    @NonNegative int h = n;
+    @NonPositive int i = n;
+  }
+
+  void leaves(@Positive int p, @Zero int z, @Negative int n, @NonZero int nz) {
+    // :: error: assignment
+    @Positive int a = z;
+    // :: error: assignment
+    @Zero int b = n;
+    // :: error: assignment
+    @Negative int c = p;
+    // :: error: assignment
+    @Positive int d = nz;
+  }
+
+  void bottom(@Bottom int bot, @Positive int p) {
+    @Positive int a = bot;
+    @Zero int b = bot;
+    @Negative int c = bot;
+    // :: error: assignment
+    @Bottom int d = p;
+  }
 }
@@ -0,0 +1,65 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Calls and final fields are checked with the inferred summaries of what they can hold.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Summaries {
+
+  static final int SECONDS_PER_HOUR = 60 * 60;
+
+  static final int COMPUTED = divisor() * 2;
+
+  final int instanceField = divisor() + 1;
+
+  static int divisor() {
+    return 7;
+  }
+
+  static int maybeZero(int y) {
+    return y;
+  }
+
+  static int eitherSign(boolean b) {
+    return b ? 3 : -3;
+  }
+
+  private int viaLocal() {
+    int d = divisor();
+    return d - 0;
+  }
+
+  static int recursive(int n) {
+    return n <= 1 ? 1 : recursive(n - 1);
+  }
+
+  static long big() {
+    return 4294967296L;
+  }
+
+  static int narrowed() {
+    return (int) big();
+  }
+
+  int overridable() {
+    return 5;
+  }
+
+  void uses(int x) {
+    x = x / SECONDS_PER_HOUR;
+    // A product of nonzero values may overflow to zero.
+    // :: error: divide.by.zero
+    x = x / COMPUTED;
+    x = x / instanceField;
+    x = x / divisor();
+    x = x / eitherSign(true);
+    x = x / viaLocal();
+    // :: error: divide.by.zero
+    x = x / maybeZero(x);
+    // :: error: divide.by.zero
+    x = x / recursive(3);
+    // :: error: divide.by.zero
+    x = x / narrowed();
+    // :: error: divide.by.zero
+    x = x / overridable();
+  }
+}
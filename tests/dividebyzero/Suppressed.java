@@ -0,0 +1,15 @@
+// A division whose error is suppressed is reported neither by javac nor in the -AdbzSarif file.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class Suppressed {
+
+  @SuppressWarnings("divide.by.zero")
+  int suppressed(int x, int y) {
+    return x / y;
+  }
+
+  int reported(int x, int y) {
+    // :: error: divide.by.zero
+    return x % y;
+  }
+}
@@ -0,0 +1,98 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// The fast check, -AdbzMode=fast: declared types, constants and syntactic guards, without flow.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class FastMode {
+
+  int literals(int x) {
+    return x / 3 + x % -1 + x / (24 * 60 * 60);
+  }
+
+  int declared(int x, @NonZero int y, @Positive long z) {
+    return x / y + (int) (x % z);
+  }
+
+  int notGuarded(int x, int y) {
+    // :: error: divide.by.zero
+    return x / y;
+  }
+
+  int guardedByIf(int x, int y) {
+    if (y != 0) {
+      x = x / y;
+    }
+    if (y > 0 && x > 1) {
+      x %= y;
+    }
+    if (y == 0 || x == 0) {
+      return x;
+    } else {
+      x = x / y;
+    }
+    if (y >= 0) {
+      // :: error: divide.by.zero
+      x = x / y;
+    }
+    return x;
+  }
+
+  int guardedByExpression(int x, int y) {
+    int a = y != 0 ? x / y : 0;
+    int b = y == 0 ? 0 : x / y;
+    boolean c = y < 0 && x / y > 1;
+    boolean d = y == 0 || x / y > 1;
+    return a + b + (c || d ? 1 : 0);
+  }
+
+  int guardedByLoop(int x, int y) {
+    while (y > 0) {
+      x = x / y;
+      if (x < 10) {
+        break;
+      }
+    }
+    for (int i = 10; i > 0; i--) {
+      x = x / i;
+    }
+    return x;
+  }
+
+  int guardedByEarlyExit(int x, int y) {
+    if (y == 0) {
+      throw new ArithmeticException("y is zero");
+    }
+    int z = x / y;
+    if (z <= 0) return 0;
+    return y / z;
+  }
+
+  int assignedAfterGuard(int x, int y) {
+    if (y != 0) {
+      y = y - 1;
+      // :: error: divide.by.zero
+      x = x / y;
+    }
+    if (y == 0) return 0;
+    y--;
+    // :: error: divide.by.zero
+    return x / y;
+  }
+
+  int fieldsAreNotGuarded(int x) {
+    if (divisor != 0) {
+      // :: error: divide.by.zero
+      return x / divisor;
+    }
+    return 0;
+  }
+
+  int divisor;
+
+  int assignedLocal(int x) {
+    // The full check would accept this; the fast check knows only the declared type of d.
+    int d = 5;
+    // :: error: divide.by.zero
+    return x / d;
+  }
+}
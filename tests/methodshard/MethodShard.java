@@ -0,0 +1,28 @@
+// Checked with -AdbzMethodShard=1/2: the second of two runs that split the methods of each file.
+// The file contains "// ::" comments to indicate expected errors and warnings.
+
+class MethodShard {
+
+  static int divisor;
+
+  // Code outside methods is checked by every run.
+  // :: error: divide.by.zero
+  int field = 10 / divisor;
+
+  // The largest method is dealt to the first run, which reports its division.
+  int large(int x) {
+    int y = x + 1;
+    y = y * 2 + x;
+    y = y - 3 * x;
+    if (y > 100) {
+      y = y - 100;
+    }
+    return y / x;
+  }
+
+  // The next method is dealt to the second run, whose shard is the smaller one so far.
+  int small(int x) {
+    // :: error: divide.by.zero
+    return 1 / x;
+  }
+}
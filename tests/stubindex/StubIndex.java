@@ -0,0 +1,29 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Qualifiers on JDK methods that come from tests/stubindex-stubs, compiled into an index.
+class StubIndex {
+
+  @NonNegative int length(String s) {
+    return s.length();
+  }
+
+  int divideByLength(int x, String s) {
+    // :: error: divide.by.zero
+    return x / s.length();
+  }
+
+  int divideBySignum(int x, @NonZero int y) {
+    return x / Integer.signum(y);
+  }
+
+  int signumOfZero() {
+    // :: error: argument
+    return Integer.signum(0);
+  }
+
+  // Methods without an entry keep their usual qualifiers.
+  @NonNegative int hash(String s) {
+    // :: error: return
+    return s.hashCode();
+  }
+}